@@ -4,6 +4,9 @@ import android.app.Application;
 import android.content.Context;
 import android.util.Log;
 
+import com.adobs.logscope.core.CaptureSettings;
+import com.adobs.logscope.core.LogCollector;
+import com.adobs.logscope.core.LogConfig;
 import com.adobs.logscope.core.LogHook;
 import com.adobs.logscope.core.LogManager;
 
@@ -36,7 +39,13 @@ public class LogScopeApp extends Application {
                 String processName = resolveProcessName();
                 
                 // इंजन के अंदर लॉगिंग सिस्टम शुरू करना
-                LogManager.init(processName);
+                // Host का LogCollector सभी प्रोसेस के लॉग एक ही सेशन में मिलाता है
+                // UI में चुने गए विकल्प (जैसे metrics) अगले लॉन्च से लागू होते हैं
+                String packageName = LogManager.packageOf(processName);
+                LogConfig config = new CaptureSettings(this).applyTo(packageName, new LogConfig.Builder())
+                        .collector(LogCollector.nameFor(packageName))
+                        .build();
+                LogManager.init(processName, config);
                 LogHook.startHooking();
                 
                 return;
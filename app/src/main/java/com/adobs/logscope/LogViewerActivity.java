@@ -0,0 +1,99 @@
+package com.adobs.logscope;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.adobs.logscope.adapters.LogViewerAdapter;
+import com.adobs.logscope.core.SegmentPager;
+import com.adobs.logscope.viewmodels.LogViewerViewModel;
+
+/**
+ * Live view of the newest capture segment of one package. Follows the tail
+ * while the list is scrolled to the bottom.
+ */
+public class LogViewerActivity extends AppCompatActivity {
+
+    public static final String EXTRA_PACKAGE = "com.adobs.logscope.extra.PACKAGE";
+
+    private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
+    private TextView tvSegment;
+    private LogViewerViewModel viewModel;
+    private LogViewerAdapter adapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_log_viewer);
+
+        String packageName = getIntent().getStringExtra(EXTRA_PACKAGE);
+        if (packageName == null) {
+            finish();
+            return;
+        }
+        setTitle(packageName);
+
+        tvSegment = findViewById(R.id.tvSegment);
+        // Tapping the segment bar shows what capturing costs this app
+        tvSegment.setOnClickListener(v -> {
+            Intent intent = new Intent(this, MetricsActivity.class);
+            intent.putExtra(MetricsActivity.EXTRA_PACKAGE, packageName);
+            startActivity(intent);
+        });
+        // Holding it zips the whole session for sharing
+        tvSegment.setOnLongClickListener(v -> {
+            SegmentPager current = viewModel.getPager().getValue();
+            if (current != null) {
+                viewModel.exportSession(current.getFile());
+            }
+            return true;
+        });
+        recyclerView = findViewById(R.id.recyclerLog);
+        layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        // Rows come and go through notify* calls only; the list itself never resizes
+        recyclerView.setHasFixedSize(true);
+
+        viewModel = new ViewModelProvider(this).get(LogViewerViewModel.class);
+        viewModel.open(packageName);
+        observeViewModel();
+    }
+
+    private void observeViewModel() {
+        // Capture rotated (or first segment found): start a fresh list on it
+        viewModel.getPager().observe(this, pager -> {
+            if (pager == null) return;
+            adapter = new LogViewerAdapter(pager, viewModel::loadPage);
+            recyclerView.setAdapter(adapter);
+            tvSegment.setText(pager.getFile().getName() + "  ·  tap for metrics, hold to export");
+            adapter.refreshCount();
+        });
+
+        viewModel.getExportStatus().observe(this, status -> {
+            if (status != null) {
+                Toast.makeText(this, status, Toast.LENGTH_LONG).show();
+            }
+        });
+
+        viewModel.getRecordCount().observe(this, count -> {
+            if (adapter == null) return;
+            boolean atBottom = isAtBottom();
+            adapter.refreshCount();
+            if (atBottom && adapter.getItemCount() > 0) {
+                recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+            }
+        });
+    }
+
+    private boolean isAtBottom() {
+        int last = layoutManager.findLastVisibleItemPosition();
+        return last == RecyclerView.NO_POSITION || last >= adapter.getItemCount() - 1;
+    }
+}
@@ -8,9 +8,13 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.provider.Settings;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -21,8 +25,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.adobs.logscope.adapters.AppListAdapter;
-import com.adobs.logscope.core.VirtualCore;
 import com.adobs.logscope.models.AppInfo;
+import com.adobs.logscope.models.LaunchState;
 import com.adobs.logscope.viewmodels.AppListViewModel;
 
 public class MainActivity extends AppCompatActivity {
@@ -30,7 +34,9 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
+    private TextView statusView;
     private AppListViewModel viewModel;
+    private AppListAdapter adapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,11 +45,30 @@ public class MainActivity extends AppCompatActivity {
 
         recyclerView = findViewById(R.id.recyclerView);
         progressBar = findViewById(R.id.progressBar);
+        statusView = findViewById(R.id.tvStatus);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
+        // Adapter एक ही बार बनता है; नई लिस्ट आने पर सिर्फ बदली हुई rows अपडेट होती हैं
+        adapter = new AppListAdapter(this::launchInVirtualEngine, this::openLogViewer);
+        recyclerView.setAdapter(adapter);
+
         // ViewModel को इनिशियलाइज़ करना (यह रोटेशन पर सुरक्षित रहता है)
         viewModel = new ViewModelProvider(this).get(AppListViewModel.class);
 
+        EditText searchBox = findViewById(R.id.etSearch);
+        searchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setSearchQuery(s.toString());
+            }
+        });
+
         checkStoragePermission();
         observeViewModel();
     }
@@ -57,11 +82,16 @@ public class MainActivity extends AppCompatActivity {
             progressBar.setVisibility(isLoading ? View.VISIBLE : View.GONE);
         });
 
+        viewModel.getLaunchState().observe(this, state -> {
+            if (state != null) {
+                showLaunchState(state);
+            }
+        });
+
         // App List के डेटा को ऑब्ज़र्व करना
         viewModel.getAppList().observe(this, appInfos -> {
             if (appInfos != null) {
-                AppListAdapter adapter = new AppListAdapter(appInfos, this::launchInVirtualEngine);
-                recyclerView.setAdapter(adapter);
+                adapter.submitList(appInfos);
             }
         });
     }
@@ -70,16 +100,48 @@ public class MainActivity extends AppCompatActivity {
      * ऐप को BlackBox इंजन में इंस्टॉल और लॉन्च करना
      */
     private void launchInVirtualEngine(AppInfo app) {
-        Toast.makeText(this, "Preparing " + app.getAppName() + " in LogScope...", Toast.LENGTH_SHORT).show();
-        
-        // काम को ViewModel के सुरक्षित थ्रेड में भेजना
-        viewModel.executeBackgroundLaunch(() -> {
-            try {
-                VirtualCore.get(getApplicationContext()).installAndLaunch(app.getPackageName());
-            } catch (Exception e) {
-                Log.e(TAG, "Virtual Engine Launch Failed for: " + app.getPackageName(), e);
-            }
-        });
+        // Progress नीचे status bar में दिखता है (getLaunchState)
+        viewModel.launch(app);
+    }
+
+    /**
+     * Launch की progress; चलते हुए launch पर टैप करने से वो cancel हो जाता है
+     */
+    private void showLaunchState(LaunchState state) {
+        statusView.setVisibility(View.VISIBLE);
+        String pkg = state.getPackageName();
+        switch (state.getStage()) {
+            case RESOLVING:
+                statusView.setText("Preparing " + pkg + " in LogScope... (tap to cancel)");
+                break;
+            case INSTALLING:
+                statusView.setText("Installing " + pkg + " inside LogScope... (tap to cancel)");
+                break;
+            case LAUNCHING:
+                statusView.setText("Launching " + pkg + "...");
+                break;
+            case LAUNCHED:
+                statusView.setText("Running " + pkg);
+                break;
+            case CANCELLED:
+                statusView.setText("Cancelled " + pkg);
+                break;
+            case FAILED:
+                statusView.setText(pkg + ": " + state.getMessage());
+                break;
+        }
+        statusView.setOnClickListener(state.isFinished()
+                ? v -> statusView.setVisibility(View.GONE)
+                : v -> viewModel.cancelLaunch(pkg));
+    }
+
+    /**
+     * Long press: कैप्चर हो रहे लॉग्स को लाइव देखना
+     */
+    private void openLogViewer(AppInfo app) {
+        Intent intent = new Intent(this, LogViewerActivity.class);
+        intent.putExtra(LogViewerActivity.EXTRA_PACKAGE, app.getPackageName());
+        startActivity(intent);
     }
 
     /**
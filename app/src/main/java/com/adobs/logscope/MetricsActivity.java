@@ -0,0 +1,48 @@
+package com.adobs.logscope;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.adobs.logscope.core.CaptureSettings;
+import com.adobs.logscope.viewmodels.MetricsViewModel;
+
+/**
+ * Capture overhead of one package as measured by LogMetrics, refreshed while open.
+ * Metrics and collapsing of repeated lines (which shows up here as "Collapsed
+ * repeats") are off by default; the switches turn them on from the package's next launch.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    public static final String EXTRA_PACKAGE = "com.adobs.logscope.extra.PACKAGE";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        String packageName = getIntent().getStringExtra(EXTRA_PACKAGE);
+        if (packageName == null) {
+            finish();
+            return;
+        }
+        setTitle(packageName);
+
+        CaptureSettings settings = new CaptureSettings(this);
+        SwitchCompat switchRecord = findViewById(R.id.switchRecordMetrics);
+        switchRecord.setChecked(settings.isMetricsEnabled(packageName));
+        switchRecord.setOnCheckedChangeListener((button, checked) -> settings.setMetricsEnabled(packageName, checked));
+        SwitchCompat switchCollapse = findViewById(R.id.switchCollapseRepeats);
+        switchCollapse.setChecked(settings.isCollapseRepeats(packageName));
+        switchCollapse.setOnCheckedChangeListener(
+                (button, checked) -> settings.setCollapseRepeats(packageName, checked));
+
+        TextView tvMetrics = findViewById(R.id.tvMetrics);
+        MetricsViewModel viewModel = new ViewModelProvider(this).get(MetricsViewModel.class);
+        viewModel.open(packageName);
+        viewModel.getMetrics().observe(this, tvMetrics::setText);
+    }
+}
@@ -1,5 +1,6 @@
 package com.adobs.logscope.adapters;
 
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,42 +8,87 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.adobs.logscope.R;
+import com.adobs.logscope.icons.IconLoader;
+import com.adobs.logscope.icons.LazyLoader;
 import com.adobs.logscope.models.AppInfo;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.ViewHolder> {
+/**
+ * Updates come in through submitList(); DiffUtil runs on a background thread and
+ * only the rows that changed are rebound, so scroll position and view holders survive.
+ */
+public class AppListAdapter extends ListAdapter<AppInfo, AppListAdapter.ViewHolder> {
 
-    private final List<AppInfo> appList;
+    private static final DiffUtil.ItemCallback<AppInfo> DIFF = new DiffUtil.ItemCallback<AppInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AppInfo oldItem, @NonNull AppInfo newItem) {
+            return oldItem.getPackageName().equals(newItem.getPackageName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AppInfo oldItem, @NonNull AppInfo newItem) {
+            return oldItem.getAppName().equals(newItem.getAppName())
+                    && oldItem.getLastUpdateTime() == newItem.getLastUpdateTime();
+        }
+    };
+
+    // Stable IDs per package for as long as the adapter lives (main thread only)
+    private final Map<String, Long> itemIds = new HashMap<>();
     private final OnAppClickListener listener;
+    private final OnAppClickListener longClickListener;
+    private IconLoader iconLoader;
 
     // Interface for Click Event
     public interface OnAppClickListener {
         void onAppClick(AppInfo app);
     }
 
-    public AppListAdapter(List<AppInfo> appList, OnAppClickListener listener) {
-        this.appList = appList;
+    public AppListAdapter(OnAppClickListener listener) {
+        this(listener, null);
+    }
+
+    public AppListAdapter(OnAppClickListener listener, OnAppClickListener longClickListener) {
+        super(DIFF);
         this.listener = listener;
+        this.longClickListener = longClickListener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String packageName = getItem(position).getPackageName();
+        Long id = itemIds.get(packageName);
+        if (id == null) {
+            id = (long) itemIds.size();
+            itemIds.put(packageName, id);
+        }
+        return id;
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (iconLoader == null) {
+            iconLoader = IconLoader.get(parent.getContext());
+        }
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_app, parent, false);
         return new ViewHolder(view);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        AppInfo app = appList.get(position);
+        AppInfo app = getItem(position);
         
         holder.tvAppName.setText(app.getAppName());
         holder.tvPackageName.setText(app.getPackageName());
-        holder.imgIcon.setImageDrawable(app.getIcon());
+        bindIcon(holder, app.getPackageName());
 
         // Click Listener Setup
         holder.itemView.setOnClickListener(v -> {
@@ -50,16 +96,45 @@ public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.ViewHold
                 listener.onAppClick(app);
             }
         });
+        holder.itemView.setOnLongClickListener(v -> {
+            if (longClickListener == null) return false;
+            longClickListener.onAppClick(app);
+            return true;
+        });
     }
 
     @Override
-    public int getItemCount() {
-        return appList.size();
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        cancelIcon(holder);
+    }
+
+    /**
+     * Shows the icon from memory, or the default icon until it has loaded. The
+     * request of the row this holder showed before is cancelled first, so a late
+     * icon never lands in a reused row.
+     */
+    private void bindIcon(ViewHolder holder, String packageName) {
+        cancelIcon(holder);
+        Bitmap cached = iconLoader.getCached(packageName);
+        if (cached != null) {
+            holder.imgIcon.setImageBitmap(cached);
+            return;
+        }
+        holder.imgIcon.setImageResource(android.R.drawable.sym_def_app_icon);
+        holder.iconRequest = iconLoader.load(packageName, holder.imgIcon::setImageBitmap);
+    }
+
+    private static void cancelIcon(ViewHolder holder) {
+        if (holder.iconRequest != null) {
+            holder.iconRequest.cancel();
+            holder.iconRequest = null;
+        }
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvAppName, tvPackageName;
         ImageView imgIcon;
+        LazyLoader.Request iconRequest;
 
         public ViewHolder(@NonNull View itemView) {
             super(itemView);
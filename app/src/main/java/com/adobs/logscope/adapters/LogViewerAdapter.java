@@ -0,0 +1,130 @@
+package com.adobs.logscope.adapters;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.adobs.logscope.R;
+import com.adobs.logscope.core.SegmentPager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Binds records straight from the SegmentPager's page cache. A row whose page
+ * is not in memory shows a placeholder and asks for the page once; when it
+ * arrives only that page's rows are rebound. Nothing is copied into the adapter.
+ */
+public class LogViewerAdapter extends RecyclerView.Adapter<LogViewerAdapter.ViewHolder> {
+
+    private static final int COLOR_ERROR = Color.rgb(0xC6, 0x28, 0x28);
+    private static final int COLOR_WARN = Color.rgb(0xEF, 0x6C, 0x00);
+    private static final int COLOR_DEBUG = Color.GRAY;
+    private static final int COLOR_DEFAULT = Color.BLACK;
+
+    private final SegmentPager pager;
+    private final PageLoader loader;
+
+    // Main thread only
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private int itemCount;
+
+    // Interface for background page reads
+    public interface PageLoader {
+        void loadPage(SegmentPager pager, int page, Runnable onLoaded);
+    }
+
+    public LogViewerAdapter(SegmentPager pager, PageLoader loader) {
+        this.pager = pager;
+        this.loader = loader;
+    }
+
+    public SegmentPager getPager() {
+        return pager;
+    }
+
+    /**
+     * Picks up records indexed since the last call. The previously last record may
+     * have grown (e.g. its stack trace was still being written), so it is rebound too.
+     */
+    public void refreshCount() {
+        int count = pager.getRecordCount();
+        if (count <= itemCount) return;
+        int previous = itemCount;
+        itemCount = count;
+        if (previous > 0) {
+            notifyItemChanged(previous - 1);
+        }
+        notifyItemRangeInserted(previous, count - previous);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_log, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        String record = pager.getCached(position);
+        if (record == null) {
+            holder.tvRecord.setText("…");
+            holder.tvRecord.setTextColor(COLOR_DEBUG);
+            requestPage(SegmentPager.pageOf(position));
+            return;
+        }
+        holder.tvRecord.setText(record);
+        holder.tvRecord.setTextColor(colorOf(record));
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    private void requestPage(int page) {
+        if (!pendingPages.add(page)) return;
+        loader.loadPage(pager, page, () -> {
+            pendingPages.remove(page);
+            int first = page * SegmentPager.PAGE_SIZE;
+            if (first < itemCount) {
+                notifyItemRangeChanged(first, Math.min(SegmentPager.PAGE_SIZE, itemCount - first));
+            }
+        });
+    }
+
+    /**
+     * Level letter of "HH:mm:ss.SSS [thread#id] : [L/tag] msg"; session lines have none.
+     */
+    private static int colorOf(String record) {
+        int bracket = record.indexOf(" : [");
+        if (bracket < 0 || bracket + 5 >= record.length()) return COLOR_DEFAULT;
+        switch (record.charAt(bracket + 4)) {
+            case 'E':
+                return COLOR_ERROR;
+            case 'W':
+                // "WTF/" is as severe as an error
+                return record.charAt(bracket + 5) == 'T' ? COLOR_ERROR : COLOR_WARN;
+            case 'D':
+            case 'V':
+                return COLOR_DEBUG;
+            default:
+                return COLOR_DEFAULT;
+        }
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvRecord;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvRecord = itemView.findViewById(R.id.tvRecord);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.adobs.logscope.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body of the "LogScope-AsyncWriter" thread.
+ * Drains the ring in batches and flushes on whichever comes first:
+ * N records, M bytes or T milliseconds since the first unflushed record.
+ * Segment rotation, DROP_OLDEST shedding and drop summaries also happen here,
+ * between records. In ProducerMode.THREAD_LOCAL the writer also sweeps and
+ * merges per-thread chunks. Every written record is mirrored into the
+ * CrashRegion, if there is one, and added to the segment's SegmentIndex, which
+ * is written next to the segment when it is closed. LogMetrics, if enabled, is
+ * fed from here and snapshotted on this thread as well. With a BurstCollapser,
+ * repeats of recent lines are counted instead of written, and summarised on
+ * every flush and before a segment ends.
+ *
+ * A process forwarding to a LogCollector has no segments: the sink is the
+ * collector stream and there is nothing to rotate or index. If that stream
+ * breaks, the writer opens the Output's fallback (local segments), writes a
+ * marker line saying how many unflushed records went with the connection, and
+ * carries on there.
+ *
+ * Where records go is opened by an Opener on this thread, before the first
+ * drain, so LogManager.init never waits for the disk or the collector. Records
+ * logged meanwhile wait in the ring and are written, in order, once it is open.
+ */
+final class AsyncLogWriter implements Runnable {
+
+    private static final String TAG = "LogManager";
+
+    private static final int DRAIN_BATCH = 256;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    interface Opener {
+        /** Runs on the writer thread; the writer exits without writing anything if it throws. */
+        Output open() throws IOException;
+    }
+
+    static final class Output {
+        final LogSegments segments;     // null when forwarding to a collector
+        final LogSink sink;
+        final CrashRegion crashRegion;  // null if disabled
+        final Opener fallback;          // null unless forwarding to a collector
+
+        Output(LogSegments segments, LogSink sink, CrashRegion crashRegion) {
+            this(segments, sink, crashRegion, null);
+        }
+
+        /**
+         * @param fallback opens local segments if the collector stream breaks;
+         *                 its crash region is ignored, the session keeps this one
+         */
+        Output(LogSegments segments, LogSink sink, CrashRegion crashRegion, Opener fallback) {
+            this.segments = segments;
+            this.sink = sink;
+            this.crashRegion = crashRegion;
+            this.fallback = fallback;
+        }
+    }
+
+    private final LogRingBuffer ring;
+    private final Backpressure backpressure;
+    private final ChunkedProducers producers;   // null unless ProducerMode.THREAD_LOCAL
+    private final LogMetrics metrics;           // null if disabled
+    private final BurstCollapser collapser;     // null if disabled
+    private final TagTable tags;
+    private final LogConfig config;
+    private final Opener opener;
+
+    // Set by open() on the writer thread
+    private LogSegments segments;          // null when forwarding to a collector
+    private CrashRegion crashRegion;      // null if disabled
+    private SegmentIndex.Builder index;   // null if disabled
+    private LogSink sink;
+    private RecordEncoder encoder;
+    private Opener fallback;              // null once used, or when writing segments
+
+    private final LogRingBuffer.Handler handler = this::writeRecord;
+    private final LogRingBuffer.Handler writeThrough = this::writeOut;
+
+    private final int flushRecords;
+    private final int flushBytes;
+    private final long flushIntervalNanos;
+    private final long dropReportIntervalMillis;
+    private final long chunkIntervalNanos;
+    private long nextSweepNanos;
+
+    // Internal lines (drop summaries) bypass the ring, which may be the thing that is full
+    private final LogRecord internalRecord = new LogRecord();
+    private final StringBuilder internalLine = new StringBuilder(128);
+    private long lastDropReportMillis = System.currentTimeMillis();
+
+    private volatile boolean running = true;
+    private volatile long drainDeadlineNanos;
+
+    // Writer-thread state for the flush policy
+    private int pendingRecords;
+    private long pendingBytes;
+    private long firstPendingNanos;
+    private long segmentBytes;
+    private long bytesWritten;
+
+    // bytesWritten as of the last drained batch, for other threads
+    private volatile long publishedBytes;
+
+    /**
+     * For an output that is already open.
+     */
+    AsyncLogWriter(LogRingBuffer ring, Backpressure backpressure, ChunkedProducers producers,
+                   LogSegments segments, LogSink sink, CrashRegion crashRegion, TagTable tags, LogMetrics metrics,
+                   LogConfig config) {
+        this(ring, backpressure, producers, tags, metrics, config, () -> new Output(segments, sink, crashRegion));
+    }
+
+    AsyncLogWriter(LogRingBuffer ring, Backpressure backpressure, ChunkedProducers producers, TagTable tags,
+                   LogMetrics metrics, LogConfig config, Opener opener) {
+        this.ring = ring;
+        this.backpressure = backpressure;
+        this.producers = producers;
+        this.tags = tags;
+        this.metrics = metrics;
+        this.config = config;
+        this.opener = opener;
+        this.collapser = config.getCollapseWindow() > 0 ? new BurstCollapser(config.getCollapseWindow(), tags) : null;
+        this.flushRecords = config.getFlushRecords();
+        this.flushBytes = config.getFlushBytes();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        this.dropReportIntervalMillis = config.getDropReportIntervalMillis();
+        this.chunkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getChunkIntervalMillis());
+    }
+
+    /**
+     * The thread exits once the ring is drained, or at drainDeadlineNanos (System.nanoTime)
+     * with whatever is left counted as abandoned. Never interrupt the writer
+     * instead: an interrupt closes the ChannelSink's FileChannel mid-write.
+     */
+    void stop(long drainDeadlineNanos) {
+        this.drainDeadlineNanos = drainDeadlineNanos;
+        running = false;
+        ring.wakeUp();
+    }
+
+    /**
+     * Encoded bytes handed to the sink so far, as of the last drained batch.
+     */
+    long bytesWritten() {
+        return publishedBytes;
+    }
+
+    @Override
+    public void run() {
+        backpressure.onWriterStart(Thread.currentThread());
+        if (!open()) return;
+        try {
+            segmentBytes = encoder.startSegment(sink);
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Disk Write Failed: ", e);
+        }
+
+        nextSweepNanos = System.nanoTime() + chunkIntervalNanos;
+        while (running || (hasQueued() && System.nanoTime() - drainDeadlineNanos < 0)) {
+            try {
+                int shed = ring.shedIfRequested(ring.capacity() / 2, LogLevel.ERROR, handler);
+                if (shed > 0) {
+                    backpressure.onShed(shed);
+                }
+
+                if (metrics != null) {
+                    metrics.queueDepth.record(ring.size());
+                }
+                int drained = ring.drain(handler, DRAIN_BATCH);
+                if (producers != null) {
+                    if (System.nanoTime() - nextSweepNanos >= 0) {
+                        nextSweepNanos = System.nanoTime() + chunkIntervalNanos;
+                        producers.sweep();
+                    }
+                    drained += producers.drain(handler);
+                }
+                publishedBytes = bytesWritten;
+                long now = System.currentTimeMillis();
+                reportDrops(now, false);
+                if (metrics != null) {
+                    if (drained > 0) {
+                        metrics.batchRecords.record(drained);
+                    }
+                    metrics.maybeSnapshot(now, backpressure);
+                }
+
+                if (pendingRecords > 0 && shouldFlush(System.nanoTime())) {
+                    flush();
+                }
+
+                if (segments != null && segments.shouldRotate(segmentBytes, now)) {
+                    rotate();
+                }
+
+                if (drained == 0) {
+                    // Nothing pending: sleep until data arrives. Otherwise wake up by the flush deadline.
+                    long wait = pendingRecords == 0
+                            ? IDLE_WAIT_NANOS
+                            : firstPendingNanos + flushIntervalNanos - System.nanoTime();
+                    if (producers != null) {
+                        wait = Math.min(wait, nextSweepNanos - System.nanoTime());
+                    }
+                    ring.await(wait);
+                }
+            } catch (IOException e) {
+                CoreLog.e(TAG, "Disk Write Failed: ", e);
+            }
+        }
+        try {
+            boolean inTime = System.nanoTime() - drainDeadlineNanos < 0;
+            if (producers != null && inTime) {
+                // Threads that are still alive keep their partly filled chunks until now
+                producers.sweep();
+                producers.drain(handler);
+            }
+            if (hasQueued()) {
+                reportAbandoned();
+            }
+            // Final tally, so drops right before shutdown are not lost
+            reportDrops(System.currentTimeMillis(), true);
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Disk Write Failed: ", e);
+        }
+        closeSilently();
+        publishedBytes = bytesWritten;
+    }
+
+    private boolean open() {
+        long start = System.nanoTime();
+        Output output;
+        try {
+            output = opener.open();
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Error creating log file: ", e);
+            return false;
+        }
+        crashRegion = output.crashRegion;
+        fallback = output.fallback;
+        use(output);
+        if (metrics != null) {
+            metrics.openNanos = System.nanoTime() - start;
+            metrics.bufferedAtOpen = ring.size() + (producers != null ? producers.pendingRecords() : 0);
+        }
+        return true;
+    }
+
+    private void use(Output output) {
+        segments = output.segments;
+        sink = output.sink;
+        encoder = segments != null ? RecordEncoder.create(config, tags) : RecordEncoder.forCollector(tags);
+        index = segments != null && config.getIndexBlockRecords() > 0
+                ? new SegmentIndex.Builder(config.getFormat(), config.getIndexBlockRecords(), tags.getCapacity())
+                : null;
+    }
+
+    /**
+     * The collector stream failed: continues in local segments, once. Records
+     * still in the stream's buffer are gone with the connection and are counted
+     * in a marker line at the start of the new segment.
+     *
+     * @return false if there is no fallback or it could not be opened
+     */
+    private boolean fallBack(IOException failure) {
+        Opener opener = fallback;
+        if (opener == null) return false;
+        fallback = null;
+
+        Output output;
+        try {
+            output = opener.open();
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Local fallback unavailable, records are no longer saved: ", e);
+            return false;
+        }
+        try {
+            sink.close();
+        } catch (IOException ignored) {
+        }
+        if (output.crashRegion != null && output.crashRegion != crashRegion) {
+            output.crashRegion.close();
+        }
+        int lost = pendingRecords;
+        use(output);
+        pendingRecords = 0;
+        pendingBytes = 0;
+        try {
+            segmentBytes = encoder.startSegment(sink);
+            // Not internalRecord: the record that failed may be that one
+            LogRecord marker = new LogRecord();
+            marker.set(System.currentTimeMillis(), LogLevel.WARN, TagTable.NO_ID, null,
+                    "[System] Lost connection to the log collector (" + failure.getMessage() + "), up to " + lost
+                            + " unflushed logs lost; continuing in " + segments.currentFile().getName(),
+                    null, Thread.currentThread());
+            writeOut(marker);
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Disk Write Failed: ", e);
+        }
+        return true;
+    }
+
+    private boolean hasQueued() {
+        return !ring.isEmpty() || (producers != null && !producers.isEmpty());
+    }
+
+    private void reportAbandoned() throws IOException {
+        int abandoned = ring.size() + (producers != null ? producers.pendingRecords() : 0);
+        writeInternal("[System] Shutdown deadline reached, " + abandoned + " queued logs not written");
+    }
+
+    private void reportDrops(long now, boolean force) throws IOException {
+        long interval = now - lastDropReportMillis;
+        if (!force && interval < dropReportIntervalMillis) return;
+        lastDropReportMillis = now;
+
+        internalLine.setLength(0);
+        if (backpressure.appendSummary(internalLine, interval)) {
+            writeInternal(internalLine.toString());
+        }
+    }
+
+    private void writeInternal(String message) throws IOException {
+        internalRecord.set(System.currentTimeMillis(), LogLevel.WARN, TagTable.NO_ID, null, message, null,
+                Thread.currentThread());
+        writeRecord(internalRecord);
+        internalRecord.clear();
+    }
+
+    private void writeRecord(LogRecord record) throws IOException {
+        if (collapser != null && collapser.absorb(record, writeThrough)) {
+            if (metrics != null) {
+                metrics.recordsCollapsed++;
+            }
+            // Counts towards the flush policy, which bounds how late the summary is written
+            if (pendingRecords++ == 0) {
+                firstPendingNanos = System.nanoTime();
+            }
+            return;
+        }
+        writeOut(record);
+    }
+
+    private void writeOut(LogRecord record) throws IOException {
+        long blockOffset = segmentBytes;
+        boolean blockStart = index != null && index.needsBlock();
+        long blockBase = blockStart ? encoder.startBlock() : 0;
+        int bytes;
+        try {
+            bytes = encode(record);
+        } catch (IOException e) {
+            if (!fallBack(e)) throw e;
+            // Encoder, index and offsets are the fallback's now
+            writeOut(record);
+            return;
+        }
+        if (index != null) {
+            if (blockStart) {
+                index.startBlock(blockOffset, blockBase);
+            }
+            index.add(record, record.tag(tags));
+        }
+        if (crashRegion != null) {
+            crashRegion.append(record, tags);
+        }
+        pendingBytes += bytes;
+        segmentBytes += bytes;
+        bytesWritten += bytes;
+        if (metrics != null) {
+            metrics.recordsWritten++;
+            metrics.bytesWritten += bytes;
+        }
+
+        if (pendingRecords++ == 0) {
+            firstPendingNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * The Throwable comes from the app, and its getMessage(), getStackTrace(),
+     * getCause() or toString() may throw. Such a record is written with a
+     * placeholder trace and counted as a drop, so the writer thread survives it.
+     */
+    private int encode(LogRecord record) throws IOException {
+        try {
+            return encoder.encode(record, sink);
+        } catch (RuntimeException e) {
+            if (record.throwable == null) throw e;
+            backpressure.onUnrenderable();
+            record.stackTrace = "<unrenderable throwable: " + record.throwable.getClass().getName() + ">";
+            record.throwable = null;
+            return encoder.encode(record, sink);
+        }
+    }
+
+    private boolean shouldFlush(long now) {
+        return pendingRecords >= flushRecords
+                || pendingBytes >= flushBytes
+                || now - firstPendingNanos >= flushIntervalNanos;
+    }
+
+    private void flush() throws IOException {
+        if (collapser != null) {
+            collapser.emitAll(writeThrough);
+        }
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            flushSink();
+        } finally {
+            pendingRecords = 0;
+            pendingBytes = 0;
+        }
+        if (metrics != null) {
+            metrics.flushNanos.record(System.nanoTime() - start);
+        }
+    }
+
+    private void flushSink() throws IOException {
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            if (!fallBack(e)) throw e;
+            sink.flush();
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (collapser != null) {
+            // Summaries belong to the segment whose lines they repeat
+            collapser.emitAll(writeThrough);
+            collapser.reset();
+        }
+        // Closing the segment flushes it, so the pending counters start over
+        pendingRecords = 0;
+        pendingBytes = 0;
+        File closed = segments.currentFile();
+        long closedBytes = segmentBytes;
+        sink = segments.rotate();
+        segmentBytes = encoder.startSegment(sink);
+        writeIndex(closed, closedBytes);
+    }
+
+    private void writeIndex(File segment, long endOffset) {
+        if (index == null) return;
+        try {
+            index.finish(segment, endOffset);
+        } catch (IOException e) {
+            // Searches fall back to a full scan of this segment
+            CoreLog.e(TAG, "Segment index failed: " + segment.getName(), e);
+        }
+    }
+
+    private void closeSilently() {
+        if (collapser != null) {
+            try {
+                collapser.emitAll(writeThrough);
+            } catch (IOException e) {
+                CoreLog.e(TAG, "Disk Write Failed: ", e);
+            }
+        }
+        try {
+            if (segments != null) {
+                segments.close();
+                writeIndex(segments.currentFile(), segmentBytes);
+            } else {
+                sink.close();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            if (crashRegion != null) {
+                crashRegion.close();
+            }
+            if (metrics != null) {
+                metrics.snapshot(System.currentTimeMillis(), backpressure);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Producer side of LogManager.write: applies the overflow policy and counts
+ * every record that does not make it into the ring. Never logs through
+ * android.util.Log itself, since inside a virtual process that call would be
+ * hooked and re-enter the full ring.
+ *
+ * The writer thread's own logs (I/O errors reported through CoreLog) come back
+ * here through the hook too. Only the writer drains the ring, so for it a full
+ * ring is always a drop: it never waits for room or for a shed.
+ */
+final class Backpressure {
+
+    // SAMPLE kicks in above this fill ratio
+    private static final int HIGH_WATER_PERCENT = 75;
+    private static final int SHED_RETRIES = 64;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LogRingBuffer ring;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final int highWater;
+    private final long blockCriticalNanos;
+
+    // LongAdder: many app threads may drop at once without contending on one counter
+    private final LongAdder droppedNewest = new LongAdder();
+    private final LongAdder droppedOldest = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder criticalTimeouts = new LongAdder();
+    // Written as a placeholder line, not with the record's trace
+    private final LongAdder unrenderable = new LongAdder();
+
+    private volatile Thread writer;
+
+    // Writer thread only: totals already reported
+    private long reportedNewest;
+    private long reportedOldest;
+    private long reportedSampled;
+    private long reportedTimeouts;
+    private long reportedUnrenderable;
+
+    Backpressure(LogRingBuffer ring, LogConfig config) {
+        this.ring = ring;
+        this.policy = config.getOverflowPolicy();
+        this.sampleRate = config.getSampleRate();
+        this.highWater = (int) ((long) ring.capacity() * HIGH_WATER_PERCENT / 100);
+        this.blockCriticalNanos = TimeUnit.MILLISECONDS.toNanos(config.getBlockCriticalMillis());
+    }
+
+    /**
+     * Called on app threads. Returns false if the record was dropped (and counted).
+     */
+    boolean publish(long timestamp, byte level, int tagId, String tag, String message, Throwable throwable,
+                    Thread thread) {
+        boolean critical = level >= LogLevel.ERROR;
+
+        if (policy == OverflowPolicy.SAMPLE && !critical && ring.size() > highWater
+                && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOut.increment();
+            return false;
+        }
+
+        if (ring.tryPublish(timestamp, level, tagId, tag, message, throwable, thread)) {
+            return true;
+        }
+
+        if (thread == writer) {
+            droppedNewest.increment();
+            return false;
+        }
+
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            ring.requestShed();
+            for (int i = 0; i < SHED_RETRIES; i++) {
+                Thread.yield();
+                if (ring.tryPublish(timestamp, level, tagId, tag, message, throwable, thread)) {
+                    return true;
+                }
+            }
+        }
+
+        if (critical && blockCriticalNanos > 0) {
+            long deadline = System.nanoTime() + blockCriticalNanos;
+            // Difference, not comparison: nanoTime may wrap
+            while (deadline - System.nanoTime() > 0) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (ring.tryPublish(timestamp, level, tagId, tag, message, throwable, thread)) {
+                    return true;
+                }
+            }
+            criticalTimeouts.increment();
+            return false;
+        }
+
+        droppedNewest.increment();
+        return false;
+    }
+
+    /**
+     * Called by LogCollector's merge thread. Unlike an app thread it may wait for
+     * the writer: while it waits the collector's heap fills up and the sockets
+     * push back on the processes, whose own policies then apply. The wait is
+     * bounded so a writer that stopped draining cannot stall the collector for
+     * good; after it the record is dropped (or the oldest are shed) and counted.
+     */
+    boolean publishMerged(LogEntry entry, int tagId, String tag, String process, long maxWaitNanos) {
+        if (ring.tryPublish(entry, tagId, tag, process)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (deadline - System.nanoTime() > 0) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (ring.tryPublish(entry, tagId, tag, process)) {
+                return true;
+            }
+        }
+
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            ring.requestShed();
+            for (int i = 0; i < SHED_RETRIES; i++) {
+                Thread.yield();
+                if (ring.tryPublish(entry, tagId, tag, process)) {
+                    return true;
+                }
+            }
+        }
+        if (entry.getLevel() >= LogLevel.ERROR) {
+            criticalTimeouts.increment();
+        } else {
+            droppedNewest.increment();
+        }
+        return false;
+    }
+
+    /**
+     * Called by the writer thread before it drains anything.
+     */
+    void onWriterStart(Thread thread) {
+        writer = thread;
+    }
+
+    /**
+     * ProducerMode.THREAD_LOCAL: a record found no free chunk.
+     */
+    void onChunkOverflow() {
+        droppedNewest.increment();
+    }
+
+    /**
+     * Writer thread: records discarded by LogRingBuffer.shedIfRequested().
+     */
+    void onShed(int count) {
+        droppedOldest.add(count);
+    }
+
+    /**
+     * Writer thread: a record whose Throwable threw while being rendered.
+     */
+    void onUnrenderable() {
+        unrenderable.increment();
+    }
+
+    long totalDropped() {
+        return droppedNewest.sum() + droppedOldest.sum() + sampledOut.sum() + criticalTimeouts.sum()
+                + unrenderable.sum();
+    }
+
+    /**
+     * Totals since init by cause, for LogMetrics.
+     */
+    void appendTotals(StringBuilder out) {
+        out.append("queue full: ").append(droppedNewest.sum())
+                .append(", oldest shed: ").append(droppedOldest.sum())
+                .append(", sampled out: ").append(sampledOut.sum())
+                .append(", critical timeout: ").append(criticalTimeouts.sum())
+                .append(", unrenderable: ").append(unrenderable.sum());
+    }
+
+    /**
+     * Writer thread: appends a one-line summary of drops since the last call.
+     *
+     * @return false (and appends nothing) if nothing was dropped since then
+     */
+    boolean appendSummary(StringBuilder out, long intervalMillis) {
+        long newest = droppedNewest.sum();
+        long oldest = droppedOldest.sum();
+        long sampled = sampledOut.sum();
+        long timeouts = criticalTimeouts.sum();
+        long failed = unrenderable.sum();
+
+        long dNewest = newest - reportedNewest;
+        long dOldest = oldest - reportedOldest;
+        long dSampled = sampled - reportedSampled;
+        long dTimeouts = timeouts - reportedTimeouts;
+        long dFailed = failed - reportedUnrenderable;
+        long total = dNewest + dOldest + dSampled + dTimeouts + dFailed;
+        if (total == 0) return false;
+
+        reportedNewest = newest;
+        reportedOldest = oldest;
+        reportedSampled = sampled;
+        reportedTimeouts = timeouts;
+        reportedUnrenderable = failed;
+
+        out.append("[System] Dropped ").append(total).append(" logs in the last ")
+                .append(intervalMillis / 1000).append("s (queue full: ").append(dNewest)
+                .append(", oldest shed: ").append(dOldest)
+                .append(", sampled out: ").append(dSampled)
+                .append(", critical timeout: ").append(dTimeouts)
+                .append(", unrenderable: ").append(dFailed).append(')');
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.adobs.logscope.core;
+
+/**
+ * Layout of .lsb segments.
+ *
+ * <pre>
+ * header : "LSB" version(1) baseTimestamp(8, big-endian)
+ * TAG    : 0x01 varint(id) varint(len) utf8      -- dictionary entry, repeated in every segment
+ * THREAD : 0x03 varint(threadId) varint(len) utf8 -- (re)defines a thread name, version 2+
+ * PROCESS: 0x04 varint(len) utf8                  -- process of the following records (empty = none), version 3+
+ * RECORD : 0x02 zigzag-varint(ts - previous ts) level(1) varint(tagId, 0 = none)
+ *               [varint(threadId), version 2+]
+ *               varint(len) utf8(message) varint(len, 0 = none) utf8(stack trace)
+ * </pre>
+ *
+ * Tag ids are the process-wide TagTable ids; tags that did not fit the table get
+ * ids above its capacity. A TAG entry always precedes the first RECORD that
+ * references it in the same segment, so a reader only needs that segment. The
+ * same holds for THREAD entries, which are written again whenever a thread is
+ * renamed. When the segment is indexed, both are also repeated at the start of
+ * every index block, so decoding can begin at any block offset. PROCESS entries
+ * only appear in captures merged by a LogCollector; the same holds for them.
+ */
+final class BinaryLogFormat {
+
+    static final byte[] MAGIC = {'L', 'S', 'B'};
+    static final byte VERSION = 3;
+    static final byte VERSION_NO_THREADS = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1 + 8;
+
+    static final byte TYPE_TAG = 0x01;
+    static final byte TYPE_RECORD = 0x02;
+    static final byte TYPE_THREAD = 0x03;
+    static final byte TYPE_PROCESS = 0x04;
+
+    static final int NO_TAG = 0;
+
+    private BinaryLogFormat() {}
+
+    static int putVarint(byte[] dst, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            dst[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dst[offset++] = (byte) value;
+        return offset;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
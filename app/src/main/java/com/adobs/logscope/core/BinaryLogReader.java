@@ -0,0 +1,149 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams LogEntries out of a .lsb segment (plain or .gz) one at a time.
+ * Memory stays constant regardless of file size: only the segment's tag
+ * dictionary and one message buffer are kept.
+ */
+public final class BinaryLogReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream in;
+    private final List<String> tags = new ArrayList<>();
+    private final Map<Long, String> threads = new HashMap<>();
+    private String process;
+    private int version;
+    private byte[] bytes = new byte[1024];
+    private long previousTimestamp;
+
+    public BinaryLogReader(File file) throws IOException {
+        InputStream raw = new FileInputStream(file);
+        if (file.getName().endsWith(LogSegments.COMPRESSED_SUFFIX)) {
+            raw = new GZIPInputStream(raw, BUFFER_SIZE);
+        }
+        this.in = new DataInputStream(new BufferedInputStream(raw, BUFFER_SIZE));
+        readHeader();
+    }
+
+    /**
+     * Reads a whole .lsb stream (header included) from a source other than a file,
+     * e.g. a process forwarding its records to a LogCollector.
+     */
+    BinaryLogReader(InputStream stream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+        readHeader();
+    }
+
+    /**
+     * Reads records starting at an index block (see SegmentIndex): no header, and
+     * the first timestamp delta is relative to the block's base timestamp.
+     */
+    BinaryLogReader(InputStream blocks, long baseTimestamp) {
+        this.in = new DataInputStream(blocks);
+        this.version = BinaryLogFormat.VERSION;
+        this.previousTimestamp = baseTimestamp;
+    }
+
+    /**
+     * @return the next entry, or null at the end of the segment. A record cut
+     * off by a crash or a still-open segment also ends the stream.
+     */
+    public LogEntry next() throws IOException {
+        try {
+            while (true) {
+                int type = in.read();
+                if (type == -1) return null;
+
+                if (type == BinaryLogFormat.TYPE_TAG) {
+                    int id = (int) readVarint();
+                    String tag = readString();
+                    // Ids arrive in first-use order, not ascending, and leave gaps (TagTable
+                    // ids of tags this segment never uses, overflow ids above its capacity):
+                    // the null padding is what keeps them addressable by index
+                    while (tags.size() < id) tags.add(null);
+                    tags.set(id - 1, tag);
+                } else if (type == BinaryLogFormat.TYPE_THREAD) {
+                    long threadId = readVarint();
+                    threads.put(threadId, readString());
+                } else if (type == BinaryLogFormat.TYPE_PROCESS) {
+                    String name = readString();
+                    process = name.isEmpty() ? null : name;
+                } else if (type == BinaryLogFormat.TYPE_RECORD) {
+                    long timestamp = previousTimestamp + BinaryLogFormat.unzigzag(readVarint());
+                    previousTimestamp = timestamp;
+                    int level = in.readByte();
+                    int tagId = (int) readVarint();
+                    long threadId = version > BinaryLogFormat.VERSION_NO_THREADS ? readVarint() : 0;
+                    String message = readString();
+                    String trace = readString();
+
+                    String tag = tagId == BinaryLogFormat.NO_TAG ? null : tags.get(tagId - 1);
+                    return new LogEntry(timestamp, threadId, threads.get(threadId), level, tag, message,
+                            trace.isEmpty() ? null : trace, process);
+                } else {
+                    throw new IOException("Corrupt segment: unknown entry type " + type);
+                }
+            }
+        } catch (EOFException truncated) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = new byte[BinaryLogFormat.MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != BinaryLogFormat.MAGIC[i]) {
+                throw new IOException("Not a LogScope binary segment");
+            }
+        }
+        version = in.readByte();
+        if (version < BinaryLogFormat.VERSION_NO_THREADS || version > BinaryLogFormat.VERSION) {
+            throw new IOException("Unsupported segment version " + version);
+        }
+        previousTimestamp = in.readLong();
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt segment: varint too long");
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarint();
+        if (length == 0) return "";
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes records in the .lsb layout (see BinaryLogFormat).
+ * Each record is assembled in a reused byte[] and handed to the sink in one call.
+ */
+final class BinaryRecordEncoder implements RecordEncoder {
+
+    // Worst case for type byte, varints and level of one record
+    private static final int RECORD_OVERHEAD = 1 + 10 + 1 + 5 + 10 + 5 + 5;
+
+    private final TagTable tags;
+    private final StackTraceCache stackTraces;
+
+    // Table ids already defined in the current segment (or index block)
+    private final boolean[] definedIds;
+
+    // Tags that overflowed the TagTable, numbered above its capacity
+    private final Map<String, Integer> overflowIds = new HashMap<>();
+
+    // Thread names defined in the current segment; the last one is checked first
+    // since consecutive records usually come from the same thread
+    private final Map<Long, String> definedThreads = new HashMap<>();
+    private long lastThreadId = -1;
+    private String lastThreadName;
+
+    // Process of the records last written; only LogCollector sessions have one
+    private String lastProcess;
+    private boolean blockStart;
+
+    private final int[] position = new int[1];
+    private byte[] scratch = new byte[1024];
+    private long previousTimestamp;
+
+    BinaryRecordEncoder(TagTable tags, StackTraceCache stackTraces) {
+        this.tags = tags;
+        this.stackTraces = stackTraces;
+        this.definedIds = new boolean[tags.getCapacity() + 1];
+    }
+
+    @Override
+    public int startSegment(LogSink sink) throws IOException {
+        startBlock();
+        lastProcess = null;
+        stackTraces.reset();
+        previousTimestamp = System.currentTimeMillis();
+
+        byte[] header = new byte[BinaryLogFormat.HEADER_SIZE];
+        System.arraycopy(BinaryLogFormat.MAGIC, 0, header, 0, BinaryLogFormat.MAGIC.length);
+        header[BinaryLogFormat.MAGIC.length] = BinaryLogFormat.VERSION;
+        for (int i = 0; i < 8; i++) {
+            header[header.length - 1 - i] = (byte) (previousTimestamp >>> (8 * i));
+        }
+        sink.appendBytes(header, 0, header.length);
+        return header.length;
+    }
+
+    /**
+     * Forgets which tags and threads were defined, so they are written again before
+     * their next use and the block decodes on its own.
+     */
+    @Override
+    public long startBlock() {
+        Arrays.fill(definedIds, false);
+        overflowIds.clear();
+        definedThreads.clear();
+        lastThreadId = -1;
+        lastThreadName = null;
+        blockStart = true;
+        return previousTimestamp;
+    }
+
+    @Override
+    public int encode(LogRecord record, LogSink sink) throws IOException {
+        // Rendering may throw (see StackTraceCache.render), so it runs before anything reaches the sink
+        CharSequence trace = record.throwable != null ? stackTraces.render(record.throwable)
+                : record.stackTrace != null ? stackTraces.render(record.stackTrace) : null;
+        int bytes = 0;
+        int tagId = BinaryLogFormat.NO_TAG;
+
+        if (record.tagId != TagTable.NO_ID) {
+            tagId = record.tagId;
+            if (!definedIds[tagId]) {
+                definedIds[tagId] = true;
+                bytes += writeTag(tagId, tags.name(tagId), sink);
+            }
+        } else if (record.tag != null) {
+            Integer id = overflowIds.get(record.tag);
+            if (id == null) {
+                id = tags.getCapacity() + overflowIds.size() + 1;
+                overflowIds.put(record.tag, id);
+                bytes += writeTag(id, record.tag, sink);
+            }
+            tagId = id;
+        }
+
+        if (record.threadId != lastThreadId || record.threadName != lastThreadName) {
+            bytes += defineThread(record.threadId, record.threadName, sink);
+        }
+
+        // A block is read from a clean state, where the process is none
+        if (!Objects.equals(record.process, lastProcess) || (blockStart && record.process != null)) {
+            bytes += defineProcess(record.process, sink);
+        }
+        blockStart = false;
+
+        int messageLength = Utf8.encodedLength(record.message);
+        int traceLength = trace != null ? Utf8.encodedLength(trace) : 0;
+        ensureCapacity(RECORD_OVERHEAD + messageLength + traceLength);
+
+        int p = 0;
+        scratch[p++] = BinaryLogFormat.TYPE_RECORD;
+        p = BinaryLogFormat.putVarint(scratch, p, BinaryLogFormat.zigzag(record.timestamp - previousTimestamp));
+        scratch[p++] = record.level;
+        p = BinaryLogFormat.putVarint(scratch, p, tagId);
+        p = BinaryLogFormat.putVarint(scratch, p, record.threadId);
+        p = putString(p, record.message, messageLength);
+        p = trace != null ? putString(p, trace, traceLength) : BinaryLogFormat.putVarint(scratch, p, 0);
+        previousTimestamp = record.timestamp;
+
+        sink.appendBytes(scratch, 0, p);
+        return bytes + p;
+    }
+
+    private int defineThread(long threadId, String threadName, LogSink sink) throws IOException {
+        lastThreadId = threadId;
+        lastThreadName = threadName;
+        String name = threadName != null ? threadName : "";
+        if (name.equals(definedThreads.put(threadId, name))) {
+            return 0;
+        }
+        return writeEntry(BinaryLogFormat.TYPE_THREAD, threadId, name, sink);
+    }
+
+    private int defineProcess(String process, LogSink sink) throws IOException {
+        lastProcess = process;
+        String name = process != null ? process : "";
+        int length = Utf8.encodedLength(name);
+        ensureCapacity(1 + 5 + length);
+
+        int p = 0;
+        scratch[p++] = BinaryLogFormat.TYPE_PROCESS;
+        p = putString(p, name, length);
+        sink.appendBytes(scratch, 0, p);
+        return p;
+    }
+
+    private int writeTag(int id, String tag, LogSink sink) throws IOException {
+        return writeEntry(BinaryLogFormat.TYPE_TAG, id, tag, sink);
+    }
+
+    private int writeEntry(byte type, long id, String value, LogSink sink) throws IOException {
+        int length = Utf8.encodedLength(value);
+        ensureCapacity(1 + 10 + 5 + length);
+
+        int p = 0;
+        scratch[p++] = type;
+        p = BinaryLogFormat.putVarint(scratch, p, id);
+        p = putString(p, value, length);
+        sink.appendBytes(scratch, 0, p);
+        return p;
+    }
+
+    private int putString(int offset, CharSequence value, int encodedLength) {
+        int p = BinaryLogFormat.putVarint(scratch, offset, encodedLength);
+        Utf8.encode(value, 0, scratch, p, p + encodedLength, position);
+        return position[0];
+    }
+
+    private void ensureCapacity(int size) {
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, scratch.length * 2)];
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.adobs.logscope.core;
+
+import java.lang.reflect.Method;
+
+import top.niunaijun.blackbox.BlackBoxCore;
+import top.niunaijun.blackbox.core.hook.MethodHook;
+import top.niunaijun.blackbox.core.hook.MethodHookParam;
+
+/**
+ * Hooks through BlackBox's HookManager, inside a virtual process.
+ */
+final class BlackBoxHookEngine implements HookEngine {
+
+    @Override
+    public void hookAfter(Method method, AfterHook hook) throws Exception {
+        BlackBoxCore.get().getHookManager().addMethodHook(method, new Adapter(hook));
+    }
+
+    private static final class Adapter extends MethodHook {
+        private final AfterHook hook;
+
+        Adapter(AfterHook hook) {
+            this.hook = hook;
+        }
+
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            Object result = hook.afterHookedMethod(param.args);
+            if (result != KEEP_RESULT) {
+                param.setResult(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.adobs.logscope.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import top.niunaijun.blackbox.BlackBoxCore;
+import top.niunaijun.blackbox.entity.pm.InstallResult;
+
+/**
+ * Installs and runs apps in the BlackBox engine as virtual user 0. The device
+ * package's lastUpdateTime at install is kept per package in shared preferences,
+ * since the engine's own package info describes its copy, not the device's.
+ */
+final class BlackBoxLaunchEngine implements LaunchEngine {
+
+    private static final String TAG = "VirtualCore";
+
+    // Default Virtual User
+    private static final int USER_ID = 0;
+
+    private final Context appContext;
+    // Package -> lastUpdateTime of the device package it was installed from
+    private final SharedPreferences installs;
+
+    BlackBoxLaunchEngine(Context appContext) {
+        this.appContext = appContext;
+        this.installs = appContext.getSharedPreferences("engine_installs", Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public String resolveApk(String packageName) throws IOException {
+        ApplicationInfo appInfo;
+        try {
+            appInfo = appContext.getPackageManager().getApplicationInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IOException("Target app is not installed on this device.");
+        }
+        if (appInfo.sourceDir == null) {
+            throw new IOException("APK path not found for " + packageName);
+        }
+        File apkFile = new File(appInfo.sourceDir);
+        if (!apkFile.exists() || !apkFile.canRead()) {
+            throw new IOException("Cannot read APK file.");
+        }
+        return apkFile.getAbsolutePath();
+    }
+
+    @Override
+    public long lastUpdateTime(String packageName) throws IOException {
+        try {
+            return appContext.getPackageManager().getPackageInfo(packageName, 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IOException("Target app is not installed on this device.");
+        }
+    }
+
+    @Override
+    public long installedUpdateTime(String packageName) {
+        if (!BlackBoxCore.get().isInstalled(packageName, USER_ID)) return -1;
+        // Installed before this was recorded: 0 never matches, so it is installed once more
+        return installs.getLong(packageName, 0);
+    }
+
+    @Override
+    public String install(String packageName, String apkPath, long updateTime) {
+        Log.d(TAG, "Installing APK from: " + apkPath);
+        InstallResult result = BlackBoxCore.get().installPackageAsUser(apkPath, USER_ID);
+        if (!result.success) {
+            installs.edit().remove(packageName).apply();
+            return result.msg;
+        }
+        installs.edit().putLong(packageName, updateTime).apply();
+        return null;
+    }
+
+    @Override
+    public boolean launch(String packageName) {
+        startCollector(packageName);
+        return BlackBoxCore.get().launchApk(packageName, USER_ID);
+    }
+
+    /**
+     * All processes of the app log into one merged session written here in the host.
+     * If it cannot start, each process falls back to writing its own files.
+     */
+    private void startCollector(String packageName) {
+        try {
+            LogConfig config = new CaptureSettings(appContext).applyTo(packageName, new LogConfig.Builder()).build();
+            LogCollector.start(packageName, config);
+        } catch (IOException e) {
+            Log.e(TAG, "Log collector failed to start for " + packageName, e);
+        }
+    }
+}
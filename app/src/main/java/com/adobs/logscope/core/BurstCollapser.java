@@ -0,0 +1,206 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * Collapses bursts of identical records on the writer thread, e.g. an app
+ * stuck in a retry loop logging the same warning thousands of times a second.
+ *
+ * The first occurrence of a line is always written as usual. Repeats of a line
+ * among the last few distinct ones (the window; level, tag, message and process
+ * must match) are only counted, and written as one
+ * "[repeated xN HH:mm:ss.SSS - HH:mm:ss.SSS] message" line when the writer
+ * flushes, when the line leaves the window, or when the segment ends. A single
+ * repeat is written as itself. Errors, assertions and records with a stack
+ * trace are never collapsed, and other lines are never delayed, so everything
+ * that is not a repeat keeps its order.
+ *
+ * Lookups compare a hash of tag and message (String caches its hash) before the
+ * strings themselves. Memory is bounded by the window: it references at most
+ * windowSize messages and never copies one.
+ */
+final class BurstCollapser {
+
+    static final int MAX_WINDOW = 64;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final TagTable tags;
+    private final Entry[] window;
+    private int next;   // slot replaced by the next new line, oldest first
+
+    private final LogRecord summary = new LogRecord();
+    private final StringBuilder text = new StringBuilder(128);
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    BurstCollapser(int windowSize, TagTable tags) {
+        this.tags = tags;
+        this.window = new Entry[windowSize];
+        for (int i = 0; i < windowSize; i++) {
+            window[i] = new Entry();
+        }
+    }
+
+    /**
+     * Counts the record if it repeats a line in the window. Otherwise it takes
+     * the oldest slot, whose pending repeats are written first, and the caller
+     * writes the record itself.
+     *
+     * @return true if the record was counted and must not be written
+     */
+    boolean absorb(LogRecord record, LogRingBuffer.Handler out) throws IOException {
+        if (record.level >= LogLevel.ERROR || record.throwable != null || record.stackTrace != null
+                || record.message == null) {
+            return false;
+        }
+        String tag = record.tag(tags);
+        if (tag == null) return false;   // internal session lines
+
+        int hash = hash(record.level, tag, record.message);
+        for (Entry entry : window) {
+            if (entry.matches(hash, record, tag)) {
+                entry.repeat(record);
+                return true;
+            }
+        }
+
+        Entry oldest = window[next];
+        next = (next + 1) % window.length;
+        emit(oldest, out);
+        oldest.start(hash, record, tag);
+        return false;
+    }
+
+    /**
+     * Writes the pending repeats of every line. The lines stay in the window,
+     * so a burst that continues is counted into the next summary.
+     *
+     * @return number of summary lines written
+     */
+    int emitAll(LogRingBuffer.Handler out) throws IOException {
+        int written = 0;
+        for (Entry entry : window) {
+            if (emit(entry, out)) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Forgets the window, so that a new segment starts with full lines. Call emitAll() first.
+     */
+    void reset() {
+        for (Entry entry : window) {
+            entry.clear();
+        }
+        next = 0;
+    }
+
+    private boolean emit(Entry entry, LogRingBuffer.Handler out) throws IOException {
+        if (entry.repeats == 0) return false;
+
+        String message = entry.message;
+        if (entry.repeats > 1) {
+            text.setLength(0);
+            text.append("[repeated x").append(entry.repeats).append(' ');
+            appendTime(entry.firstMillis);
+            text.append(" - ");
+            appendTime(entry.lastMillis);
+            text.append("] ").append(message);
+            message = text.toString();
+        }
+        summary.timestamp = entry.lastMillis;
+        summary.level = entry.level;
+        summary.tagId = entry.tagId;
+        summary.tag = entry.tagId == TagTable.NO_ID ? entry.tag : null;
+        summary.message = message;
+        summary.throwable = null;
+        summary.threadId = entry.threadId;
+        summary.threadName = entry.threadName;
+        summary.process = entry.process;
+        summary.stackTrace = null;
+        entry.repeats = 0;
+        try {
+            out.onRecord(summary);
+        } finally {
+            summary.clear();
+        }
+        return true;
+    }
+
+    private static int hash(byte level, String tag, String message) {
+        return (message.hashCode() * 31 + tag.hashCode()) * 31 + level;
+    }
+
+    private void appendTime(long timestamp) {
+        long local = timestamp + timeZone.getOffset(timestamp);
+        int millisOfDay = (int) Math.floorMod(local, MILLIS_PER_DAY);
+        int seconds = millisOfDay / 1000;
+        appendTwoDigits(seconds / 3600);
+        text.append(':');
+        appendTwoDigits((seconds / 60) % 60);
+        text.append(':');
+        appendTwoDigits(seconds % 60);
+        int millis = millisOfDay % 1000;
+        text.append('.')
+                .append((char) ('0' + millis / 100))
+                .append((char) ('0' + (millis / 10) % 10))
+                .append((char) ('0' + millis % 10));
+    }
+
+    private void appendTwoDigits(int value) {
+        text.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static final class Entry {
+        boolean used;
+        int hash;
+        byte level;
+        int tagId;
+        String tag;
+        String message;
+        String process;
+        int repeats;
+        long firstMillis;
+        long lastMillis;
+        long threadId;
+        String threadName;
+
+        boolean matches(int hash, LogRecord record, String tag) {
+            return used && this.hash == hash && level == record.level
+                    && this.tag.equals(tag) && message.equals(record.message)
+                    && (process == null ? record.process == null : process.equals(record.process));
+        }
+
+        void start(int hash, LogRecord record, String tag) {
+            this.used = true;
+            this.hash = hash;
+            this.level = record.level;
+            this.tagId = record.tagId;
+            this.tag = tag;
+            this.message = record.message;
+            this.process = record.process;
+            this.repeats = 0;
+        }
+
+        void repeat(LogRecord record) {
+            if (repeats++ == 0) {
+                firstMillis = record.timestamp;
+            }
+            lastMillis = record.timestamp;
+            threadId = record.threadId;
+            threadName = record.threadName;
+        }
+
+        void clear() {
+            used = false;
+            tag = null;
+            message = null;
+            process = null;
+            threadName = null;
+            repeats = 0;
+        }
+    }
+}
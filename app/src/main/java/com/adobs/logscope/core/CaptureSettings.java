@@ -0,0 +1,58 @@
+package com.adobs.logscope.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-package capture options the user turns on in the UI, kept in the host's
+ * shared preferences. Virtual processes run inside the host app, so each one
+ * reads them when it starts, as does the host's LogCollector: a change applies
+ * from the app's next launch.
+ */
+public final class CaptureSettings {
+
+    private static final String PREFS = "capture_settings";
+    private static final String KEY_METRICS = "metrics:";
+    private static final String KEY_COLLAPSE = "collapse:";
+
+    static final long METRICS_INTERVAL_SECONDS = 10;
+    static final int COLLAPSE_WINDOW = 8;
+
+    private final SharedPreferences prefs;
+
+    public CaptureSettings(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public boolean isMetricsEnabled(String packageName) {
+        return prefs.getBoolean(KEY_METRICS + packageName, false);
+    }
+
+    public void setMetricsEnabled(String packageName, boolean enabled) {
+        prefs.edit().putBoolean(KEY_METRICS + packageName, enabled).apply();
+    }
+
+    /** Repeated lines are written as one "[repeated xN ...]" line (see BurstCollapser). */
+    public boolean isCollapseRepeats(String packageName) {
+        return prefs.getBoolean(KEY_COLLAPSE + packageName, false);
+    }
+
+    public void setCollapseRepeats(String packageName, boolean enabled) {
+        prefs.edit().putBoolean(KEY_COLLAPSE + packageName, enabled).apply();
+    }
+
+    /**
+     * The package's options on top of whatever the builder already holds.
+     */
+    public LogConfig.Builder applyTo(String packageName, LogConfig.Builder builder) {
+        if (isMetricsEnabled(packageName)) {
+            builder.metricsInterval(METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (isCollapseRepeats(packageName)) {
+            builder.collapseWindow(COLLAPSE_WINDOW);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,90 @@
+package com.adobs.logscope.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileChannel sink: lines are encoded straight to UTF-8 bytes (no String or
+ * CharsetEncoder in between) and collected in a large direct ByteBuffer, which
+ * goes to the channel in one write when full or flushed.
+ */
+final class ChannelSink implements LogSink {
+
+    // Small flush thresholds would make this sink pointless, so keep a floor
+    private static final int MIN_BUFFER = 64 * 1024;
+    private static final int STAGING = 8 * 1024;
+
+    private final FileOutputStream stream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    // Encoding into a heap array and bulk-copying beats per-byte puts on a direct buffer
+    private final byte[] staging = new byte[STAGING];
+    private final int[] position = new int[1];
+
+    ChannelSink(File file, int bufferSize) throws IOException {
+        this.stream = new FileOutputStream(file, true);
+        this.channel = stream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER, bufferSize));
+    }
+
+    @Override
+    public int appendLine(CharSequence line) throws IOException {
+        int length = line.length();
+        int written = 0;
+        int next = 0;
+
+        do {
+            next = Utf8.encode(line, next, staging, 0, STAGING - 1, position);
+            int count = position[0];
+            if (next == length) {
+                staging[count++] = '\n';
+            }
+            if (buffer.remaining() < count) {
+                drain();
+            }
+            buffer.put(staging, 0, count);
+            written += count;
+        } while (next < length);
+
+        return written;
+    }
+
+    @Override
+    public void appendBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,210 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ProducerMode.THREAD_LOCAL: each app thread appends to its own LogChunk, so
+ * threads never contend with each other on the hot path. Chunks are handed to
+ * the writer when full, when an E/WTF record arrives, on the writer's sweep
+ * timer and after the owning thread has died. The writer k-way merges all chunks
+ * it picks up in one pass by timestamp.
+ */
+final class ChunkedProducers {
+
+    private static final Comparator<LogChunk> BY_HEAD_TIMESTAMP = (a, b) -> {
+        int order = Long.compare(a.headTimestamp(), b.headTimestamp());
+        return order != 0 ? order : Long.compare(a.handOffOrder, b.handOffOrder);
+    };
+
+    private final int chunkRecords;
+    private final int maxChunks;
+    private final LogRingBuffer ring;
+    private final Backpressure backpressure;
+
+    private final ThreadLocal<ThreadBuffer> local = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread());
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    // New threads register once; the writer walks this on every sweep
+    private final List<ThreadBuffer> buffers = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentLinkedQueue<LogChunk> handedOff = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<LogChunk> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final AtomicLong handOffCounter = new AtomicLong();
+
+    // Set when an E/WTF record forced an early hand-off; the writer then sweeps
+    // first so that record is merged with what other threads logged before it
+    private volatile boolean sweepRequested;
+
+    // Writer thread only
+    private final List<LogChunk> batch = new ArrayList<>();
+    private final PriorityQueue<LogChunk> merge = new PriorityQueue<>(16, BY_HEAD_TIMESTAMP);
+
+    /**
+     * @param maxRecords bound on records buffered across all threads (rounded to whole chunks)
+     * @param ring       only used to wake the writer when a chunk is handed over
+     */
+    ChunkedProducers(int chunkRecords, int maxRecords, LogRingBuffer ring, Backpressure backpressure) {
+        this.chunkRecords = chunkRecords;
+        this.maxChunks = Math.max(1, maxRecords / chunkRecords);
+        this.ring = ring;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Called from any app thread. Only the owner and the writer's sweep ever lock
+     * a ThreadBuffer, so the monitor is almost always uncontended.
+     */
+    boolean append(long timestamp, byte level, int tagId, String tag, String message, Throwable throwable) {
+        ThreadBuffer buffer = local.get();
+        synchronized (buffer) {
+            LogChunk chunk = buffer.chunk;
+            if (chunk == null) {
+                chunk = acquire();
+                if (chunk == null) {
+                    backpressure.onChunkOverflow();
+                    return false;
+                }
+                buffer.chunk = chunk;
+            }
+            chunk.records[chunk.size++].set(timestamp, level, tagId, tag, message, throwable, buffer.owner);
+
+            // Errors should not wait for the sweep: they are often the last thing before a crash
+            if (chunk.isFull() || level >= LogLevel.ERROR) {
+                if (!chunk.isFull()) {
+                    sweepRequested = true;
+                }
+                handOff(buffer);
+                ring.signal();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writer thread: hands over every partly filled chunk and forgets threads that have died.
+     */
+    void sweep() {
+        for (ThreadBuffer buffer : buffers) {
+            synchronized (buffer) {
+                if (buffer.chunk != null && buffer.chunk.size > 0) {
+                    handOff(buffer);
+                }
+            }
+            if (!buffer.owner.isAlive()) {
+                buffers.remove(buffer);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return handedOff.isEmpty();
+    }
+
+    /**
+     * Writer thread: records handed over but not yet drained.
+     */
+    int pendingRecords() {
+        int count = 0;
+        for (LogChunk chunk : handedOff) {
+            count += chunk.size;
+        }
+        return count;
+    }
+
+    /**
+     * Writer thread: merges every chunk handed over so far by timestamp and passes
+     * the records to the handler. Ordering is exact within one call; a chunk handed
+     * over later is merged in the next call.
+     *
+     * @return number of records handled
+     */
+    int drain(LogRingBuffer.Handler handler) throws IOException {
+        if (sweepRequested) {
+            sweepRequested = false;
+            sweep();
+        }
+
+        LogChunk chunk;
+        while ((chunk = handedOff.poll()) != null) {
+            batch.add(chunk);
+        }
+        if (batch.isEmpty()) return 0;
+
+        int count = 0;
+        try {
+            if (batch.size() == 1) {
+                LogChunk only = batch.get(0);
+                for (int i = 0; i < only.size; i++) {
+                    handler.onRecord(only.records[i]);
+                    count++;
+                }
+            } else {
+                merge.addAll(batch);
+                while ((chunk = merge.poll()) != null) {
+                    handler.onRecord(chunk.records[chunk.cursor++]);
+                    count++;
+                    if (chunk.cursor < chunk.size) {
+                        merge.add(chunk);
+                    }
+                }
+            }
+        } finally {
+            merge.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                release(batch.get(i));
+            }
+            batch.clear();
+        }
+        return count;
+    }
+
+    private void handOff(ThreadBuffer buffer) {
+        LogChunk chunk = buffer.chunk;
+        buffer.chunk = null;
+        chunk.handOffOrder = handOffCounter.getAndIncrement();
+        handedOff.offer(chunk);
+    }
+
+    private LogChunk acquire() {
+        LogChunk chunk = free.poll();
+        if (chunk != null) return chunk;
+
+        // Grow lazily up to the bound, so idle threads cost nothing
+        while (true) {
+            int count = allocated.get();
+            if (count >= maxChunks) return null;
+            if (allocated.compareAndSet(count, count + 1)) {
+                return new LogChunk(chunkRecords);
+            }
+        }
+    }
+
+    private void release(LogChunk chunk) {
+        chunk.reset();
+        free.offer(chunk);
+    }
+
+    private static final class ThreadBuffer {
+        final Thread owner;
+        LogChunk chunk;     // guarded by this
+
+        ThreadBuffer(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.adobs.logscope.core;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * How virtual processes reach the LogCollector in the host process.
+ */
+public enum CollectorTransport {
+
+    /**
+     * Unix domain socket in the abstract namespace, named after the collector.
+     * Virtual processes run under the host's uid, so no permission is involved.
+     */
+    LOCAL_SOCKET {
+        @Override
+        Connection connect(String name) throws IOException {
+            LocalSocket socket = new LocalSocket();
+            try {
+                socket.connect(new LocalSocketAddress(name, LocalSocketAddress.Namespace.ABSTRACT));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            return new Connection(socket.getInputStream(), socket.getOutputStream(), socket);
+        }
+
+        @Override
+        Listener listen(String name) throws IOException {
+            LocalServerSocket server = new LocalServerSocket(name);
+            return new Listener() {
+                @Override
+                public Connection accept() throws IOException {
+                    LocalSocket socket = server.accept();
+                    return new Connection(socket.getInputStream(), socket.getOutputStream(), socket);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // close() alone does not wake a thread blocked in accept()
+                    try {
+                        connect(name).close();
+                    } catch (IOException ignored) {
+                    }
+                    server.close();
+                }
+            };
+        }
+    },
+
+    /**
+     * TCP on 127.0.0.1, for running the collector on a plain JVM. The name is the port number.
+     */
+    LOOPBACK {
+        @Override
+        Connection connect(String name) throws IOException {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(name));
+            socket.setTcpNoDelay(true);
+            return new Connection(socket.getInputStream(), socket.getOutputStream(), socket);
+        }
+
+        @Override
+        Listener listen(String name) throws IOException {
+            ServerSocket server = new ServerSocket(Integer.parseInt(name), 16, InetAddress.getLoopbackAddress());
+            return new Listener() {
+                @Override
+                public Connection accept() throws IOException {
+                    Socket socket = server.accept();
+                    return new Connection(socket.getInputStream(), socket.getOutputStream(), socket);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    server.close();
+                }
+            };
+        }
+    };
+
+    abstract Connection connect(String name) throws IOException;
+
+    abstract Listener listen(String name) throws IOException;
+
+    interface Listener extends Closeable {
+        /** Blocks until a process connects; throws once the listener is closed. */
+        Connection accept() throws IOException;
+    }
+
+    static final class Connection implements Closeable {
+        final InputStream in;
+        final OutputStream out;
+        private final Closeable socket;
+
+        Connection(InputStream in, OutputStream out, Closeable socket) {
+            this.in = in;
+            this.out = out;
+            this.socket = socket;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.adobs.logscope.core;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Where the capture path reports its own problems. On a device that is
+ * android.util.Log. On a plain JVM android.util.Log is either missing or a stub
+ * that throws, which would turn every diagnostic into a crash, so messages go
+ * to System.err instead.
+ */
+final class CoreLog {
+
+    private static final boolean ANDROID = hasAndroidLog();
+
+    private CoreLog() {
+    }
+
+    static void d(String tag, String msg) {
+        if (ANDROID) {
+            Log.d(tag, msg);
+        } else {
+            print('D', tag, msg, null);
+        }
+    }
+
+    static void i(String tag, String msg) {
+        if (ANDROID) {
+            Log.i(tag, msg);
+        } else {
+            print('I', tag, msg, null);
+        }
+    }
+
+    static void w(String tag, String msg) {
+        w(tag, msg, null);
+    }
+
+    static void w(String tag, String msg, Throwable tr) {
+        if (ANDROID) {
+            Log.w(tag, msg, tr);
+        } else {
+            print('W', tag, msg, tr);
+        }
+    }
+
+    static void e(String tag, String msg) {
+        e(tag, msg, null);
+    }
+
+    static void e(String tag, String msg, Throwable tr) {
+        if (ANDROID) {
+            Log.e(tag, msg, tr);
+        } else {
+            print('E', tag, msg, tr);
+        }
+    }
+
+    /**
+     * Log.getStackTraceString() on a device, so captured traces read exactly like logcat's.
+     */
+    static String getStackTraceString(Throwable tr) {
+        if (ANDROID) return Log.getStackTraceString(tr);
+        if (tr == null) return "";
+        StringWriter out = new StringWriter(1024);
+        PrintWriter writer = new PrintWriter(out, false);
+        tr.printStackTrace(writer);
+        writer.flush();
+        return out.toString();
+    }
+
+    private static void print(char level, String tag, String msg, Throwable tr) {
+        System.err.println(level + "/" + tag + ": " + msg);
+        if (tr != null) {
+            tr.printStackTrace();
+        }
+    }
+
+    private static boolean hasAndroidLog() {
+        try {
+            Log.isLoggable("LogScope", Log.ERROR);
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+}
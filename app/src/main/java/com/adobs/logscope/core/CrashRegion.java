@@ -0,0 +1,224 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Memory-mapped copy of the last N records the writer handled. The pages belong
+ * to the kernel page cache, so they survive the process being killed even when
+ * the segment's own buffer was never flushed. LogManager.init recovers an
+ * uncleanly closed region into a text file.
+ *
+ * <pre>
+ * header : "LSC" version(1) slotSize(4) slotCount(4) clean(1) sessionLen(1) session(64)
+ * slot   : seq(8, 0 = empty, written last) timestamp(8) threadId(8) level(1)
+ *          threadLen(1) tagLen(2) messageLen(2) utf8(thread, tag, message) -- truncated to fit
+ * </pre>
+ *
+ * Writer thread only, apart from the static recovery done before the writer starts.
+ */
+final class CrashRegion {
+
+    static final String FILE_NAME = "LastRecords.crash";
+    static final String RECOVERED_SUFFIX = "_crash.txt";
+
+    private static final byte[] MAGIC = {'L', 'S', 'C'};
+    private static final byte VERSION = 1;
+    private static final int SLOT_SIZE = 256;
+    private static final int MAX_SESSION_BYTES = 64;
+    private static final int MAX_THREAD_BYTES = 32;
+    private static final int HEADER_SIZE = 128;
+
+    private static final int CLEAN_OFFSET = 12;
+    private static final int SESSION_OFFSET = 13;
+
+    private static final int SLOT_TIMESTAMP = 8;
+    private static final int SLOT_THREAD_ID = 16;
+    private static final int SLOT_LEVEL = 24;
+    private static final int SLOT_THREAD_LEN = 25;
+    private static final int SLOT_TAG_LEN = 26;
+    private static final int SLOT_MESSAGE_LEN = 28;
+    private static final int SLOT_DATA = 30;
+
+    private final MappedByteBuffer map;
+    private final int slotCount;
+    private final byte[] scratch = new byte[SLOT_SIZE];
+    private final int[] position = new int[1];
+    private long sequence;
+
+    private CrashRegion(MappedByteBuffer map, int slotCount) {
+        this.map = map;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Maps (and wipes) the region for a new session. Call recover() first to keep
+     * what a previous session left behind.
+     */
+    static CrashRegion open(File file, String sessionId, int records) throws IOException {
+        long size = HEADER_SIZE + (long) SLOT_SIZE * records;
+        MappedByteBuffer map;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(size);
+            // The mapping stays valid after the file is closed
+            map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        map.put(MAGIC).put(VERSION).putInt(SLOT_SIZE).putInt(records).put((byte) 0);
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        int sessionLength = Math.min(session.length, MAX_SESSION_BYTES);
+        map.put((byte) sessionLength).put(session, 0, sessionLength);
+        return new CrashRegion(map, records);
+    }
+
+    void append(LogRecord record, TagTable tags) {
+        long seq = ++sequence;
+        int base = HEADER_SIZE + (int) ((seq - 1) % slotCount) * SLOT_SIZE;
+
+        String tag = record.tag(tags);
+        String thread = record.threadName;
+        int p = SLOT_DATA;
+        int threadLength = putTruncated(thread, p, Math.min(SLOT_SIZE, p + MAX_THREAD_BYTES));
+        p += threadLength;
+        int tagLength = putTruncated(tag, p, SLOT_SIZE);
+        p += tagLength;
+        int messageLength = putTruncated(record.message, p, SLOT_SIZE);
+        p += messageLength;
+        if (record.throwable != null && p < SLOT_SIZE) {
+            // The exception line is what matters most in a crash; the full trace would not fit anyway
+            int extra = putTruncated("\n" + exceptionLine(record.throwable), p, SLOT_SIZE);
+            messageLength += extra;
+            p += extra;
+        }
+
+        // Invalidate first, publish the sequence last, so a half-written slot is never recovered
+        map.putLong(base, 0);
+        map.position(base + SLOT_DATA);
+        map.put(scratch, SLOT_DATA, p - SLOT_DATA);
+        map.putLong(base + SLOT_TIMESTAMP, record.timestamp);
+        map.putLong(base + SLOT_THREAD_ID, record.threadId);
+        map.put(base + SLOT_LEVEL, record.level);
+        map.put(base + SLOT_THREAD_LEN, (byte) threadLength);
+        map.putShort(base + SLOT_TAG_LEN, (short) tagLength);
+        map.putShort(base + SLOT_MESSAGE_LEN, (short) messageLength);
+        map.putLong(base, seq);
+    }
+
+    private static String exceptionLine(Throwable throwable) {
+        try {
+            return throwable.toString();
+        } catch (RuntimeException e) {
+            // The app's toString() or getMessage() threw; the class still says what failed
+            return throwable.getClass().getName();
+        }
+    }
+
+    /**
+     * Marks the region as cleanly closed, so the next session does not recover it.
+     */
+    void close() {
+        map.put(CLEAN_OFFSET, (byte) 1);
+        map.force();
+    }
+
+    /**
+     * If the region in folder was left by a session that did not shut down cleanly,
+     * writes its records (oldest first) to Log_&lt;session&gt;_crash.txt in the same folder.
+     *
+     * @return the recovered file, or null if there was nothing to recover
+     */
+    static File recover(File folder) throws IOException {
+        File file = new File(folder, FILE_NAME);
+        if (!file.isFile() || file.length() < HEADER_SIZE) return null;
+
+        String sessionId;
+        List<long[]> order = new ArrayList<>();
+        List<LogEntry> entries = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            for (byte b : MAGIC) {
+                if (data.get() != b) return null;
+            }
+            if (data.get() != VERSION) return null;
+            int slotSize = data.getInt();
+            int slotCount = data.getInt();
+            if (data.get() != 0) return null;
+
+            int sessionLength = Math.min(data.get() & 0xFF, MAX_SESSION_BYTES);
+            byte[] session = new byte[sessionLength];
+            data.get(session);
+            sessionId = new String(session, StandardCharsets.UTF_8);
+
+            long expected = HEADER_SIZE + (long) slotSize * slotCount;
+            if (slotSize != SLOT_SIZE || raf.length() < expected) return null;
+
+            for (int i = 0; i < slotCount; i++) {
+                int base = HEADER_SIZE + i * SLOT_SIZE;
+                long seq = data.getLong(base);
+                if (seq != 0) {
+                    order.add(new long[]{seq, entries.size()});
+                    entries.add(readSlot(data, base));
+                }
+            }
+        }
+        if (entries.isEmpty()) return null;
+
+        Collections.sort(order, (a, b) -> Long.compare(a[0], b[0]));
+        File target = new File(folder, LogSegments.PREFIX + sessionId + RECOVERED_SUFFIX);
+        LogFormatter formatter = new LogFormatter(null, null);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8)) {
+            for (long[] slot : order) {
+                LogEntry e = entries.get((int) slot[1]);
+                out.append(formatter.format(e.getTimestamp(), e.getThreadId(), e.getThreadName(), e.getLevel(),
+                        e.getTag(), e.getMessage(), null));
+                out.write('\n');
+            }
+        }
+        return target;
+    }
+
+    private static LogEntry readSlot(ByteBuffer data, int base) {
+        int threadLength = data.get(base + SLOT_THREAD_LEN) & 0xFF;
+        int tagLength = data.getShort(base + SLOT_TAG_LEN) & 0xFFFF;
+        int messageLength = data.getShort(base + SLOT_MESSAGE_LEN) & 0xFFFF;
+        int total = Math.min(threadLength + tagLength + messageLength, SLOT_SIZE - SLOT_DATA);
+
+        byte[] bytes = new byte[total];
+        for (int i = 0; i < total; i++) {
+            bytes[i] = data.get(base + SLOT_DATA + i);
+        }
+        threadLength = Math.min(threadLength, total);
+        tagLength = Math.min(tagLength, total - threadLength);
+        messageLength = total - threadLength - tagLength;
+
+        String thread = new String(bytes, 0, threadLength, StandardCharsets.UTF_8);
+        String tag = new String(bytes, threadLength, tagLength, StandardCharsets.UTF_8);
+        String message = new String(bytes, threadLength + tagLength, messageLength, StandardCharsets.UTF_8);
+        return new LogEntry(data.getLong(base + SLOT_TIMESTAMP), data.getLong(base + SLOT_THREAD_ID),
+                thread.isEmpty() ? null : thread, data.get(base + SLOT_LEVEL),
+                tag.isEmpty() ? null : tag, message, null);
+    }
+
+    /**
+     * @return UTF-8 bytes written into scratch[offset..limit)
+     */
+    private int putTruncated(String value, int offset, int limit) {
+        if (value == null || offset >= limit) return 0;
+        Utf8.encode(value, 0, scratch, offset, limit, position);
+        return position[0] - offset;
+    }
+}
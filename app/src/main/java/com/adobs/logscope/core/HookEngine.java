@@ -0,0 +1,28 @@
+package com.adobs.logscope.core;
+
+import java.lang.reflect.Method;
+
+/**
+ * What LogHook needs from a hooking framework: a callback after a method
+ * returns, with its arguments and a way to replace its result. BlackBoxHookEngine
+ * is the real one; a fake that calls the hooks directly drives the same capture
+ * path on a plain JVM (e.g. to benchmark hook-to-disk cost off-device).
+ */
+public interface HookEngine {
+
+    /**
+     * Returned by an AfterHook that leaves the method's own result alone.
+     */
+    Object KEEP_RESULT = new Object();
+
+    interface AfterHook {
+        /**
+         * Runs on the caller's thread after every call of the hooked method.
+         *
+         * @return the result the call should return instead, or KEEP_RESULT
+         */
+        Object afterHookedMethod(Object[] args);
+    }
+
+    void hookAfter(Method method, AfterHook hook) throws Exception;
+}
@@ -0,0 +1,42 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+
+/**
+ * The stages LaunchPipeline runs an app through. BlackBoxLaunchEngine is the
+ * real one; anything else (e.g. a fake that only records calls) can stand in.
+ * Every method is called on a launch thread and may block.
+ */
+public interface LaunchEngine {
+
+    /**
+     * @return path of the host-installed APK of the package
+     * @throws IOException if it is not installed on the device or cannot be read
+     */
+    String resolveApk(String packageName) throws IOException;
+
+    /**
+     * @return when the host-installed package was last installed or updated
+     * @throws IOException if it is not installed on the device
+     */
+    long lastUpdateTime(String packageName) throws IOException;
+
+    /**
+     * @return lastUpdateTime of the device package the engine's copy was installed
+     *         from, 0 if the engine has a copy of unknown origin, or -1 if it has none
+     */
+    long installedUpdateTime(String packageName);
+
+    /**
+     * Installs the APK and records updateTime for installedUpdateTime().
+     *
+     * @param updateTime lastUpdateTime of the device package the APK belongs to
+     * @return null once installed, otherwise why it failed
+     */
+    String install(String packageName, String apkPath, long updateTime);
+
+    /**
+     * @return false if the engine could not start the app
+     */
+    boolean launch(String packageName);
+}
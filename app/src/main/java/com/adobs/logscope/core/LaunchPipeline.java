@@ -0,0 +1,165 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LaunchState;
+import com.adobs.logscope.models.LaunchState.Stage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs apps through resolve, install (if needed) and launch on its own executor,
+ * so launches never queue behind other background work, and different apps
+ * proceed in parallel.
+ *
+ * At most one launch per package is in flight: tapping an app again while it is
+ * installing does not start a second install. A launch can be cancelled; that
+ * takes effect between stages, since an install in progress cannot be stopped.
+ * The engine's answers are cached, as its check is an IPC to its server process.
+ * An app counts as installed only if the engine's copy came from the device
+ * package's current lastUpdateTime, so updating the app on the device installs
+ * it into the engine again.
+ *
+ * Any failure, an Error from the engine included, ends the launch as FAILED:
+ * the pool thread survives it and the UI never waits for a launch that died.
+ */
+public final class LaunchPipeline {
+
+    private static final String TAG = "VirtualCore";
+
+    public interface Listener {
+        /** Called on the launch thread, once per stage. */
+        void onProgress(LaunchState state);
+    }
+
+    private final LaunchEngine engine;
+    private final Executor executor;
+    private final Listener listener;
+
+    private final Map<String, Task> inFlight = new ConcurrentHashMap<>();
+    // Package -> lastUpdateTime of the device package the engine has installed
+    private final Map<String, Long> installed = new ConcurrentHashMap<>();
+
+    public LaunchPipeline(LaunchEngine engine, Executor executor, Listener listener) {
+        this.engine = engine;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts installing and launching the app in the background.
+     *
+     * @return false if a launch of the package is already in flight
+     */
+    public boolean launch(String packageName) {
+        Task task = new Task(packageName);
+        if (inFlight.putIfAbsent(packageName, task) != null) return false;
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(packageName, task);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * @return false if no launch of the package is in flight
+     */
+    public boolean cancel(String packageName) {
+        Task task = inFlight.get(packageName);
+        if (task == null) return false;
+        task.cancelled = true;
+        return true;
+    }
+
+    public boolean isInFlight(String packageName) {
+        return inFlight.containsKey(packageName);
+    }
+
+    /** Forgets the cached install state, e.g. after uninstalling from the engine. */
+    public void invalidate(String packageName) {
+        installed.remove(packageName);
+    }
+
+    private void run(Task task) {
+        String packageName = task.packageName;
+        try {
+            report(packageName, Stage.RESOLVING, null);
+            String apkPath = engine.resolveApk(packageName);
+            long updateTime = engine.lastUpdateTime(packageName);
+            if (stopped(task)) return;
+
+            if (isInstalled(packageName, updateTime)) {
+                CoreLog.i(TAG, "App already installed. Launching directly.");
+            } else {
+                report(packageName, Stage.INSTALLING, null);
+                String error = engine.install(packageName, apkPath, updateTime);
+                if (error != null) {
+                    installed.remove(packageName);
+                    CoreLog.e(TAG, "Install Failed: " + error);
+                    report(packageName, Stage.FAILED, "Install Failed: " + error);
+                    return;
+                }
+                installed.put(packageName, updateTime);
+                if (stopped(task)) return;
+            }
+
+            report(packageName, Stage.LAUNCHING, null);
+            if (engine.launch(packageName)) {
+                report(packageName, Stage.LAUNCHED, null);
+            } else {
+                CoreLog.e(TAG, "Engine failed to launch: " + packageName);
+                report(packageName, Stage.FAILED, "Failed to launch app.");
+            }
+        } catch (IOException e) {
+            report(packageName, Stage.FAILED, e.getMessage());
+        } catch (Throwable e) {
+            // Errors too (e.g. a LinkageError from the engine): rethrowing would only kill the pool thread
+            CoreLog.e(TAG, "Critical Virtualization Error", e);
+            report(packageName, Stage.FAILED, "System Error: " + e.getMessage());
+        } finally {
+            inFlight.remove(packageName, task);
+        }
+    }
+
+    /**
+     * @param updateTime lastUpdateTime of the package on the device
+     */
+    private boolean isInstalled(String packageName, long updateTime) {
+        Long cached = installed.get(packageName);
+        if (cached != null) {
+            // Updated on the device since it was installed into the engine
+            return cached == updateTime;
+        }
+        long engineTime = engine.installedUpdateTime(packageName);
+        if (engineTime < 0) return false;
+        installed.put(packageName, engineTime);
+        return engineTime == updateTime;
+    }
+
+    private boolean stopped(Task task) {
+        if (!task.cancelled) return false;
+        report(task.packageName, Stage.CANCELLED, null);
+        return true;
+    }
+
+    private void report(String packageName, Stage stage, String message) {
+        try {
+            listener.onProgress(new LaunchState(packageName, stage, message));
+        } catch (RuntimeException e) {
+            CoreLog.e(TAG, "Launch listener failed", e);
+        }
+    }
+
+    private static final class Task {
+        final String packageName;
+        volatile boolean cancelled;
+
+        Task(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+}
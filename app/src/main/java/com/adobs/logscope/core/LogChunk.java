@@ -0,0 +1,42 @@
+package com.adobs.logscope.core;
+
+/**
+ * Fixed block of reusable LogRecords filled by one thread (ProducerMode.THREAD_LOCAL).
+ * Records are in the order the thread logged them, so each chunk is already
+ * sorted by timestamp and the writer only has to merge chunks.
+ */
+final class LogChunk {
+
+    final LogRecord[] records;
+    int size;
+
+    // Writer-side merge state
+    int cursor;
+    long handOffOrder;
+
+    LogChunk(int capacity) {
+        records = new LogRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new LogRecord();
+        }
+    }
+
+    boolean isFull() {
+        return size == records.length;
+    }
+
+    long headTimestamp() {
+        return records[cursor].timestamp;
+    }
+
+    /**
+     * Writer thread: clears handed-out records so the chunk can be reused.
+     */
+    void reset() {
+        for (int i = 0; i < size; i++) {
+            records[i].clear();
+        }
+        size = 0;
+        cursor = 0;
+    }
+}
@@ -0,0 +1,430 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives the records of every process of one virtual app and writes them as a
+ * single session, in timestamp order, with the process in each line.
+ *
+ * Each virtual process started with LogConfig.collector() streams its records in
+ * the .lsb layout (preceded by a hello carrying its process name and how late it
+ * may deliver a record) instead of opening files. Here one thread per connection
+ * decodes the stream into a shared heap; a merge thread releases records up to
+ * a watermark and publishes them into this collector's own ring and writer.
+ *
+ * The watermark is the oldest point any connected process may still send a
+ * record for: a process sends its records in order, each at most its delivery
+ * delay (see deliveryDelayMillis()) after it was logged, so nothing older than
+ * max(last record received, now - delay) can still come from it. A busy process
+ * therefore never holds back the others, and a quiet one only for its own
+ * flush interval.
+ * Segments, rotation, indexing and flushing are the same as for LogManager.
+ *
+ * The heap is bounded: when the writer falls behind, connection threads stop
+ * reading, the sockets fill up and each process's own overflow policy applies.
+ * The merge thread waits at most FULL_RING_WAIT_NANOS for room in the ring;
+ * after that the collector's own policy drops, counted in its drop summaries.
+ * A process whose collector goes away continues in its own segments.
+ */
+public final class LogCollector implements Closeable {
+
+    private static final String TAG = "LogCollector";
+
+    private static final byte[] HELLO = {'L', 'S', 'A'};
+    private static final byte VERSION = 2;
+
+    private static final int QUEUE_CAPACITY = 50000;
+    private static final int TAG_TABLE_CAPACITY = 1024;
+    private static final int MAX_PENDING = 100_000;
+    // Added to a process's delivery delay: scheduling and socket transit
+    private static final long MERGE_WINDOW_MILLIS = 250;
+    // Timestamps are taken before the ring publish, so a process's own records can be slightly out of order
+    private static final long REORDER_SLACK_MILLIS = 20;
+    // How long the merge thread waits for room in a full ring before the overflow policy drops
+    private static final long FULL_RING_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // One collector per app, so relaunching an app keeps writing the same session
+    private static final Map<String, LogCollector> running = new HashMap<>();
+    private static boolean shutdownHookInstalled;
+
+    private final String name;
+    private final CollectorTransport.Listener listener;
+    private final LogRingBuffer ring;
+    private final Backpressure backpressure;
+    private final TagTable tags = new TagTable(TAG_TABLE_CAPACITY);
+    private final AsyncLogWriter writer;
+    private final Thread writerThread;
+    private final Thread mergeThread;
+    private final Set<CollectorTransport.Connection> connections = ConcurrentHashMap.newKeySet();
+
+    // Guarded by itself
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>(1024, (a, b) -> a.entry.getTimestamp()
+            != b.entry.getTimestamp() ? Long.compare(a.entry.getTimestamp(), b.entry.getTimestamp())
+            : Long.compare(a.sequence, b.sequence));
+    private long nextSequence;
+    // Guarded by pending: connected processes that completed the hello
+    private final List<Source> sources = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    private LogCollector(String name, CollectorTransport.Listener listener, File folder, LogConfig config)
+            throws IOException {
+        this.name = name;
+        this.listener = listener;
+
+        String sessionId = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US).format(new Date());
+        LogSegments segments = new LogSegments(folder, sessionId, config);
+        LogSink sink = segments.open();
+        ring = new LogRingBuffer(QUEUE_CAPACITY, config.getWaitStrategy());
+        LogMetrics metrics = config.getMetricsIntervalMillis() > 0
+                ? new LogMetrics(LogMetrics.fileFor(folder, "collector"), "collector " + name,
+                        config.getMetricsIntervalMillis())
+                : null;
+        backpressure = new Backpressure(ring, config);
+        writer = new AsyncLogWriter(ring, backpressure, null, segments, sink, null, tags, metrics, config);
+
+        // Daemons, so a collector never keeps the host alive; closeAll() drains them on exit
+        writerThread = new Thread(writer, "LogScope-CollectorWriter");
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.setDaemon(true);
+        mergeThread = new Thread(this::mergeLoop, "LogScope-CollectorMerge");
+        mergeThread.setDaemon(true);
+        Thread acceptThread = new Thread(this::acceptLoop, "LogScope-Collector");
+        acceptThread.setDaemon(true);
+
+        writerThread.start();
+        mergeThread.start();
+        acceptThread.start();
+    }
+
+    /**
+     * Collector name a virtual app's processes connect to (see LogConfig.collector()).
+     */
+    public static String nameFor(String packageName) {
+        return "LogScope.collector." + packageName;
+    }
+
+    /**
+     * Starts the collector of an app, writing to LogManager.getLogFolder(packageName),
+     * or returns the one already running.
+     */
+    public static LogCollector start(String packageName, LogConfig config) throws IOException {
+        return start(nameFor(packageName), LogManager.getLogFolder(packageName), config);
+    }
+
+    /**
+     * @param name  collector name; a port number for CollectorTransport.LOOPBACK
+     */
+    public static synchronized LogCollector start(String name, File folder, LogConfig config) throws IOException {
+        LogCollector collector = running.get(name);
+        if (collector != null) return collector;
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Failed to create " + folder.getAbsolutePath());
+        }
+        CollectorTransport.Listener listener = config.getCollectorTransport().listen(name);
+        try {
+            collector = new LogCollector(name, listener, folder, config);
+        } catch (IOException e) {
+            listener.close();
+            throw e;
+        }
+        running.put(name, collector);
+        if (!shutdownHookInstalled) {
+            shutdownHookInstalled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(LogCollector::closeAll, "LogScope-CollectorShutdown"));
+        }
+        return collector;
+    }
+
+    /**
+     * Closes every running collector, e.g. when the host shuts down. Also runs
+     * from a shutdown hook; on a device the host is usually killed instead, and
+     * then only what the flush policy already wrote is kept.
+     */
+    public static void closeAll() {
+        List<LogCollector> collectors;
+        synchronized (LogCollector.class) {
+            collectors = new ArrayList<>(running.values());
+        }
+        for (LogCollector collector : collectors) {
+            collector.close();
+        }
+    }
+
+    /**
+     * Called by LogManager.init in a virtual process.
+     *
+     * @return the sink streaming to the collector, or null if it is not running
+     */
+    static LogSink connect(String processName, LogConfig config) {
+        CollectorTransport.Connection connection = null;
+        try {
+            connection = config.getCollectorTransport().connect(config.getCollectorName());
+            DataOutputStream hello = new DataOutputStream(connection.out);
+            hello.write(HELLO);
+            hello.writeByte(VERSION);
+            hello.writeUTF(processName);
+            hello.writeLong(deliveryDelayMillis(config));
+            hello.flush();
+            return new StreamSink(connection, config.getFlushBytes());
+        } catch (IOException e) {
+            CoreLog.w(TAG, "Collector " + config.getCollectorName() + " unavailable: " + e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException ignored) {}
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Longest a process holds a record before it reaches the socket: the writer
+     * flushes at least every flush interval, and thread-local chunks are swept
+     * on their own interval before that.
+     */
+    private static long deliveryDelayMillis(LogConfig config) {
+        long delay = config.getFlushIntervalMillis();
+        if (config.getProducerMode() == ProducerMode.THREAD_LOCAL) {
+            delay += config.getChunkIntervalMillis();
+        }
+        return delay;
+    }
+
+    @Override
+    public void close() {
+        close(2000, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Disconnects all processes, writes out everything received and closes the session.
+     *
+     * @return true if the writer finished within the timeout
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        synchronized (LogCollector.class) {
+            if (running.get(name) == this) {
+                running.remove(name);
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                return !writerThread.isAlive();
+            }
+            closed = true;
+        }
+        try {
+            listener.close();
+        } catch (IOException ignored) {}
+        for (CollectorTransport.Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {}
+        }
+        synchronized (pending) {
+            pending.notifyAll();
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            mergeThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            writer.stop(deadline);
+            writerThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) + 200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !writerThread.isAlive();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                CollectorTransport.Connection connection = listener.accept();
+                if (closed) {
+                    connection.close();
+                    break;
+                }
+                connections.add(connection);
+                Thread reader = new Thread(() -> serve(connection), "LogScope-CollectorReader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    CoreLog.e(TAG, "Collector " + name + " stopped accepting", e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void serve(CollectorTransport.Connection connection) {
+        String process = null;
+        Source source = null;
+        try {
+            DataInputStream in = new DataInputStream(connection.in);
+            for (byte b : HELLO) {
+                if (in.readByte() != b) throw new IOException("Not a LogScope process");
+            }
+            if (in.readByte() != VERSION) throw new IOException("Unsupported collector protocol");
+            process = in.readUTF();
+            source = new Source(process, in.readLong() + MERGE_WINDOW_MILLIS);
+            synchronized (pending) {
+                sources.add(source);
+            }
+            internal("[System] Process connected: " + process);
+
+            BinaryLogReader reader = new BinaryLogReader(connection.in);
+            LogEntry entry;
+            while ((entry = reader.next()) != null) {
+                offer(entry, source);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                CoreLog.w(TAG, "Connection of " + (process != null ? process : "unknown process") + " failed", e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.remove(connection);
+            try {
+                connection.close();
+            } catch (IOException ignored) {}
+            if (source != null) {
+                synchronized (pending) {
+                    sources.remove(source);
+                    // What it held back may be releasable now
+                    pending.notifyAll();
+                }
+            }
+            if (process != null) {
+                internal("[System] Process disconnected: " + process);
+            }
+        }
+    }
+
+    /**
+     * @param source null for the collector's own lines
+     */
+    private void offer(LogEntry entry, Source source) throws InterruptedException {
+        synchronized (pending) {
+            while (pending.size() >= MAX_PENDING && !closed) {
+                pending.wait();
+            }
+            pending.add(new Pending(entry, source != null ? source.process : null, nextSequence++));
+            if (source != null && entry.getTimestamp() > source.lastTimestamp) {
+                source.lastTimestamp = entry.getTimestamp();
+            }
+            if (pending.size() == 1) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Guarded by pending.
+     *
+     * @return newest timestamp no record still to come can be older than
+     */
+    private long watermark(long now) {
+        long watermark = now - MERGE_WINDOW_MILLIS;
+        for (Source source : sources) {
+            long bound = Math.max(source.lastTimestamp - REORDER_SLACK_MILLIS, now - source.deliveryDelayMillis);
+            watermark = Math.min(watermark, bound);
+        }
+        return watermark;
+    }
+
+    /**
+     * Releases records up to the watermark (everything on close) and hands them
+     * to the writer in timestamp order.
+     */
+    private void mergeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            boolean draining;
+            synchronized (pending) {
+                draining = closed && connections.isEmpty();
+                long watermark = watermark(System.currentTimeMillis());
+                Pending head;
+                while ((head = pending.peek()) != null && (draining || head.entry.getTimestamp() <= watermark)) {
+                    batch.add(pending.poll());
+                }
+                if (batch.isEmpty()) {
+                    if (draining) return;
+                    try {
+                        long wait = head != null ? head.entry.getTimestamp() - watermark : MERGE_WINDOW_MILLIS;
+                        pending.wait(Math.max(1, Math.min(wait, MERGE_WINDOW_MILLIS)));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+                pending.notifyAll();
+            }
+
+            for (Pending p : batch) {
+                String tag = p.entry.getTag();
+                int tagId = tag != null ? tags.intern(tag) : TagTable.NO_ID;
+                String rawTag = tagId == TagTable.NO_ID ? tag : null;
+                // Dropped records are counted and reported by the writer like any other
+                backpressure.publishMerged(p.entry, tagId, rawTag, p.process, FULL_RING_WAIT_NANOS);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Goes through the heap like everything else, so it lands in timestamp order.
+     */
+    private void internal(String message) {
+        Thread thread = Thread.currentThread();
+        try {
+            offer(new LogEntry(System.currentTimeMillis(), thread.getId(), thread.getName(), LogLevel.INFO, null,
+                    message, null), null);
+        } catch (InterruptedException e) {
+            thread.interrupt();
+        }
+    }
+
+    private static final class Source {
+        final String process;
+        final long deliveryDelayMillis;
+        // Nothing received yet: only the delivery delay bounds it
+        long lastTimestamp;
+
+        Source(String process, long deliveryDelayMillis) {
+            this.process = process;
+            this.deliveryDelayMillis = deliveryDelayMillis;
+        }
+    }
+
+    private static final class Pending {
+        final LogEntry entry;
+        final String process;
+        final long sequence;
+
+        Pending(LogEntry entry, String process, long sequence) {
+            this.entry = entry;
+            this.process = process;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.adobs.logscope.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable per-session capture settings passed to LogManager.init.
+ */
+public final class LogConfig {
+
+    private final WaitStrategy waitStrategy;
+    private final LogFormat format;
+    private final SinkType sinkType;
+    private final int flushRecords;
+    private final int flushBytes;
+    private final long flushIntervalMillis;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final boolean compressSegments;
+    private final long retentionBytes;
+    private final boolean dedupeStackTraces;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final long blockCriticalMillis;
+    private final long dropReportIntervalMillis;
+    private final ProducerMode producerMode;
+    private final int chunkRecords;
+    private final long chunkIntervalMillis;
+    private final int crashRegionRecords;
+    private final boolean flushOnCrash;
+    private final int indexBlockRecords;
+    private final String collectorName;
+    private final CollectorTransport collectorTransport;
+    private final long metricsIntervalMillis;
+    private final int collapseWindow;
+
+    private LogConfig(Builder builder) {
+        this.waitStrategy = builder.waitStrategy;
+        this.format = builder.format;
+        this.sinkType = builder.sinkType;
+        this.flushRecords = builder.flushRecords;
+        this.flushBytes = builder.flushBytes;
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.maxSegmentBytes = builder.maxSegmentBytes;
+        this.maxSegmentAgeMillis = builder.maxSegmentAgeMillis;
+        this.compressSegments = builder.compressSegments;
+        this.retentionBytes = builder.retentionBytes;
+        this.dedupeStackTraces = builder.dedupeStackTraces;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.sampleRate = builder.sampleRate;
+        this.blockCriticalMillis = builder.blockCriticalMillis;
+        this.dropReportIntervalMillis = builder.dropReportIntervalMillis;
+        this.producerMode = builder.producerMode;
+        this.chunkRecords = builder.chunkRecords;
+        this.chunkIntervalMillis = builder.chunkIntervalMillis;
+        this.crashRegionRecords = builder.crashRegionRecords;
+        this.flushOnCrash = builder.flushOnCrash;
+        this.indexBlockRecords = builder.indexBlockRecords;
+        this.collectorName = builder.collectorName;
+        this.collectorTransport = builder.collectorTransport;
+        this.metricsIntervalMillis = builder.metricsIntervalMillis;
+        this.collapseWindow = builder.collapseWindow;
+    }
+
+    public static LogConfig defaults() {
+        return new Builder().build();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public LogFormat getFormat() {
+        return format;
+    }
+
+    /** Ignored for LogFormat.BINARY, which always writes through the channel sink. */
+    public SinkType getSinkType() {
+        return sinkType;
+    }
+
+    /** Flush after this many records have been written since the last flush. */
+    public int getFlushRecords() {
+        return flushRecords;
+    }
+
+    /** Flush after this many bytes are buffered; also the write buffer size. */
+    public int getFlushBytes() {
+        return flushBytes;
+    }
+
+    /** Upper bound on how long a written record may sit unflushed. */
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /** Rotate to a new segment once the current one reaches this size (0 = never). */
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    /** Rotate to a new segment once the current one is this old (0 = never). */
+    public long getMaxSegmentAgeMillis() {
+        return maxSegmentAgeMillis;
+    }
+
+    /** Gzip closed segments in the background. */
+    public boolean isCompressSegments() {
+        return compressSegments;
+    }
+
+    /** Cap on all segments in the package folder; oldest are deleted first (0 = unlimited). */
+    public long getRetentionBytes() {
+        return retentionBytes;
+    }
+
+    /** Write repeated identical stack traces as a reference to the first one. */
+    public boolean isDedupeStackTraces() {
+        return dedupeStackTraces;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /** N of "keep 1 in N" for OverflowPolicy.SAMPLE. */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** How long E/WTF records may block waiting for room (0 = never block). */
+    public long getBlockCriticalMillis() {
+        return blockCriticalMillis;
+    }
+
+    /** Minimum spacing of the "[System] Dropped N logs" summary lines. */
+    public long getDropReportIntervalMillis() {
+        return dropReportIntervalMillis;
+    }
+
+    public ProducerMode getProducerMode() {
+        return producerMode;
+    }
+
+    /** ProducerMode.THREAD_LOCAL: records per chunk; a full chunk is handed over at once. */
+    public int getChunkRecords() {
+        return chunkRecords;
+    }
+
+    /** ProducerMode.THREAD_LOCAL: how long a partly filled chunk may stay with its thread. */
+    public long getChunkIntervalMillis() {
+        return chunkIntervalMillis;
+    }
+
+    /** Last N written records mirrored into a memory-mapped file that survives a kill (0 = off). */
+    public int getCrashRegionRecords() {
+        return crashRegionRecords;
+    }
+
+    /** Install an uncaught-exception handler that drains the queue before the process dies. */
+    public boolean isFlushOnCrash() {
+        return flushOnCrash;
+    }
+
+    /** Records per block of the .idx sidecar written next to each closed segment (0 = no index). */
+    public int getIndexBlockRecords() {
+        return indexBlockRecords;
+    }
+
+    /**
+     * Name of a LogCollector to stream records to instead of writing files, or null.
+     * If it cannot be reached the process writes its own files as usual.
+     */
+    public String getCollectorName() {
+        return collectorName;
+    }
+
+    public CollectorTransport getCollectorTransport() {
+        return collectorTransport;
+    }
+
+    /**
+     * How often the Metrics_&lt;process&gt;.txt snapshot is rewritten (0, the default, = no metrics are
+     * recorded at all). The UI turns them on per package through CaptureSettings.
+     */
+    public long getMetricsIntervalMillis() {
+        return metricsIntervalMillis;
+    }
+
+    /**
+     * Repeats of any of the last N distinct V/D/I/W lines are counted and written as one
+     * "[repeated xK first - last]" line instead (0, the default, = write every repeat).
+     * See BurstCollapser; the UI turns it on per package through CaptureSettings.
+     */
+    public int getCollapseWindow() {
+        return collapseWindow;
+    }
+
+    public static final class Builder {
+
+        private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+        private LogFormat format = LogFormat.TEXT;
+        private SinkType sinkType = SinkType.WRITER;
+        private int flushRecords = 1000;
+        private int flushBytes = 64 * 1024;
+        private long flushIntervalMillis = 1000;
+        private long maxSegmentBytes = 16L * 1024 * 1024;
+        private long maxSegmentAgeMillis = TimeUnit.HOURS.toMillis(1);
+        private boolean compressSegments = true;
+        private long retentionBytes = 512L * 1024 * 1024;
+        private boolean dedupeStackTraces = true;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        private int sampleRate = 10;
+        private long blockCriticalMillis = 50;
+        private long dropReportIntervalMillis = 5000;
+        private ProducerMode producerMode = ProducerMode.SHARED_RING;
+        private int chunkRecords = 256;
+        private long chunkIntervalMillis = 100;
+        private int crashRegionRecords = 1024;
+        private boolean flushOnCrash = true;
+        private int indexBlockRecords = 1024;
+        private String collectorName;
+        private CollectorTransport collectorTransport = CollectorTransport.LOCAL_SOCKET;
+        private long metricsIntervalMillis = 0;
+        private int collapseWindow = 0;
+
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public Builder format(LogFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public Builder sinkType(SinkType sinkType) {
+            this.sinkType = sinkType;
+            return this;
+        }
+
+        public Builder flushRecords(int flushRecords) {
+            this.flushRecords = flushRecords;
+            return this;
+        }
+
+        public Builder flushBytes(int flushBytes) {
+            this.flushBytes = flushBytes;
+            return this;
+        }
+
+        public Builder flushInterval(long duration, TimeUnit unit) {
+            this.flushIntervalMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder maxSegmentBytes(long maxSegmentBytes) {
+            this.maxSegmentBytes = maxSegmentBytes;
+            return this;
+        }
+
+        public Builder maxSegmentAge(long duration, TimeUnit unit) {
+            this.maxSegmentAgeMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder compressSegments(boolean compressSegments) {
+            this.compressSegments = compressSegments;
+            return this;
+        }
+
+        public Builder retentionBytes(long retentionBytes) {
+            this.retentionBytes = retentionBytes;
+            return this;
+        }
+
+        public Builder dedupeStackTraces(boolean dedupeStackTraces) {
+            this.dedupeStackTraces = dedupeStackTraces;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public Builder sampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public Builder blockCritical(long duration, TimeUnit unit) {
+            this.blockCriticalMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder dropReportInterval(long duration, TimeUnit unit) {
+            this.dropReportIntervalMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder producerMode(ProducerMode producerMode) {
+            this.producerMode = producerMode;
+            return this;
+        }
+
+        public Builder chunkRecords(int chunkRecords) {
+            this.chunkRecords = chunkRecords;
+            return this;
+        }
+
+        public Builder chunkInterval(long duration, TimeUnit unit) {
+            this.chunkIntervalMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder crashRegionRecords(int crashRegionRecords) {
+            this.crashRegionRecords = crashRegionRecords;
+            return this;
+        }
+
+        public Builder flushOnCrash(boolean flushOnCrash) {
+            this.flushOnCrash = flushOnCrash;
+            return this;
+        }
+
+        public Builder indexBlockRecords(int indexBlockRecords) {
+            this.indexBlockRecords = indexBlockRecords;
+            return this;
+        }
+
+        public Builder collector(String name) {
+            this.collectorName = name;
+            return this;
+        }
+
+        public Builder collectorTransport(CollectorTransport collectorTransport) {
+            this.collectorTransport = collectorTransport;
+            return this;
+        }
+
+        public Builder metricsInterval(long duration, TimeUnit unit) {
+            this.metricsIntervalMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder collapseWindow(int collapseWindow) {
+            this.collapseWindow = collapseWindow;
+            return this;
+        }
+
+        public LogConfig build() {
+            if (waitStrategy == null || format == null || sinkType == null || overflowPolicy == null
+                    || producerMode == null || collectorTransport == null) {
+                throw new IllegalArgumentException(
+                        "waitStrategy, format, sinkType, overflowPolicy, producerMode and collectorTransport are required");
+            }
+            if (chunkRecords < 1 || chunkIntervalMillis < 1) {
+                throw new IllegalArgumentException("Chunk settings must be positive");
+            }
+            if (crashRegionRecords < 0) {
+                throw new IllegalArgumentException("crashRegionRecords must not be negative");
+            }
+            if (indexBlockRecords < 0) {
+                throw new IllegalArgumentException("indexBlockRecords must not be negative");
+            }
+            if (metricsIntervalMillis < 0) {
+                throw new IllegalArgumentException("metricsInterval must not be negative");
+            }
+            if (collapseWindow < 0 || collapseWindow > BurstCollapser.MAX_WINDOW) {
+                throw new IllegalArgumentException("collapseWindow must be between 0 and " + BurstCollapser.MAX_WINDOW);
+            }
+            if (sampleRate < 1 || blockCriticalMillis < 0 || dropReportIntervalMillis < 1) {
+                throw new IllegalArgumentException("Invalid overflow settings");
+            }
+            if (flushRecords < 1 || flushBytes < 1 || flushIntervalMillis < 1) {
+                throw new IllegalArgumentException("Flush thresholds must be positive");
+            }
+            if (maxSegmentBytes < 0 || maxSegmentAgeMillis < 0 || retentionBytes < 0) {
+                throw new IllegalArgumentException("Rotation limits must not be negative");
+            }
+            return new LogConfig(this);
+        }
+    }
+}
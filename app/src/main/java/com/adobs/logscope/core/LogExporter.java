@@ -0,0 +1,74 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Converts binary segments back to the classic text lines or to JSON lines,
+ * streaming one entry at a time.
+ */
+public final class LogExporter {
+
+    public enum Target { TEXT, JSON_LINES }
+
+    private LogExporter() {}
+
+    /**
+     * @return number of entries exported
+     */
+    public static long export(File binarySegment, Writer out, Target target) throws IOException {
+        // Entries already carry resolved tags and rendered traces
+        LogFormatter formatter = new LogFormatter(null, null);
+        JsonWriter json = null;
+        if (target == Target.JSON_LINES) {
+            json = new JsonWriter(out);
+            // One top-level object per line
+            json.setLenient(true);
+        }
+
+        long count = 0;
+        try (BinaryLogReader reader = new BinaryLogReader(binarySegment)) {
+            LogEntry entry;
+            while ((entry = reader.next()) != null) {
+                if (json != null) {
+                    writeJson(json, entry);
+                    json.flush();
+                } else {
+                    CharSequence line = formatter.format(entry.getTimestamp(), entry.getProcess(),
+                            entry.getThreadId(), entry.getThreadName(), entry.getLevel(), entry.getTag(),
+                            entry.getMessage(), entry.getStackTrace());
+                    out.append(line);
+                }
+                out.write('\n');
+                count++;
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    private static void writeJson(JsonWriter json, LogEntry entry) throws IOException {
+        json.beginObject();
+        json.name("time").value(entry.getTimestamp());
+        if (entry.getProcess() != null) {
+            json.name("process").value(entry.getProcess());
+        }
+        if (entry.getThreadName() != null) {
+            json.name("tid").value(entry.getThreadId());
+            json.name("thread").value(entry.getThreadName());
+        }
+        json.name("level").value(LogLevel.label(entry.getLevel()));
+        if (entry.getTag() != null) {
+            json.name("tag").value(entry.getTag());
+        }
+        json.name("msg").value(entry.getMessage());
+        if (entry.getStackTrace() != null) {
+            json.name("stacktrace").value(entry.getStackTrace());
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,117 @@
+package com.adobs.logscope.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable capture filter, evaluated in LogHook before any formatting.
+ * Checks run cheapest first: level bitmask, then hashed tag sets, then the
+ * optional message regex. Swap it at runtime with LogHook.setFilter().
+ */
+public final class LogFilter {
+
+    public static final LogFilter ACCEPT_ALL = new Builder().build();
+
+    private final int levelMask;
+    private final Set<String> allowedTags;   // null = any tag
+    private final Set<String> deniedTags;    // empty = none
+    private final Pattern messagePattern;    // null = any message
+    // One Matcher per app thread, so a regex check allocates nothing after the first
+    private final ThreadLocal<Matcher> matchers;
+
+    private LogFilter(Builder builder) {
+        int mask = 0;
+        for (int level = builder.minLevel; level <= LogLevel.ASSERT; level++) {
+            mask |= 1 << level;
+        }
+        this.levelMask = mask;
+        this.allowedTags = builder.allowedTags != null ? Collections.unmodifiableSet(new HashSet<>(builder.allowedTags)) : null;
+        this.deniedTags = Collections.unmodifiableSet(new HashSet<>(builder.deniedTags));
+        this.messagePattern = builder.messageRegex != null ? Pattern.compile(builder.messageRegex) : null;
+        this.matchers = messagePattern != null ? new ThreadLocal<Matcher>() {
+            @Override
+            protected Matcher initialValue() {
+                return messagePattern.matcher("");
+            }
+        } : null;
+    }
+
+    /**
+     * First gate on the hook path: a single AND against the level mask.
+     */
+    public boolean acceptsLevel(int level) {
+        // Range check: Log.println accepts any int, and shifts wrap at 32
+        return level >= 0 && level < 32 && (levelMask & (1 << level)) != 0;
+    }
+
+    /**
+     * Remaining checks, only reached when the level passed.
+     */
+    public boolean accepts(String tag, String message) {
+        return acceptsTag(tag)
+                && (messagePattern == null || (message != null && acceptsMessage(message)));
+    }
+
+    private boolean acceptsMessage(String message) {
+        Matcher matcher = matchers.get();
+        boolean found = matcher.reset(message).find();
+        // Not kept alive by an idle thread
+        matcher.reset("");
+        return found;
+    }
+
+    public boolean acceptsTag(String tag) {
+        if (allowedTags != null && (tag == null || !allowedTags.contains(tag))) return false;
+        return tag == null || deniedTags.isEmpty() || !deniedTags.contains(tag);
+    }
+
+    public static final class Builder {
+
+        private int minLevel = LogLevel.VERBOSE;
+        private Set<String> allowedTags;
+        private final Set<String> deniedTags = new HashSet<>();
+        private String messageRegex;
+
+        /** Drops everything below this android.util.Log priority. */
+        public Builder minLevel(int minLevel) {
+            this.minLevel = minLevel;
+            return this;
+        }
+
+        /** Only these tags are captured (may be called repeatedly). */
+        public Builder allowTags(String... tags) {
+            return allowTags(Arrays.asList(tags));
+        }
+
+        public Builder allowTags(Collection<String> tags) {
+            if (allowedTags == null) {
+                allowedTags = new HashSet<>();
+            }
+            allowedTags.addAll(tags);
+            return this;
+        }
+
+        public Builder denyTags(String... tags) {
+            deniedTags.addAll(Arrays.asList(tags));
+            return this;
+        }
+
+        /** Keeps only messages containing a match (Matcher.find semantics). */
+        public Builder messageRegex(String regex) {
+            this.messageRegex = regex;
+            return this;
+        }
+
+        public LogFilter build() {
+            if (minLevel < LogLevel.VERBOSE || minLevel > LogLevel.ASSERT) {
+                throw new IllegalArgumentException("minLevel out of range: " + minLevel);
+            }
+            return new LogFilter(this);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.adobs.logscope.core;
+
+/**
+ * On-disk encoding of a capture session.
+ */
+public enum LogFormat {
+
+    /** "HH:mm:ss.SSS : [LEVEL/tag] msg" lines in .txt segments. */
+    TEXT(".txt"),
+
+    /** Compact records in .lsb segments, see BinaryLogFormat. Always uses the channel sink. */
+    BINARY(".lsb");
+
+    private final String extension;
+
+    LogFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
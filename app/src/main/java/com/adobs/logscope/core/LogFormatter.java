@@ -0,0 +1,106 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * Renders LogRecords into "HH:mm:ss.SSS [thread#tid] : [LEVEL/tag] msg" lines.
+ * Records merged by a LogCollector carry their process after the time:
+ * "HH:mm:ss.SSS {process} [thread#tid] : ..."
+ * Only used from the writer thread, so buffers are reused without locking.
+ */
+final class LogFormatter implements RecordEncoder {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final TagTable tags;
+    private final StackTraceCache stackTraces;
+    private final StringBuilder line = new StringBuilder(256);
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    // Cached "HH:mm:ss" of the last rendered second
+    private final char[] secondPrefix = new char[8];
+    private long cachedSecond = Long.MIN_VALUE;
+
+    LogFormatter(TagTable tags, StackTraceCache stackTraces) {
+        this.tags = tags;
+        this.stackTraces = stackTraces;
+    }
+
+    /**
+     * Formats the record into the internal buffer and returns it (valid until the next call).
+     */
+    CharSequence format(LogRecord record) {
+        CharSequence trace = record.throwable != null ? stackTraces.render(record.throwable)
+                : record.stackTrace != null ? stackTraces.render(record.stackTrace) : null;
+        return format(record.timestamp, record.process, record.threadId, record.threadName, record.level,
+                record.tag(tags), record.message, trace);
+    }
+
+    /**
+     * Same layout for already-decoded entries (e.g. binary segments being exported).
+     * A null threadName (segments written before thread capture) omits the thread.
+     */
+    CharSequence format(long timestamp, long threadId, String threadName, int level, String tag, String message,
+                        CharSequence stackTrace) {
+        return format(timestamp, null, threadId, threadName, level, tag, message, stackTrace);
+    }
+
+    CharSequence format(long timestamp, String process, long threadId, String threadName, int level, String tag,
+                        String message, CharSequence stackTrace) {
+        line.setLength(0);
+        appendTime(timestamp);
+        if (process != null) {
+            line.append(" {").append(process).append('}');
+        }
+        if (threadName != null) {
+            line.append(" [").append(threadName).append('#').append(threadId).append(']');
+        }
+        line.append(" : ");
+
+        if (tag != null) {
+            line.append('[').append(LogLevel.label(level)).append('/').append(tag).append("] ");
+        }
+        line.append(message);
+
+        if (stackTrace != null) {
+            line.append("\nStacktrace:\n").append(stackTrace);
+        }
+        return line;
+    }
+
+    @Override
+    public int startSegment(LogSink sink) {
+        stackTraces.reset();
+        return 0;
+    }
+
+    @Override
+    public int encode(LogRecord record, LogSink sink) throws IOException {
+        return sink.appendLine(format(record));
+    }
+
+    private void appendTime(long timestamp) {
+        long second = timestamp / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            long local = timestamp + timeZone.getOffset(timestamp);
+            int secondOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000);
+            putTwoDigits(secondPrefix, 0, secondOfDay / 3600);
+            secondPrefix[2] = ':';
+            putTwoDigits(secondPrefix, 3, (secondOfDay / 60) % 60);
+            secondPrefix[5] = ':';
+            putTwoDigits(secondPrefix, 6, secondOfDay % 60);
+        }
+        int millis = (int) Math.floorMod(timestamp, 1000L);
+        line.append(secondPrefix).append('.')
+                .append((char) ('0' + millis / 100))
+                .append((char) ('0' + (millis / 10) % 10))
+                .append((char) ('0' + millis % 10));
+    }
+
+    private static void putTwoDigits(char[] target, int offset, int value) {
+        target[offset] = (char) ('0' + value / 10);
+        target[offset + 1] = (char) ('0' + value % 10);
+    }
+}
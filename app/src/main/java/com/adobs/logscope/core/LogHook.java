@@ -1,72 +1,230 @@
 package com.adobs.logscope.core;
 
-import android.util.Log;
 import java.lang.reflect.Method;
 
-// ✅ FIXED IMPORTS: Changed 'fake.hook' to 'core.hook'
-import top.niunaijun.blackbox.BlackBoxCore;
-import top.niunaijun.blackbox.core.hook.MethodHook;
-import top.niunaijun.blackbox.core.hook.MethodHookParam;
-
 public class LogHook {
 
     private static final String TAG = "LogScope_Hook";
 
+    // Argument layouts of the hooked android.util.Log overloads
+    static final int SHAPE_TAG_MSG = 0;             // (String tag, String msg)
+    static final int SHAPE_TAG_MSG_THROWABLE = 1;   // (String tag, String msg, Throwable tr)
+    static final int SHAPE_TAG_THROWABLE = 2;       // (String tag, Throwable tr)
+    static final int SHAPE_PRIORITY_TAG_MSG = 3;    // (int priority, String tag, String msg)
+
+    // println carries its level in args[0]
+    private static final byte LEVEL_FROM_ARGS = -1;
+
+    /**
+     * Every overload we capture. Levels are resolved here once, never per call.
+     */
+    static final HookTarget[] TARGETS = {
+            new HookTarget("v", LogLevel.VERBOSE, SHAPE_TAG_MSG),
+            new HookTarget("v", LogLevel.VERBOSE, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("d", LogLevel.DEBUG, SHAPE_TAG_MSG),
+            new HookTarget("d", LogLevel.DEBUG, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("i", LogLevel.INFO, SHAPE_TAG_MSG),
+            new HookTarget("i", LogLevel.INFO, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("w", LogLevel.WARN, SHAPE_TAG_MSG),
+            new HookTarget("w", LogLevel.WARN, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("w", LogLevel.WARN, SHAPE_TAG_THROWABLE),
+            new HookTarget("e", LogLevel.ERROR, SHAPE_TAG_MSG),
+            new HookTarget("e", LogLevel.ERROR, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("wtf", LogLevel.ASSERT, SHAPE_TAG_MSG),
+            new HookTarget("wtf", LogLevel.ASSERT, SHAPE_TAG_MSG_THROWABLE),
+            new HookTarget("wtf", LogLevel.ASSERT, SHAPE_TAG_THROWABLE),
+            new HookTarget("println", LEVEL_FROM_ARGS, SHAPE_PRIORITY_TAG_MSG),
+    };
+
+    // Read once per hooked call; replaced wholesale, never mutated, so no lock is needed
+    private static volatile LogFilter filter = LogFilter.ACCEPT_ALL;
+
+    // When set, Log.isLoggable() answers false for levels/tags the filter drops,
+    // so well-behaved apps skip building those messages at all
+    private static volatile boolean shortCircuitIsLoggable = false;
+
+    /**
+     * Hot-swaps the capture filter. Takes effect on the next hooked log call.
+     */
+    public static void setFilter(LogFilter newFilter) {
+        filter = newFilter != null ? newFilter : LogFilter.ACCEPT_ALL;
+    }
+
+    public static LogFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Note: this changes what the target app observes, so it is off by default.
+     */
+    public static void setShortCircuitIsLoggable(boolean enabled) {
+        shortCircuitIsLoggable = enabled;
+    }
+
     public static void startHooking() {
+        startHooking(new BlackBoxHookEngine());
+    }
+
+    /**
+     * Hooks every TARGETS overload and Log.isLoggable through the given engine.
+     * Runs on the main thread before the hosted app's own code, and records how
+     * long that took in LogMetrics.
+     */
+    public static void startHooking(HookEngine engine) {
+        long start = System.nanoTime();
         try {
             Class<?> logClass = android.util.Log.class;
-            String[] methods = {"v", "d", "i", "w", "e", "wtf"};
-
-            for (String methodName : methods) {
-                // Hook Normal Logs: Log.d(String, String)
-                hookSpecificMethod(logClass, methodName, String.class, String.class);
 
-                // Hook Exception Logs: Log.d(String, String, Throwable)
-                hookSpecificMethod(logClass, methodName, String.class, String.class, Throwable.class);
+            for (HookTarget target : TARGETS) {
+                hookSpecificMethod(engine, logClass, target.methodName, new DispatchHook(target.level, target.shape), target.paramTypes);
             }
+            hookSpecificMethod(engine, logClass, "isLoggable", new IsLoggableHook(), String.class, int.class);
             
             LogManager.write("[System] LogHook Engine Attached Successfully.");
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to initialize LogHook", e);
+            CoreLog.e(TAG, "Failed to initialize LogHook", e);
+        }
+        LogMetrics metrics = LogManager.metrics();
+        if (metrics != null) {
+            metrics.hookInstallNanos = System.nanoTime() - start;
         }
     }
 
-    private static void hookSpecificMethod(Class<?> targetClass, String methodName, Class<?>... paramTypes) {
+    private static void hookSpecificMethod(HookEngine engine, Class<?> targetClass, String methodName,
+                                           HookEngine.AfterHook hook, Class<?>... paramTypes) {
         try {
             Method method = targetClass.getMethod(methodName, paramTypes);
-            
-            BlackBoxCore.get().getHookManager().addMethodHook(method, new MethodHook() {
-                @Override
-                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                    processLog(methodName, param);
-                }
-            });
+            engine.hookAfter(method, hook);
         } catch (NoSuchMethodException e) {
         } catch (Exception e) {
-            Log.e(TAG, "Error hooking method: " + methodName, e);
+            CoreLog.e(TAG, "Error hooking method: " + methodName, e);
         }
     }
 
-    private static void processLog(String methodName, MethodHookParam param) {
+    /**
+     * Single entry point for every hooked overload. Runs on the app's own thread,
+     * so it only hands references to LogManager; rejected logs return before any
+     * conversion or allocation.
+     */
+    static void dispatch(int level, int shape, Object[] args) {
         try {
-            if (param.args == null || param.args.length < 2) return;
+            if (args == null) return;
+
+            if (shape == SHAPE_PRIORITY_TAG_MSG) {
+                if (args.length < 3 || !(args[0] instanceof Integer)) return;
+                level = (Integer) args[0];
+            }
+
+            LogFilter activeFilter = filter;
+            if (!activeFilter.acceptsLevel(level)) return;
 
-            String tag = String.valueOf(param.args[0]);
-            String msg = String.valueOf(param.args[1]);
-            String level = methodName.toUpperCase();
+            String tag;
+            String msg;
+            Throwable tr = null;
 
-            StringBuilder exceptionData = new StringBuilder();
-            if (param.args.length >= 3 && param.args[2] instanceof Throwable) {
-                Throwable tr = (Throwable) param.args[2];
-                exceptionData.append("\nStacktrace:\n").append(Log.getStackTraceString(tr));
+            switch (shape) {
+                case SHAPE_TAG_MSG:
+                    if (args.length < 2) return;
+                    tag = String.valueOf(args[0]);
+                    msg = String.valueOf(args[1]);
+                    break;
+                case SHAPE_TAG_MSG_THROWABLE:
+                    if (args.length < 3) return;
+                    tag = String.valueOf(args[0]);
+                    msg = String.valueOf(args[1]);
+                    tr = args[2] instanceof Throwable ? (Throwable) args[2] : null;
+                    break;
+                case SHAPE_TAG_THROWABLE:
+                    if (args.length < 2) return;
+                    tag = String.valueOf(args[0]);
+                    // Log.w(tag, tr) prints only the trace, with an empty message
+                    msg = "";
+                    tr = args[1] instanceof Throwable ? (Throwable) args[1] : null;
+                    break;
+                case SHAPE_PRIORITY_TAG_MSG:
+                    tag = String.valueOf(args[1]);
+                    msg = String.valueOf(args[2]);
+                    break;
+                default:
+                    return;
             }
 
-            String fullLog = String.format("[%s/%s] %s%s", level, tag, msg, exceptionData.toString());
-            LogManager.write(fullLog);
+            if (activeFilter != LogFilter.ACCEPT_ALL && !activeFilter.accepts(tag, msg)) return;
+
+            LogManager.write((byte) level, tag, msg, tr);
 
         } catch (Exception ex) {
-            Log.e(TAG, "Log processing error", ex);
+            CoreLog.e(TAG, "Log processing error", ex);
+        }
+    }
+
+    /**
+     * Signature and level of one hooked overload.
+     */
+    static final class HookTarget {
+        final String methodName;
+        final byte level;
+        final int shape;
+        final Class<?>[] paramTypes;
+
+        HookTarget(String methodName, byte level, int shape) {
+            this.methodName = methodName;
+            this.level = level;
+            this.shape = shape;
+            this.paramTypes = paramTypesOf(shape);
+        }
+
+        private static Class<?>[] paramTypesOf(int shape) {
+            switch (shape) {
+                case SHAPE_TAG_MSG: return new Class<?>[]{String.class, String.class};
+                case SHAPE_TAG_MSG_THROWABLE: return new Class<?>[]{String.class, String.class, Throwable.class};
+                case SHAPE_TAG_THROWABLE: return new Class<?>[]{String.class, Throwable.class};
+                case SHAPE_PRIORITY_TAG_MSG: return new Class<?>[]{int.class, String.class, String.class};
+                default: throw new IllegalArgumentException("Unknown shape " + shape);
+            }
+        }
+    }
+
+    /**
+     * The one hook class shared by all overloads; only the precomputed level and shape differ.
+     */
+    private static final class DispatchHook implements HookEngine.AfterHook {
+        private final byte level;
+        private final int shape;
+
+        DispatchHook(byte level, int shape) {
+            this.level = level;
+            this.shape = shape;
+        }
+
+        @Override
+        public Object afterHookedMethod(Object[] args) {
+            LogMetrics metrics = LogManager.metrics();
+            if (metrics == null || !LogMetrics.sampleAppCall()) {
+                dispatch(level, shape, args);
+                return HookEngine.KEEP_RESULT;
+            }
+            long start = System.nanoTime();
+            dispatch(level, shape, args);
+            metrics.hookNanos.record(System.nanoTime() - start);
+            return HookEngine.KEEP_RESULT;
+        }
+    }
+
+    private static final class IsLoggableHook implements HookEngine.AfterHook {
+        @Override
+        public Object afterHookedMethod(Object[] args) {
+            if (!shortCircuitIsLoggable) return HookEngine.KEEP_RESULT;
+            if (args == null || args.length < 2 || !(args[1] instanceof Integer)) return HookEngine.KEEP_RESULT;
+
+            LogFilter activeFilter = filter;
+            String tag = args[0] instanceof String ? (String) args[0] : null;
+            // Only ever narrows the answer: never claims a level is loggable when Android says no
+            if (!activeFilter.acceptsLevel((Integer) args[1]) || !activeFilter.acceptsTag(tag)) {
+                return Boolean.FALSE;
+            }
+            return HookEngine.KEEP_RESULT;
         }
     }
 }
@@ -0,0 +1,26 @@
+package com.adobs.logscope.core;
+
+import android.util.Log;
+
+/**
+ * Log priorities carried through the capture pipeline.
+ * Values match android.util.Log so a level can be stored as a single byte.
+ */
+public final class LogLevel {
+
+    public static final byte VERBOSE = Log.VERBOSE;
+    public static final byte DEBUG = Log.DEBUG;
+    public static final byte INFO = Log.INFO;
+    public static final byte WARN = Log.WARN;
+    public static final byte ERROR = Log.ERROR;
+    public static final byte ASSERT = Log.ASSERT;
+
+    // Index == level, so lookup on the writer thread is a plain array read
+    private static final String[] LABELS = {"?", "?", "V", "D", "I", "W", "E", "WTF"};
+
+    private LogLevel() {}
+
+    public static String label(int level) {
+        return level >= 0 && level < LABELS.length ? LABELS[level] : "?";
+    }
+}
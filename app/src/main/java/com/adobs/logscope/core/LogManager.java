@@ -1,130 +1,310 @@
 package com.adobs.logscope.core;
 
 import android.os.Environment;
-import android.util.Log;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class LogManager {
 
     private static final String TAG = "LogManager";
     
-    // SAFETY 1: Bounded Queue to prevent OOM
-    private static final BlockingQueue<String> logQueue = new LinkedBlockingQueue<>(50000);
+    // Rounded up to a power of two by the ring buffer
+    private static final int QUEUE_CAPACITY = 50000;
+    private static final int TAG_TABLE_CAPACITY = 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+    // The system kills the process right after the default handler returns
+    private static final long CRASH_FLUSH_TIMEOUT_MILLIS = 1000;
+
+    // Process-wide: tag IDs stay stable across segments and sessions
+    private static final TagTable tagTable = new TagTable(TAG_TABLE_CAPACITY);
+
+    // SAFETY 1: Bounded, pre-allocated ring to prevent OOM (no lock or node per log).
+    // Assigned before isRunning is set, so readers of isRunning see it.
+    private static LogRingBuffer logQueue;
+    private static Backpressure backpressure;
+    private static ChunkedProducers producers;   // null unless ProducerMode.THREAD_LOCAL
+    private static LogMetrics metrics;           // null when metrics are off
     
     private static volatile boolean isRunning = false;
     private static Thread writerThread;
-    private static BufferedWriter bufferedWriter;
+    private static AsyncLogWriter logWriter;
+    private static boolean crashHandlerInstalled;
 
     /**
      * Initialize file and background thread
      */
     public static void init(String packageName) {
+        init(packageName, LogConfig.defaults());
+    }
+
+    /**
+     * @param config per-session settings (sink type, flush thresholds, rotation, overflow policy,
+     *               producer mode, wait strategy, collector)
+     */
+    public static void init(String packageName, LogConfig config) {
+        init(packageName, getLogFolder(packageName), config);
+    }
+
+    /**
+     * Captures into the given folder instead of Documents/LogScope/&lt;package&gt;,
+     * e.g. a temp directory when the capture path runs on a plain JVM.
+     *
+     * Runs before the hosted app's own code, so it only sets up the ring and
+     * starts the writer: logs are accepted (and wait in the ring) from the
+     * moment this returns, while the writer thread creates the folder, opens
+     * the segment or connects to the collector, and then writes them.
+     */
+    public static void init(String packageName, File appFolder, LogConfig config) {
         if (isRunning) return;
+        long start = System.nanoTime();
+        long sessionMillis = System.currentTimeMillis();
+
+        LogMetrics sessionMetrics = config.getMetricsIntervalMillis() > 0
+                ? new LogMetrics(null, packageName, config.getMetricsIntervalMillis())
+                : null;
+        metrics = sessionMetrics;
 
+        // SAFETY 1 doubles as the early buffer: everything logged before the output is open waits here
+        logQueue = new LogRingBuffer(QUEUE_CAPACITY, config.getWaitStrategy());
+        backpressure = new Backpressure(logQueue, config);
+        producers = config.getProducerMode() == ProducerMode.THREAD_LOCAL
+                ? new ChunkedProducers(config.getChunkRecords(), QUEUE_CAPACITY, logQueue, backpressure)
+                : null;
+        logWriter = new AsyncLogWriter(logQueue, backpressure, producers, tagTable, sessionMetrics, config,
+                () -> openOutput(packageName, appFolder, sessionMillis, sessionMetrics, config));
+        isRunning = true;
+        startWriterThread();
+        if (config.isFlushOnCrash()) {
+            installCrashHandler();
+        }
+
+        write("--- Session Started: " + packageName + " ---");
+        if (sessionMetrics != null) {
+            sessionMetrics.initNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Writer thread: opens the session's output. If that fails no more logs are accepted.
+     */
+    private static AsyncLogWriter.Output openOutput(String packageName, File appFolder, long sessionMillis,
+                                                    LogMetrics sessionMetrics, LogConfig config) throws IOException {
         try {
-            // Saving logs in "Documents/LogScope" (Better for Android 11+)
-            File root = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS), "LogScope");
-            File appFolder = new File(root, packageName);
-            
-            if (!appFolder.exists() && !appFolder.mkdirs()) {
-                Log.e(TAG, "Critical Error: Failed to create directories at " + appFolder.getAbsolutePath());
-                return;
+            AsyncLogWriter.Output output;
+            String destination;
+            // Metrics go next to the capture: the package folder the collector writes to, or our own
+            File metricsFolder;
+
+            String timeStamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US)
+                    .format(new Date(sessionMillis));
+
+            // One session for all processes of the app, written by the host's LogCollector
+            LogSink sink = config.getCollectorName() != null ? LogCollector.connect(packageName, config) : null;
+            if (sink != null) {
+                // SAFETY 3 as well: records still buffered for the socket die with the process
+                appFolder.mkdirs();
+                // If the collector goes away mid-session, the rest goes to this process's own segments
+                output = new AsyncLogWriter.Output(null, sink, openCrashRegion(appFolder, timeStamp, config), () -> {
+                    LogSegments segments = new LogSegments(appFolder, timeStamp, config);
+                    return new AsyncLogWriter.Output(segments, segments.open(), null);
+                });
+                destination = "collector " + config.getCollectorName();
+                metricsFolder = new File(appFolder.getParentFile(), packageOf(packageName));
+            } else {
+                if (!appFolder.exists() && !appFolder.mkdirs()) {
+                    throw new IOException("Critical Error: Failed to create directories at "
+                            + appFolder.getAbsolutePath());
+                }
+
+                // SAFETY 2: Rolling segments so a long session never grows one multi-GB file
+                LogSegments segments = new LogSegments(appFolder, timeStamp, config);
+                sink = segments.open();
+                output = new AsyncLogWriter.Output(segments, sink, openCrashRegion(appFolder, timeStamp, config));
+                destination = segments.currentFile().getAbsolutePath();
+                metricsFolder = appFolder;
             }
 
-            String timeStamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US).format(new Date());
-            File currentLogFile = new File(appFolder, "Log_" + timeStamp + ".txt");
-            
-            // SAFETY 2: 8KB Buffer for efficient writing
-            bufferedWriter = new BufferedWriter(new FileWriter(currentLogFile, true), 8192);
-            
-            isRunning = true;
-            startWriterThread();
+            if (sessionMetrics != null && (metricsFolder.isDirectory() || metricsFolder.mkdirs())) {
+                sessionMetrics.file = LogMetrics.fileFor(metricsFolder, packageName);
+            }
+            CoreLog.d(TAG, "LogManager Initialized at: " + destination);
+            return output;
+        } catch (IOException e) {
+            isRunning = false;
+            throw e;
+        }
+    }
 
-            write("--- Session Started: " + packageName + " ---");
-            Log.d(TAG, "LogManager Initialized at: " + currentLogFile.getAbsolutePath());
+    /**
+     * Where captures of a (virtual) process are written: Documents/LogScope/<package>.
+     */
+    public static File getLogFolder(String packageName) {
+        // Saving logs in "Documents/LogScope" (Better for Android 11+)
+        File root = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS), "LogScope");
+        return new File(root, packageName);
+    }
 
+    /**
+     * "com.app:remote" -&gt; "com.app": the package a (virtual) process belongs to.
+     */
+    public static String packageOf(String processName) {
+        int colon = processName.indexOf(':');
+        return colon > 0 ? processName.substring(0, colon) : processName;
+    }
+
+    /**
+     * SAFETY 3: Whatever the last session left in the crash region (it did not shut
+     * down cleanly) is saved as Log_<session>_crash.txt before the region is reused.
+     */
+    private static CrashRegion openCrashRegion(File appFolder, String sessionId, LogConfig config) {
+        try {
+            File recovered = CrashRegion.recover(appFolder);
+            if (recovered != null) {
+                CoreLog.w(TAG, "Recovered last records of a crashed session: " + recovered.getName());
+            }
+            if (config.getCrashRegionRecords() == 0) return null;
+            return CrashRegion.open(new File(appFolder, CrashRegion.FILE_NAME), sessionId,
+                    config.getCrashRegionRecords());
         } catch (IOException e) {
-            Log.e(TAG, "Error creating log file: ", e);
+            CoreLog.e(TAG, "Crash region unavailable: ", e);
+            return null;
         }
     }
 
     /**
-     * Background Writer Thread
+     * Chains in front of the existing default handler: records the crash, drains
+     * the queue synchronously, then lets the original handler kill the process.
      */
-    private static void startWriterThread() {
-        writerThread = new Thread(() -> {
-            int logCount = 0;
-            
-            while (isRunning || !logQueue.isEmpty()) {
-                try {
-                    // Blocking call - CPU sleeps until new log arrives
-                    String message = logQueue.take(); 
-                    
-                    if (bufferedWriter != null) {
-                        bufferedWriter.write(message);
-                        bufferedWriter.newLine();
-                        
-                        // PERFORMANCE FIX: Flush only every 100 logs
-                        logCount++;
-                        if (logCount % 100 == 0) {
-                            bufferedWriter.flush();
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (IOException e) {
-                    Log.e(TAG, "Disk Write Failed: ", e);
+    private static synchronized void installCrashHandler() {
+        if (crashHandlerInstalled) return;
+        crashHandlerInstalled = true;
+
+        final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> {
+            try {
+                if (isRunning) {
+                    write(LogLevel.ASSERT, "AndroidRuntime", "FATAL EXCEPTION: " + thread.getName(), error);
+                    shutdown(CRASH_FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
                 }
+            } catch (Throwable ignored) {
+                // Never let logging get in the way of the crash itself
+            }
+            if (previous != null) {
+                previous.uncaughtException(thread, error);
+            } else {
+                // Plain JVM without a default handler: report it the way ThreadGroup would have
+                System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+                error.printStackTrace();
             }
-            closeSilently();
-        }, "LogScope-AsyncWriter");
-        
+        });
+    }
+
+    /**
+     * Background Writer Thread
+     */
+    private static void startWriterThread() {
+        writerThread = new Thread(logWriter, "LogScope-AsyncWriter");
         writerThread.setPriority(Thread.MIN_PRIORITY); 
         writerThread.start();
     }
 
     /**
-     * API called by LogHook (Non-blocking)
+     * Internal session line without level/tag (e.g. "--- Session Started ---")
      */
     public static void write(String message) {
+        write(LogLevel.INFO, null, message, null);
+    }
+
+    /**
+     * API called by LogHook (Non-blocking).
+     * Only stores references and the interned tag ID; the writer thread does all formatting.
+     */
+    public static void write(byte level, String tag, String message, Throwable throwable) {
         if (!isRunning) return;
 
-        try {
-            String time = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US).format(new Date());
-            String formattedLog = time + " : " + message;
-            
-            // If queue is full, drop log instead of crashing app
-            if (!logQueue.offer(formattedLog)) {
-                Log.e(TAG, "Log Queue Full! Dropping log.");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing log message", e);
+        int tagId = tag != null ? tagTable.intern(tag) : TagTable.NO_ID;
+        String rawTag = tagId == TagTable.NO_ID ? tag : null;
+
+        LogMetrics activeMetrics = metrics;
+        boolean timed = activeMetrics != null && LogMetrics.sampleAppCall();
+        long start = timed ? System.nanoTime() : 0;
+
+        long now = System.currentTimeMillis();
+        if (producers != null) {
+            producers.append(now, level, tagId, rawTag, message, throwable);
+        } else {
+            // If queue is full, the overflow policy decides; drops are counted and
+            // summarised in the log itself (a Log.e here would be hooked and re-enter)
+            backpressure.publish(now, level, tagId, rawTag, message, throwable, Thread.currentThread());
+        }
+
+        if (timed) {
+            activeMetrics.enqueueNanos.record(System.nanoTime() - start);
         }
     }
 
+    /**
+     * Null when metrics are off (LogConfig.getMetricsIntervalMillis() == 0).
+     */
+    static LogMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Records lost to the overflow policy since init.
+     */
+    public static long getDroppedCount() {
+        return backpressure != null ? backpressure.totalDropped() : 0;
+    }
+
+    /**
+     * Encoded bytes written (or streamed to the collector) since init, as of the
+     * writer's last batch.
+     */
+    public static long getBytesWritten() {
+        AsyncLogWriter writer = logWriter;
+        return writer != null ? writer.bytesWritten() : 0;
+    }
+
+    /**
+     * Tag intern statistics (distinct tags, hit rate, overflow).
+     */
+    public static TagTable getTagTable() {
+        return tagTable;
+    }
+
     public static void shutdown() {
-        isRunning = false;
-        if (writerThread != null) {
-            writerThread.interrupt();
-        }
+        shutdown(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
     }
 
-    private static void closeSilently() {
-        if (bufferedWriter != null) {
-            try {
-                bufferedWriter.flush();
-                bufferedWriter.close();
-            } catch (IOException ignored) {}
+    /**
+     * Stops accepting logs and waits for the writer to drain and close the segment.
+     * Records still queued at the deadline are abandoned (and reported in the log).
+     *
+     * @return true if the writer finished within the timeout
+     */
+    public static boolean shutdown(long timeout, TimeUnit unit) {
+        isRunning = false;
+        AsyncLogWriter writer = logWriter;
+        Thread thread = writerThread;
+        if (writer == null || thread == null) return true;
+
+        long timeoutNanos = unit.toNanos(timeout);
+        writer.stop(System.nanoTime() + timeoutNanos);
+        // A crash on the writer thread itself: nothing to wait for
+        if (thread == Thread.currentThread()) return false;
+
+        try {
+            // A little beyond the drain deadline for closing the segment
+            thread.join(TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + 200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return !thread.isAlive();
     }
 }
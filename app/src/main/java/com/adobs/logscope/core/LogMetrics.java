@@ -0,0 +1,194 @@
+package com.adobs.logscope.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What capturing costs a hosted app, measured by the pipeline itself: time
+ * spent in the hooked Log call and in the hand-off to the ring, queue depth,
+ * writer batch sizes, bytes, flush latency and drops.
+ *
+ * App threads only touch the histograms, which never allocate or lock (see
+ * Histogram), and only for one call in APP_SAMPLE_RATE: the clock reads cost
+ * about as much as the hand-off being measured. Everything else is updated and
+ * read on the writer thread, which also rewrites Metrics_&lt;process&gt;.txt next
+ * to the capture every LogConfig.getMetricsIntervalMillis() and when the session
+ * closes. With an interval of 0, the default, there is no LogMetrics at all and
+ * no call site so much as reads the clock.
+ */
+public final class LogMetrics {
+
+    private static final String TAG = "LogManager";
+
+    static final String FILE_PREFIX = "Metrics_";
+    static final String FILE_SUFFIX = ".txt";
+
+    static final int APP_SAMPLE_RATE = 64;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // Recorded on app threads
+    final Histogram hookNanos = new Histogram();
+    final Histogram enqueueNanos = new Histogram();
+
+    // Recorded on the writer thread
+    final Histogram queueDepth = new Histogram();
+    final Histogram batchRecords = new Histogram();
+    final Histogram flushNanos = new Histogram();
+    long recordsWritten;
+    long bytesWritten;
+    long recordsCollapsed;
+    long openNanos = -1;    // opening segments or the collector stream
+    long bufferedAtOpen;    // records that waited in the ring meanwhile
+
+    // Startup on the thread that called LogManager.init (-1 = not measured)
+    volatile long initNanos = -1;
+    volatile long hookInstallNanos = -1;
+
+    // Set on the writer thread before its first snapshot; null leaves metrics unwritten
+    File file;
+    private final String label;
+    private final long intervalMillis;
+    private final long startMillis = System.currentTimeMillis();
+    private long nextSnapshotMillis;
+    private boolean failed;
+
+    LogMetrics(File file, String label, long intervalMillis) {
+        this.file = file;
+        this.label = label;
+        this.intervalMillis = intervalMillis;
+        this.nextSnapshotMillis = startMillis + intervalMillis;
+    }
+
+    /**
+     * App threads: whether to time this call (no shared state, so no contention).
+     */
+    static boolean sampleAppCall() {
+        return ThreadLocalRandom.current().nextInt(APP_SAMPLE_RATE) == 0;
+    }
+
+    /**
+     * Metrics file of a process (or of the collector) in a capture folder.
+     */
+    static File fileFor(File folder, String processName) {
+        // ':' of "com.app:remote" is not allowed on shared storage
+        return new File(folder, FILE_PREFIX + processName.replace(':', '_') + FILE_SUFFIX);
+    }
+
+    /**
+     * Metrics files in a package folder, sorted by name.
+     */
+    public static File[] listFiles(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        return files;
+    }
+
+    /** Writer thread: snapshots once the interval has passed. */
+    void maybeSnapshot(long nowMillis, Backpressure backpressure) {
+        if (nowMillis - nextSnapshotMillis < 0) return;
+        nextSnapshotMillis = nowMillis + intervalMillis;
+        snapshot(nowMillis, backpressure);
+    }
+
+    /** Writer thread: rewrites the metrics file (via a temp file, so the UI never reads half of it). */
+    void snapshot(long nowMillis, Backpressure backpressure) {
+        if (file == null) return;
+        File partial = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(partial), StandardCharsets.UTF_8)) {
+            out.write(format(nowMillis, backpressure));
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            fail(new IOException("Could not write " + file.getName()));
+        }
+    }
+
+    String format(long nowMillis, Backpressure backpressure) {
+        long seconds = Math.max(1, (nowMillis - startMillis) / 1000);
+        StringBuilder out = new StringBuilder(1024);
+        out.append("LogScope metrics: ").append(label).append('\n');
+        out.append("Updated ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date(nowMillis)))
+                .append(", running ").append(seconds).append(" s\n\n");
+
+        out.append(String.format(Locale.US, "Records written   %d (%d/s)%n", recordsWritten, recordsWritten / seconds));
+        out.append(String.format(Locale.US, "Bytes written     %s (%s/s)%n", bytes(bytesWritten),
+                bytes(bytesWritten / seconds)));
+        out.append(String.format(Locale.US, "Collapsed repeats %d%n", recordsCollapsed));
+        out.append("Dropped           ").append(backpressure.totalDropped()).append(" (");
+        backpressure.appendTotals(out);
+        out.append(")\n");
+        appendStartup(out);
+        out.append('\n');
+
+        out.append(String.format(Locale.US, "%-22s %9s %9s %9s %9s %9s %9s %9s%n",
+                "", "count", "p50", "p90", "p99", "p99.9", "max", "mean"));
+        row(out, "Hook time (us)", hookNanos.snapshot(), 1000);
+        row(out, "Enqueue latency (us)", enqueueNanos.snapshot(), 1000);
+        row(out, "Flush latency (us)", flushNanos.snapshot(), 1000);
+        row(out, "Queue depth", queueDepth.snapshot(), 1);
+        row(out, "Writer batch", batchRecords.snapshot(), 1);
+        out.append("Hook time and enqueue latency: 1 in ").append(APP_SAMPLE_RATE).append(" calls timed\n");
+        return out.toString();
+    }
+
+    private void appendStartup(StringBuilder out) {
+        long init = initNanos;
+        long hooks = hookInstallNanos;
+        if (init < 0 && hooks < 0 && openNanos < 0) return;
+        out.append("Startup          ");
+        if (init >= 0) {
+            out.append(String.format(Locale.US, " init %.2f ms,", init / 1e6));
+        }
+        if (hooks >= 0) {
+            out.append(String.format(Locale.US, " hooks %.2f ms,", hooks / 1e6));
+        }
+        if (init >= 0 || hooks >= 0) {
+            // Both run on the thread that started the process, before the app's own code
+            out.setLength(out.length() - 1);
+            out.append(" (caller thread);");
+        }
+        if (openNanos >= 0) {
+            out.append(String.format(Locale.US, " open %.2f ms (writer thread), %d records buffered meanwhile",
+                    openNanos / 1e6, bufferedAtOpen));
+        }
+        out.append('\n');
+    }
+
+    private static void row(StringBuilder out, String name, Histogram.Snapshot snapshot, double unit) {
+        out.append(String.format(Locale.US, "%-22s %9d", name, snapshot.count));
+        if (snapshot.count == 0) {
+            out.append('\n');
+            return;
+        }
+        for (double percentile : PERCENTILES) {
+            out.append(String.format(Locale.US, " %9.1f", snapshot.percentile(percentile) / unit));
+        }
+        out.append(String.format(Locale.US, " %9.1f %9.1f%n", snapshot.max / unit, snapshot.mean() / unit));
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private void fail(IOException e) {
+        if (failed) return;
+        failed = true;
+        CoreLog.e(TAG, "Metrics file unavailable: " + file.getAbsolutePath(), e);
+    }
+}
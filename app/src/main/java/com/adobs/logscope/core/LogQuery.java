@@ -0,0 +1,119 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable search over captured segments, e.g. "level &gt;= W AND tag = OkHttp
+ * between t1 and t2". Conditions are ANDed; several tags are ORed. Run it with
+ * LogSearch, which uses the segments' .idx sidecars to skip blocks that cannot match.
+ */
+public final class LogQuery {
+
+    private final int minLevel;
+    private final Set<String> tags;          // null = any tag
+    private final long fromMillis;
+    private final long toMillis;
+    private final String messageContains;    // null = any message
+
+    private LogQuery(Builder builder) {
+        this.minLevel = builder.minLevel;
+        this.tags = builder.tags != null ? Collections.unmodifiableSet(new HashSet<>(builder.tags)) : null;
+        this.fromMillis = builder.fromMillis;
+        this.toMillis = builder.toMillis;
+        this.messageContains = builder.messageContains;
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    /**
+     * Text segments do not spell out the level of untagged lines, so those are read
+     * back with level 0 and only match a query without a level bound.
+     */
+    public boolean matches(LogEntry entry) {
+        return entry.getTimestamp() >= fromMillis && entry.getTimestamp() <= toMillis
+                && (minLevel <= LogLevel.VERBOSE || entry.getLevel() >= minLevel)
+                && (tags == null || (entry.getTag() != null && tags.contains(entry.getTag())))
+                && (messageContains == null || entry.getMessage().contains(messageContains));
+    }
+
+    /** Levels this query accepts, as bits of SegmentIndex level masks. */
+    int levelMask() {
+        if (minLevel <= LogLevel.VERBOSE) return -1;
+        int mask = 0;
+        for (int level = minLevel; level < 32; level++) {
+            mask |= 1 << level;
+        }
+        return mask;
+    }
+
+    public static final class Builder {
+
+        private int minLevel = LogLevel.VERBOSE;
+        private Set<String> tags;
+        private long fromMillis = Long.MIN_VALUE;
+        private long toMillis = Long.MAX_VALUE;
+        private String messageContains;
+
+        /** android.util.Log priority, inclusive. */
+        public Builder minLevel(int minLevel) {
+            this.minLevel = minLevel;
+            return this;
+        }
+
+        /** Any of these tags (may be called repeatedly). */
+        public Builder tags(String... tags) {
+            return tags(Arrays.asList(tags));
+        }
+
+        public Builder tags(Collection<String> tags) {
+            if (this.tags == null) {
+                this.tags = new HashSet<>();
+            }
+            this.tags.addAll(tags);
+            return this;
+        }
+
+        /** Inclusive range of System.currentTimeMillis() timestamps. */
+        public Builder between(long fromMillis, long toMillis) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            return this;
+        }
+
+        /** Plain substring match; the index cannot narrow this down. */
+        public Builder messageContains(String text) {
+            this.messageContains = text;
+            return this;
+        }
+
+        public LogQuery build() {
+            if (minLevel < LogLevel.VERBOSE || minLevel > LogLevel.ASSERT) {
+                throw new IllegalArgumentException("minLevel out of range: " + minLevel);
+            }
+            if (fromMillis > toMillis) {
+                throw new IllegalArgumentException("fromMillis is after toMillis");
+            }
+            return new LogQuery(this);
+        }
+    }
+}
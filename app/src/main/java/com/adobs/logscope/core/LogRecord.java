@@ -0,0 +1,69 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+/**
+ * Structured log entry handed from the hooked thread to the writer thread.
+ * Instances are recycled by LogManager, so nothing else may keep a reference.
+ */
+final class LogRecord {
+
+    long timestamp;
+    byte level;
+    int tagId;        // TagTable ID, or TagTable.NO_ID
+    String tag;       // only set when the tag could not be interned; null for internal session lines
+    String message;
+    Throwable throwable;
+    long threadId;
+    String threadName;  // Thread.getName() returns its field, so capturing it costs nothing
+    String process;     // only for records a LogCollector received from another process
+    String stackTrace;  // already rendered (by that process, or a placeholder); throwable is then null
+
+    void set(long timestamp, byte level, int tagId, String tag, String message, Throwable throwable, Thread thread) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.tagId = tagId;
+        this.tag = tag;
+        this.message = message;
+        this.throwable = throwable;
+        this.threadId = thread.getId();
+        this.threadName = thread.getName();
+        this.process = null;
+        this.stackTrace = null;
+    }
+
+    /**
+     * A record decoded from another process's stream (see LogCollector).
+     */
+    void set(LogEntry entry, int tagId, String tag, String process) {
+        this.timestamp = entry.getTimestamp();
+        this.level = (byte) entry.getLevel();
+        this.tagId = tagId;
+        this.tag = tag;
+        this.message = entry.getMessage();
+        this.throwable = null;
+        this.threadId = entry.getThreadId();
+        this.threadName = entry.getThreadName();
+        this.process = process;
+        this.stackTrace = entry.getStackTrace();
+    }
+
+    /**
+     * Resolves the tag on the writer side.
+     */
+    String tag(TagTable tags) {
+        return tagId != TagTable.NO_ID ? tags.name(tagId) : tag;
+    }
+
+    /**
+     * Drops references so a pooled record does not keep app objects alive.
+     */
+    void clear() {
+        tag = null;
+        message = null;
+        throwable = null;
+        threadName = null;
+        process = null;
+        stackTrace = null;
+    }
+}
@@ -0,0 +1,265 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated multi-producer / single-consumer ring of reusable LogRecord slots.
+ * Producers claim a sequence with a CAS and never take a lock; the writer thread
+ * reads slots in place and releases them by advancing its own sequence.
+ */
+final class LogRingBuffer {
+
+    interface Handler {
+        void onRecord(LogRecord record) throws IOException;
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000L;
+
+    private final LogRecord[] slots;
+    private final int mask;
+
+    // published[i] holds the sequence last written into slot i (-1 = never)
+    private final AtomicLongArray published;
+    private final AtomicLong claimSequence = new AtomicLong(-1);
+    private final AtomicLong consumerSequence = new AtomicLong(-1);
+
+    private final WaitStrategy waitStrategy;
+    private volatile Thread parkedConsumer;
+    private volatile Thread consumerThread;
+    private volatile boolean wakeRequested;
+    private volatile boolean shedRequested;
+    private volatile boolean signalled;
+
+    LogRingBuffer(int minCapacity, WaitStrategy waitStrategy) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        this.slots = new LogRecord[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        this.waitStrategy = waitStrategy;
+
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new LogRecord();
+            published.set(i, -1);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Called from any app thread. Returns false instead of blocking when the ring is full.
+     */
+    boolean tryPublish(long timestamp, byte level, int tagId, String tag, String message, Throwable throwable,
+                       Thread thread) {
+        long sequence = claim();
+        if (sequence < 0) return false;
+        slots[(int) sequence & mask].set(timestamp, level, tagId, tag, message, throwable, thread);
+        publish(sequence);
+        return true;
+    }
+
+    /**
+     * Same for a record received from another process (LogCollector's merge thread).
+     */
+    boolean tryPublish(LogEntry entry, int tagId, String tag, String process) {
+        long sequence = claim();
+        if (sequence < 0) return false;
+        slots[(int) sequence & mask].set(entry, tagId, tag, process);
+        publish(sequence);
+        return true;
+    }
+
+    /**
+     * @return the claimed sequence, or -1 if the ring is full
+     */
+    private long claim() {
+        long current;
+        long next;
+        do {
+            current = claimSequence.get();
+            next = current + 1;
+            if (next - slots.length > consumerSequence.get()) {
+                return -1;
+            }
+        } while (!claimSequence.compareAndSet(current, next));
+        return next;
+    }
+
+    private void publish(long sequence) {
+        // Volatile store: pairs with the consumer's parkedConsumer write (see await)
+        published.set((int) sequence & mask, sequence);
+
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            Thread consumer = parkedConsumer;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+    }
+
+    /**
+     * Writer thread only. Hands up to maxRecords published records to the handler,
+     * in sequence order, and frees each slot once handled.
+     */
+    int drain(Handler handler, int maxRecords) throws IOException {
+        long next = consumerSequence.get() + 1;
+        int count = 0;
+
+        while (count < maxRecords) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break;
+            }
+            LogRecord slot = slots[index];
+            try {
+                handler.onRecord(slot);
+            } finally {
+                slot.clear();
+                consumerSequence.lazySet(next);
+            }
+            next++;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Producer side of DROP_OLDEST: asks the writer to discard queued records.
+     */
+    void requestShed() {
+        shedRequested = true;
+        Thread consumer = consumerThread;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Writer thread only. If shedding was requested, discards the oldest published
+     * records until at most targetSize remain. Records at keepLevel or above are
+     * still handed to the handler rather than discarded.
+     *
+     * @return number of records discarded
+     */
+    int shedIfRequested(int targetSize, byte keepLevel, Handler handler) throws IOException {
+        if (!shedRequested) return 0;
+        shedRequested = false;
+
+        long next = consumerSequence.get() + 1;
+        int count = 0;
+        while (size() > targetSize) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break;
+            }
+            LogRecord slot = slots[index];
+            try {
+                if (slot.level >= keepLevel) {
+                    handler.onRecord(slot);
+                } else {
+                    count++;
+                }
+            } finally {
+                slot.clear();
+                consumerSequence.lazySet(next);
+            }
+            next++;
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return claimSequence.get() == consumerSequence.get();
+    }
+
+    /**
+     * Number of claimed but not yet consumed slots (approximate while producers run).
+     */
+    int size() {
+        return (int) (claimSequence.get() - consumerSequence.get());
+    }
+
+    /**
+     * Makes the current (or next) await() return once. Used by sources other than
+     * the ring itself, e.g. ChunkedProducers handing over a chunk.
+     */
+    void signal() {
+        signalled = true;
+        Thread consumer = consumerThread;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Makes the current and every later await() return immediately. Used at shutdown
+     * instead of interrupting the writer, because an interrupt closes a FileChannel.
+     */
+    void wakeUp() {
+        wakeRequested = true;
+        Thread consumer = consumerThread;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Writer thread only. Returns when the next record is published, the timeout
+     * elapses, wakeUp() or signal() is called or the thread is interrupted.
+     */
+    void await(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        int tries = 0;
+        consumerThread = Thread.currentThread();
+
+        while (!hasNext() && !wakeRequested && !shedRequested && !signalled) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            switch (waitStrategy) {
+                case BLOCKING:
+                    parkedConsumer = Thread.currentThread();
+                    if (!hasNext() && !wakeRequested && !shedRequested && !signalled) {
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                    parkedConsumer = null;
+                    break;
+
+                case SLEEPING:
+                    if (tries < SPIN_TRIES) {
+                        tries++;
+                    } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                        tries++;
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(this, Math.min(SLEEP_NANOS, remaining));
+                    }
+                    break;
+
+                case YIELDING:
+                    if (tries < SPIN_TRIES) {
+                        tries++;
+                    } else {
+                        Thread.yield();
+                    }
+                    break;
+            }
+        }
+        signalled = false;
+    }
+
+    private boolean hasNext() {
+        long next = consumerSequence.get() + 1;
+        return published.get((int) next & mask) == next;
+    }
+}
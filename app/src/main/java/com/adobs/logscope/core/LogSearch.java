@@ -0,0 +1,353 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs a LogQuery over the segments of a package folder, text or binary, plain or .gz.
+ *
+ * Segments with a .idx sidecar (see SegmentIndex) are pruned as a whole when
+ * their blocks cannot match, and otherwise only the candidate blocks are read:
+ * plain files seek to them, .gz files still inflate the bytes in between but
+ * never parse them. Segments without one (the live segment, or a session that
+ * was killed) are scanned in full. Plain Java, call it off the UI thread.
+ */
+public final class LogSearch {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Records merged from several threads may go slightly back in time
+    private static final long CLOCK_SLACK_MILLIS = 60L * 60 * 1000;
+    // "HH:mm:ss.SSS"
+    private static final int TIME_PREFIX = 12;
+    private static final String TRACE_HEADER = "Stacktrace:";
+
+    /** Receives matches in segment order; return false to stop the search. */
+    public interface Visitor {
+        boolean visit(LogEntry entry);
+    }
+
+    private LogSearch() {}
+
+    /**
+     * Searches every segment of the folder, oldest session first. Recovered
+     * crash files are not included; their records are also in the segments.
+     *
+     * @return number of matches passed to the visitor
+     */
+    public static long search(File folder, LogQuery query, Visitor visitor) throws IOException {
+        Run run = new Run(query, visitor);
+        for (File segment : listSegments(folder)) {
+            search(segment, run);
+            if (run.stopped) break;
+        }
+        return run.matches;
+    }
+
+    /**
+     * @return number of matches passed to the visitor
+     */
+    public static long searchSegment(File segment, LogQuery query, Visitor visitor) throws IOException {
+        Run run = new Run(query, visitor);
+        search(segment, run);
+        return run.matches;
+    }
+
+    /**
+     * Segment files of a folder, oldest first (by session and segment number).
+     */
+    public static File[] listSegments(File folder) {
+        File[] files = folder.listFiles((dir, name) -> {
+            if (!name.startsWith(LogSegments.PREFIX) || name.endsWith(CrashRegion.RECOVERED_SUFFIX)) return false;
+            String plain = name.endsWith(LogSegments.COMPRESSED_SUFFIX)
+                    ? name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length())
+                    : name;
+            return plain.endsWith(LogFormat.TEXT.getExtension()) || plain.endsWith(LogFormat.BINARY.getExtension());
+        });
+        if (files == null) return new File[0];
+        Arrays.sort(files, LogSegments.ORDER);
+        return files;
+    }
+
+    private static void search(File segment, Run run) throws IOException {
+        if (!segment.isFile()) {
+            // Compressed since it was listed
+            segment = new File(segment.getPath() + LogSegments.COMPRESSED_SUFFIX);
+            if (!segment.isFile()) return;
+        }
+        boolean binary = isBinary(segment);
+        SegmentIndex index = SegmentIndex.load(segment);
+
+        try (SegmentInput input = new SegmentInput(segment)) {
+            if (index == null || index.format != (binary ? LogFormat.BINARY : LogFormat.TEXT)) {
+                if (binary) {
+                    readBinary(new BinaryLogReader(segment), run);
+                } else {
+                    readText(input.range(0, Long.MAX_VALUE), sessionStart(segment), run);
+                }
+                return;
+            }
+
+            BitSet blocks = index.candidates(run.query);
+            int block = blocks.nextSetBit(0);
+            while (block >= 0 && !run.stopped) {
+                // Adjacent candidate blocks are read as one range
+                int last = block;
+                while (blocks.get(last + 1)) last++;
+                InputStream range = input.range(index.offsets[block], index.blockEnd(last));
+                if (binary) {
+                    readBinary(new BinaryLogReader(range, index.baseTimestamps[block]), run);
+                } else {
+                    readText(range, index.minTimestamps[block], run);
+                }
+                block = blocks.nextSetBit(last + 1);
+            }
+        }
+    }
+
+    private static void readBinary(BinaryLogReader reader, Run run) throws IOException {
+        try {
+            LogEntry entry;
+            while (!run.stopped && (entry = reader.next()) != null) {
+                run.offer(entry);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Text lines only carry the time of day; the date comes from startMillis, a
+     * time no later than the first record, and rolls over as the clock wraps.
+     */
+    private static void readText(InputStream in, long startMillis, Run run) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        TimeZone timeZone = TimeZone.getDefault();
+        long previous = startMillis;
+
+        String header = null;
+        StringBuilder message = new StringBuilder();
+        StringBuilder trace = null;
+        String line;
+        while (!run.stopped) {
+            line = reader.readLine();
+            if (line == null || isRecordStart(line)) {
+                if (header != null) {
+                    long timestamp = resolveTime(header, previous, timeZone);
+                    previous = timestamp;
+                    run.offer(parseText(header, timestamp, message, trace));
+                }
+                if (line == null) break;
+                header = line;
+                message.setLength(0);
+                trace = null;
+            } else if (header == null) {
+                // Tail of a record that started before this range
+            } else if (trace != null) {
+                trace.append('\n').append(line);
+            } else if (line.equals(TRACE_HEADER)) {
+                trace = new StringBuilder();
+            } else {
+                message.append('\n').append(line);
+            }
+        }
+    }
+
+    /**
+     * "HH:mm:ss.SSS {process} [thread#tid] : [L/tag] msg"; all but the time and the
+     * message are optional.
+     */
+    private static LogEntry parseText(String header, long timestamp, StringBuilder continuation, StringBuilder trace) {
+        int p = TIME_PREFIX;
+        String process = null;
+        if (header.startsWith(" {", p)) {
+            int end = header.indexOf('}', p);
+            if (end > 0) {
+                process = header.substring(p + 2, end);
+                p = end + 1;
+            }
+        }
+        String threadName = null;
+        long threadId = 0;
+        if (header.startsWith(" [", p)) {
+            int end = header.indexOf("] : ", p);
+            int hash = end > 0 ? header.lastIndexOf('#', end) : -1;
+            if (hash > p + 2) {
+                threadName = header.substring(p + 2, hash);
+                threadId = parseLong(header, hash + 1, end);
+                p = end + 1;
+            }
+        }
+        if (header.startsWith(" : ", p)) {
+            p += 3;
+        }
+
+        int level = 0;
+        String tag = null;
+        if (header.startsWith("[", p)) {
+            int slash = header.indexOf('/', p);
+            int close = slash > 0 ? header.indexOf("] ", slash) : -1;
+            int parsed = close > 0 ? levelOf(header, p + 1, slash) : 0;
+            if (parsed > 0) {
+                level = parsed;
+                tag = header.substring(slash + 1, close);
+                p = close + 2;
+            }
+        }
+
+        String message = header.substring(p);
+        if (continuation.length() > 0) {
+            message = message + continuation;
+        }
+        // The trace's own first line break was consumed with the "Stacktrace:" line
+        String stackTrace = trace != null ? trace.substring(Math.min(1, trace.length())) : null;
+        return new LogEntry(timestamp, threadId, threadName, level, tag, message, stackTrace, process);
+    }
+
+    private static long resolveTime(String header, long previous, TimeZone timeZone) {
+        int millisOfDay = ((digits(header, 0) * 60 + digits(header, 3)) * 60 + digits(header, 6)) * 1000
+                + digits(header, 9) * 10 + (header.charAt(11) - '0');
+        long local = previous + timeZone.getOffset(previous);
+        long timestamp = previous - Math.floorMod(local, MILLIS_PER_DAY) + millisOfDay;
+        if (timestamp < previous - CLOCK_SLACK_MILLIS) {
+            timestamp += MILLIS_PER_DAY;
+        }
+        return timestamp;
+    }
+
+    private static boolean isRecordStart(String line) {
+        if (line.length() < TIME_PREFIX) return false;
+        for (int i = 0; i < TIME_PREFIX; i++) {
+            char c = line.charAt(i);
+            boolean ok = i == 2 || i == 5 ? c == ':' : i == 8 ? c == '.' : c >= '0' && c <= '9';
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    private static int digits(String s, int offset) {
+        return (s.charAt(offset) - '0') * 10 + (s.charAt(offset + 1) - '0');
+    }
+
+    private static long parseLong(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int levelOf(String s, int from, int to) {
+        for (int level = LogLevel.VERBOSE; level <= LogLevel.ASSERT; level++) {
+            String label = LogLevel.label(level);
+            if (label.length() == to - from && s.startsWith(label, from)) return level;
+        }
+        return 0;
+    }
+
+    private static boolean isBinary(File segment) {
+        String name = segment.getName();
+        return name.endsWith(LogFormat.BINARY.getExtension())
+                || name.endsWith(LogFormat.BINARY.getExtension() + LogSegments.COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Session start from "Log_yyyy-MM-dd_HH-mm-ss_NNN.txt", the date base of an unindexed text segment.
+     */
+    private static long sessionStart(File segment) {
+        String name = segment.getName();
+        int start = LogSegments.PREFIX.length();
+        int end = start + "yyyy-MM-dd_HH-mm-ss".length();
+        if (name.length() >= end) {
+            try {
+                return new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US).parse(name.substring(start, end))
+                        .getTime();
+            } catch (ParseException ignored) {
+            }
+        }
+        return segment.lastModified() - MILLIS_PER_DAY + 1;
+    }
+
+    private static final class Run {
+        final LogQuery query;
+        final Visitor visitor;
+        long matches;
+        boolean stopped;
+
+        Run(LogQuery query, Visitor visitor) {
+            this.query = query;
+            this.visitor = visitor;
+        }
+
+        void offer(LogEntry entry) {
+            if (stopped || !query.matches(entry)) return;
+            matches++;
+            stopped = !visitor.visit(entry);
+        }
+    }
+
+    /**
+     * Forward-only reader of a segment's uncompressed bytes, handing out one
+     * byte range at a time. Skipping is a seek for plain files.
+     */
+    private static final class SegmentInput implements Closeable {
+
+        private final InputStream in;
+        private long position;
+
+        SegmentInput(File segment) throws IOException {
+            InputStream raw = new FileInputStream(segment);
+            this.in = segment.getName().endsWith(LogSegments.COMPRESSED_SUFFIX)
+                    ? new GZIPInputStream(raw, BUFFER_SIZE)
+                    : raw;
+        }
+
+        InputStream range(long start, long end) throws IOException {
+            while (position < start) {
+                long skipped = in.skip(start - position);
+                if (skipped <= 0) break;
+                position += skipped;
+            }
+            return new BufferedInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    if (position >= end) return -1;
+                    int b = in.read();
+                    if (b >= 0) position++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if (position >= end) return -1;
+                    int read = in.read(buffer, offset, (int) Math.min(length, end - position));
+                    if (read > 0) position += read;
+                    return read;
+                }
+            }, BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
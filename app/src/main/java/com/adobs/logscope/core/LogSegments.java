@@ -0,0 +1,353 @@
+package com.adobs.logscope.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rolling segment files of one capture session: Log_<session>_001.txt (or .lsb), _002, ...
+ * The writer thread only opens and closes files; compression of closed segments
+ * and the retention sweep run on a low-priority background thread.
+ * <p>
+ * While a session is open it holds a lock on .session_&lt;session&gt;.lock in the
+ * same folder, so the retention sweep of another process (another process of the
+ * app, or the collector) can tell its live segment from a closed one.
+ */
+final class LogSegments {
+
+    private static final String TAG = "LogManager";
+
+    static final String PREFIX = "Log_";
+    static final String COMPRESSED_SUFFIX = ".gz";
+    // Hidden, and outside every "Log_" listing (sweep, pager, search, archive)
+    static final String LOCK_PREFIX = ".session_";
+    static final String LOCK_SUFFIX = ".lock";
+    // "yyyy-MM-dd_HH-mm-ss"
+    private static final int SESSION_LENGTH = 19;
+
+    /**
+     * Oldest first: by session, then by segment number. Names alone sort _1000
+     * before _999, since numbers are only padded to three digits.
+     */
+    static final Comparator<File> ORDER = (a, b) -> {
+        String nameA = a.getName();
+        String nameB = b.getName();
+        String sessionA = sessionOf(nameA);
+        String sessionB = sessionOf(nameB);
+        if (sessionA == null || sessionB == null) return nameA.compareTo(nameB);
+
+        int bySession = sessionA.compareTo(sessionB);
+        if (bySession != 0) return bySession;
+        int byNumber = Integer.compare(numberOf(nameA), numberOf(nameB));
+        return byNumber != 0 ? byNumber : nameA.compareTo(nameB);
+    };
+
+    /**
+     * Lock files held by this process. Closing any channel to a file drops every
+     * lock the process holds on it (POSIX), so the sweep must never probe these.
+     */
+    private static final Set<String> HELD_LOCKS = ConcurrentHashMap.newKeySet();
+
+    private final File folder;
+    private final String sessionId;
+    private final LogConfig config;
+
+    private File lockFile;
+    private FileChannel lockChannel;
+
+    // Created lazily: sessions that never rotate never start the thread
+    private ExecutorService compressor;
+
+    private int segmentNumber;
+    // Read by the retention sweep on the compressor thread
+    private volatile File currentFile;
+    private LogSink currentSink;
+    private long segmentStartMillis;
+
+    LogSegments(File folder, String sessionId, LogConfig config) {
+        this.folder = folder;
+        this.sessionId = sessionId;
+        this.config = config;
+    }
+
+    /**
+     * Opens the first segment. Called once before the writer thread starts.
+     */
+    LogSink open() throws IOException {
+        lockSession();
+        try {
+            return openNext();
+        } catch (IOException | RuntimeException e) {
+            unlockSession();
+            throw e;
+        }
+    }
+
+    File currentFile() {
+        return currentFile;
+    }
+
+    boolean shouldRotate(long segmentBytes, long nowMillis) {
+        if (segmentBytes <= 0) return false;
+        long maxBytes = config.getMaxSegmentBytes();
+        long maxAge = config.getMaxSegmentAgeMillis();
+        return (maxBytes > 0 && segmentBytes >= maxBytes)
+                || (maxAge > 0 && nowMillis - segmentStartMillis >= maxAge);
+    }
+
+    /**
+     * Closes the current segment, queues it for compression and opens the next one.
+     * Runs on the writer thread between records, so no line is split or lost.
+     */
+    LogSink rotate() throws IOException {
+        File closed = currentFile;
+        currentSink.close();
+        LogSink next = openNext();
+
+        if (config.isCompressSegments() || config.getRetentionBytes() > 0) {
+            background().execute(() -> {
+                if (config.isCompressSegments()) {
+                    compress(closed);
+                }
+                enforceRetention();
+            });
+        }
+        return next;
+    }
+
+    /**
+     * Closes the live segment and lets queued compression finish in the background.
+     */
+    void close() throws IOException {
+        try {
+            if (currentSink != null) {
+                currentSink.close();
+            }
+        } finally {
+            // Queued sweeps already treat this session's older segments as closed
+            unlockSession();
+            if (compressor != null) {
+                compressor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Marks the session live for other processes. Without file locks (some
+     * filesystems) the session is only known to be live inside this process.
+     */
+    private void lockSession() {
+        lockFile = lockFileOf(folder, sessionId);
+        HELD_LOCKS.add(lockFile.getAbsolutePath());
+        try {
+            lockChannel = new RandomAccessFile(lockFile, "rw").getChannel();
+            // Another process's sweep may be probing the new file for a moment
+            FileLock lock = null;
+            for (int attempt = 0; attempt < 10 && lock == null; attempt++) {
+                lock = lockChannel.tryLock();
+                if (lock == null) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            if (lock == null) {
+                CoreLog.w(TAG, "Session lock already held by another process: " + lockFile.getName());
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            CoreLog.w(TAG, "Session lock unavailable: " + lockFile.getName(), e);
+        }
+    }
+
+    private void unlockSession() {
+        if (lockFile == null) return;
+        if (lockChannel != null) {
+            try {
+                // Deleted while still locked, as a probe of a dead session does
+                lockFile.delete();
+                lockChannel.close();
+            } catch (IOException e) {
+                CoreLog.w(TAG, "Session lock not released: " + lockFile.getName(), e);
+            }
+            lockChannel = null;
+        }
+        HELD_LOCKS.remove(lockFile.getAbsolutePath());
+        lockFile = null;
+    }
+
+    static File lockFileOf(File folder, String sessionId) {
+        return new File(folder, LOCK_PREFIX + sessionId + LOCK_SUFFIX);
+    }
+
+    /**
+     * Whether some writer, in this process or another, still has the session open.
+     */
+    static boolean isSessionLive(File folder, String sessionId) {
+        File lock = lockFileOf(folder, sessionId);
+        if (HELD_LOCKS.contains(lock.getAbsolutePath())) return true;
+        if (!lock.isFile()) return false;
+
+        try (FileChannel channel = new RandomAccessFile(lock, "rw").getChannel()) {
+            FileLock probe = channel.tryLock();
+            if (probe == null) return true;
+            // Left behind by a writer that died: nobody can take it any more
+            lock.delete();
+            probe.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            // Cannot tell: keep the session
+            return true;
+        }
+    }
+
+    private LogSink openNext() throws IOException {
+        segmentNumber++;
+        currentFile = new File(folder, String.format(Locale.US, "%s%s_%03d%s",
+                PREFIX, sessionId, segmentNumber, config.getFormat().getExtension()));
+        currentSink = LogSink.open(currentFile, config);
+        segmentStartMillis = System.currentTimeMillis();
+        return currentSink;
+    }
+
+    /**
+     * "Log_2024-05-01_10-00-00_003.txt.gz" -&gt; "2024-05-01_10-00-00"
+     *
+     * @return the session of a segment (or of its crash file), or null for other names
+     */
+    static String sessionOf(String name) {
+        int start = PREFIX.length();
+        if (!name.startsWith(PREFIX) || name.length() <= start + SESSION_LENGTH
+                || name.charAt(start + SESSION_LENGTH) != '_') {
+            return null;
+        }
+        return name.substring(start, start + SESSION_LENGTH);
+    }
+
+    /**
+     * "Log_2024-05-01_10-00-00_1003.txt" -&gt; 1003, or -1 if the name has no segment number.
+     */
+    static int numberOf(String name) {
+        int start = PREFIX.length() + SESSION_LENGTH + 1;
+        int end = start;
+        // 9 digits always fit an int
+        while (end < name.length() && end - start < 9 && name.charAt(end) >= '0' && name.charAt(end) <= '9') {
+            end++;
+        }
+        return end > start ? Integer.parseInt(name.substring(start, end)) : -1;
+    }
+
+    private ExecutorService background() {
+        if (compressor == null) {
+            compressor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "LogScope-Compressor");
+                t.setPriority(Thread.MIN_PRIORITY);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return compressor;
+    }
+
+    private static void compress(File source) {
+        File target = new File(source.getPath() + COMPRESSED_SUFFIX);
+        File partial = new File(target.getPath() + ".tmp");
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(partial), buffer.length)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            CoreLog.e(TAG, "Segment compression failed: " + source.getName(), e);
+            partial.delete();
+            return;
+        }
+
+        if (partial.renameTo(target)) {
+            source.delete();
+        } else {
+            partial.delete();
+        }
+    }
+
+    /**
+     * Deletes the oldest closed segments of this package folder (any session)
+     * until the folder fits the retention cap. A segment is closed once it is
+     * compressed, once its session has a higher-numbered segment, or once no
+     * writer holds its session lock; live segments of other processes are kept.
+     */
+    private void enforceRetention() {
+        long cap = config.getRetentionBytes();
+        if (cap <= 0) return;
+
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(PREFIX) && !name.endsWith(".tmp")
+                && !name.endsWith(SegmentIndex.SUFFIX));
+        if (files == null) return;
+        // Read after listing: a segment opened since then is not in the list
+        File live = currentFile;
+
+        // A segment's .idx sidecar counts towards it and goes with it
+        long total = 0;
+        for (File f : files) {
+            total += f.length() + SegmentIndex.sidecarOf(f).length();
+        }
+        if (total <= cap) return;
+
+        // Per session: the highest segment number, and whether a writer holds its lock
+        Map<String, Integer> lastNumbers = new HashMap<>();
+        for (File f : files) {
+            String session = sessionOf(f.getName());
+            if (session != null) {
+                lastNumbers.merge(session, numberOf(f.getName()), Math::max);
+            }
+        }
+        Map<String, Boolean> liveSessions = new HashMap<>();
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (total <= cap) break;
+            if (f.equals(live) || !isClosed(f, lastNumbers, liveSessions)) continue;
+            File sidecar = SegmentIndex.sidecarOf(f);
+            long length = f.length() + sidecar.length();
+            if (f.delete()) {
+                sidecar.delete();
+                total -= length;
+            }
+        }
+    }
+
+    private boolean isClosed(File segment, Map<String, Integer> lastNumbers, Map<String, Boolean> liveSessions) {
+        String name = segment.getName();
+        if (name.endsWith(COMPRESSED_SUFFIX)) return true;
+        String session = sessionOf(name);
+        if (session == null) return true;
+        int number = numberOf(name);
+        if (number >= 0 && number < lastNumbers.get(session)) return true;
+
+        Boolean sessionLive = liveSessions.get(session);
+        if (sessionLive == null) {
+            sessionLive = isSessionLive(folder, session);
+            liveSessions.put(session, sessionLive);
+        }
+        return !sessionLive;
+    }
+}
@@ -0,0 +1,41 @@
+package com.adobs.logscope.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Destination of formatted lines. Used only from the writer thread.
+ */
+interface LogSink extends Closeable {
+
+    /**
+     * Appends the line plus a newline.
+     *
+     * @return number of bytes the line occupies in the file
+     */
+    int appendLine(CharSequence line) throws IOException;
+
+    /**
+     * Appends raw bytes (binary format).
+     */
+    void appendBytes(byte[] bytes, int offset, int length) throws IOException;
+
+    /**
+     * Pushes buffered bytes to the file (not an fsync).
+     */
+    void flush() throws IOException;
+
+    static LogSink open(File file, LogConfig config) throws IOException {
+        if (config.getFormat() == LogFormat.BINARY) {
+            return new ChannelSink(file, config.getFlushBytes());
+        }
+        switch (config.getSinkType()) {
+            case CHANNEL:
+                return new ChannelSink(file, config.getFlushBytes());
+            case WRITER:
+            default:
+                return new WriterSink(file, config.getFlushBytes());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.adobs.logscope.core;
+
+/**
+ * What LogManager.write does when the ring buffer cannot take a record.
+ * Independently of the policy, E/WTF records may block briefly
+ * (see LogConfig.Builder#blockCritical).
+ */
+public enum OverflowPolicy {
+
+    /** Reject the incoming record. */
+    DROP_NEWEST,
+
+    /** Ask the writer to discard the oldest queued records, then retry briefly. */
+    DROP_OLDEST,
+
+    /** Once the ring is past its high-water mark, keep only 1 in N non-critical records. */
+    SAMPLE
+}
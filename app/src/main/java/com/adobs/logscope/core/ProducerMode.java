@@ -0,0 +1,17 @@
+package com.adobs.logscope.core;
+
+/**
+ * How hooked threads hand records to the writer thread.
+ */
+public enum ProducerMode {
+
+    /** Every thread claims slots in the one shared ring. Lowest latency, default. */
+    SHARED_RING,
+
+    /**
+     * Each thread fills its own chunk and hands it over when full, on a timer
+     * or when the thread dies; the writer merges chunks by timestamp. Removes
+     * cross-thread contention when many threads log at once.
+     */
+    THREAD_LOCAL
+}
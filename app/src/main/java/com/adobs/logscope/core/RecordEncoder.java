@@ -0,0 +1,51 @@
+package com.adobs.logscope.core;
+
+import java.io.IOException;
+
+/**
+ * Turns LogRecords into bytes of one segment. Writer thread only.
+ */
+interface RecordEncoder {
+
+    /**
+     * Called for every new segment before any record; writes the header and
+     * resets per-segment state.
+     *
+     * @return bytes written
+     */
+    int startSegment(LogSink sink) throws IOException;
+
+    /**
+     * Called before the first record of every index block (see SegmentIndex), so a
+     * reader can start decoding at the block's offset without the bytes before it.
+     *
+     * @return the timestamp the next record's delta is relative to (binary only)
+     */
+    default long startBlock() {
+        return 0;
+    }
+
+    /**
+     * A RuntimeException thrown while rendering the record's Throwable leaves the sink untouched.
+     *
+     * @return bytes written
+     */
+    int encode(LogRecord record, LogSink sink) throws IOException;
+
+    static RecordEncoder create(LogConfig config, TagTable tags) {
+        StackTraceCache stackTraces = new StackTraceCache(config.isDedupeStackTraces());
+        return config.getFormat() == LogFormat.BINARY
+                ? new BinaryRecordEncoder(tags, stackTraces)
+                : new LogFormatter(tags, stackTraces);
+    }
+
+    /**
+     * A process streaming to a LogCollector always sends the binary layout,
+     * whatever format the collector writes, and always full traces: "#N"
+     * references would clash with other processes' and cross the collector's
+     * segments. The collector's own encoder dedupes them per output segment.
+     */
+    static RecordEncoder forCollector(TagTable tags) {
+        return new BinaryRecordEncoder(tags, new StackTraceCache(false));
+    }
+}
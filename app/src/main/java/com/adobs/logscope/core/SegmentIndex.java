@@ -0,0 +1,326 @@
+package com.adobs.logscope.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sparse index of one closed segment, stored next to it as Log_..._001.txt.idx
+ * (also for the .gz form of the segment, whose offsets are those of the
+ * uncompressed stream).
+ *
+ * The segment is cut into blocks of a fixed number of records. Per block the
+ * index keeps its byte offset, its timestamp range and a bitmask of the levels in
+ * it (the per-level postings); per tag it keeps the blocks containing that tag,
+ * each with the levels the tag was logged at there. A query such as
+ * "level &gt;= W AND tag = OkHttp" therefore only reads blocks where OkHttp
+ * logged a warning, not every block OkHttp appears in.
+ *
+ * <pre>
+ * header : "LSI" version(1) format(1, LogFormat ordinal) records(4) endOffset(8) blocks(4)
+ * block  : offset(8) minTimestamp(8) maxTimestamp(8) baseTimestamp(8) levelMask(4)
+ * tags   : count(4), then per tag: utf(name) postings(4) [blockNumber(4) levelMask(4)]...
+ * </pre>
+ *
+ * baseTimestamp is what the first binary record's delta is relative to; text
+ * blocks take the date of their "HH:mm:ss.SSS" lines from minTimestamp.
+ */
+final class SegmentIndex {
+
+    static final String SUFFIX = ".idx";
+
+    private static final byte[] MAGIC = {'L', 'S', 'I'};
+    private static final byte VERSION = 1;
+
+    final LogFormat format;
+    final int recordCount;
+    final long endOffset;
+    final int blockCount;
+    final long[] offsets;
+    final long[] minTimestamps;
+    final long[] maxTimestamps;
+    final long[] baseTimestamps;
+    final int[] levelMasks;
+    // Per tag: block number, level mask, block number, level mask, ...
+    final Map<String, int[]> tagBlocks;
+
+    private SegmentIndex(LogFormat format, int recordCount, long endOffset, int blockCount, long[] offsets,
+                         long[] minTimestamps, long[] maxTimestamps, long[] baseTimestamps, int[] levelMasks,
+                         Map<String, int[]> tagBlocks) {
+        this.format = format;
+        this.recordCount = recordCount;
+        this.endOffset = endOffset;
+        this.blockCount = blockCount;
+        this.offsets = offsets;
+        this.minTimestamps = minTimestamps;
+        this.maxTimestamps = maxTimestamps;
+        this.baseTimestamps = baseTimestamps;
+        this.levelMasks = levelMasks;
+        this.tagBlocks = tagBlocks;
+    }
+
+    /**
+     * Sidecar of a segment, for both its plain and its .gz name.
+     */
+    static File sidecarOf(File segment) {
+        String name = segment.getName();
+        if (name.endsWith(LogSegments.COMPRESSED_SUFFIX)) {
+            name = name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length());
+        }
+        return new File(segment.getParentFile(), name + SUFFIX);
+    }
+
+    /**
+     * @return the segment's index, or null if it has none (live segment, indexing
+     * disabled, or a session that was killed before closing it)
+     */
+    static SegmentIndex load(File segment) throws IOException {
+        File file = sidecarOf(segment);
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            for (byte b : MAGIC) {
+                if (in.readByte() != b) throw new IOException("Not a LogScope index: " + file.getName());
+            }
+            if (in.readByte() != VERSION) return null;
+            LogFormat format = LogFormat.values()[in.readByte()];
+            int records = in.readInt();
+            long endOffset = in.readLong();
+            int blocks = in.readInt();
+
+            long[] offsets = new long[blocks];
+            long[] minTimestamps = new long[blocks];
+            long[] maxTimestamps = new long[blocks];
+            long[] baseTimestamps = new long[blocks];
+            int[] levelMasks = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = in.readLong();
+                minTimestamps[i] = in.readLong();
+                maxTimestamps[i] = in.readLong();
+                baseTimestamps[i] = in.readLong();
+                levelMasks[i] = in.readInt();
+            }
+
+            int tagCount = in.readInt();
+            Map<String, int[]> tagBlocks = new HashMap<>(tagCount * 2);
+            for (int i = 0; i < tagCount; i++) {
+                String tag = in.readUTF();
+                int[] postings = new int[in.readInt() * 2];
+                for (int j = 0; j < postings.length; j++) {
+                    postings[j] = in.readInt();
+                }
+                tagBlocks.put(tag, postings);
+            }
+            return new SegmentIndex(format, records, endOffset, blocks, offsets, minTimestamps, maxTimestamps,
+                    baseTimestamps, levelMasks, tagBlocks);
+        }
+    }
+
+    /**
+     * Blocks that may hold a match. Exact filtering happens on the decoded entries.
+     */
+    BitSet candidates(LogQuery query) {
+        BitSet blocks = new BitSet(blockCount);
+        int levelMask = query.levelMask();
+        if (query.getTags() != null) {
+            for (String tag : query.getTags()) {
+                int[] postings = tagBlocks.get(tag);
+                if (postings == null) continue;
+                for (int i = 0; i < postings.length; i += 2) {
+                    if ((postings[i + 1] & levelMask) != 0) {
+                        blocks.set(postings[i]);
+                    }
+                }
+            }
+        } else {
+            blocks.set(0, blockCount);
+        }
+
+        for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+            if ((levelMasks[b] & levelMask) == 0
+                    || maxTimestamps[b] < query.getFromMillis()
+                    || minTimestamps[b] > query.getToMillis()) {
+                blocks.clear(b);
+            }
+        }
+        return blocks;
+    }
+
+    long blockEnd(int block) {
+        return block + 1 < blockCount ? offsets[block + 1] : endOffset;
+    }
+
+    /**
+     * Accumulates the index of the live segment on the writer thread; add() is a
+     * few array writes and, for a tag not yet seen in the block, one append.
+     */
+    static final class Builder {
+
+        private final LogFormat format;
+        private final int blockRecords;
+
+        // Postings of TagTable ids by id; tags that overflowed the table by name
+        private final Posting[] byId;
+        private final Map<String, Posting> byName = new HashMap<>();
+
+        private int records;
+        private int blocks;
+        private long[] offsets = new long[16];
+        private long[] minTimestamps = new long[16];
+        private long[] maxTimestamps = new long[16];
+        private long[] baseTimestamps = new long[16];
+        private int[] levelMasks = new int[16];
+
+        Builder(LogFormat format, int blockRecords, int tagCapacity) {
+            this.format = format;
+            this.blockRecords = blockRecords;
+            this.byId = new Posting[tagCapacity + 1];
+        }
+
+        /**
+         * True when the next record opens a new block; call startBlock() first.
+         */
+        boolean needsBlock() {
+            return records % blockRecords == 0;
+        }
+
+        void startBlock(long offset, long baseTimestamp) {
+            if (blocks == offsets.length) {
+                int size = blocks * 2;
+                offsets = Arrays.copyOf(offsets, size);
+                minTimestamps = Arrays.copyOf(minTimestamps, size);
+                maxTimestamps = Arrays.copyOf(maxTimestamps, size);
+                baseTimestamps = Arrays.copyOf(baseTimestamps, size);
+                levelMasks = Arrays.copyOf(levelMasks, size);
+            }
+            offsets[blocks] = offset;
+            minTimestamps[blocks] = Long.MAX_VALUE;
+            maxTimestamps[blocks] = Long.MIN_VALUE;
+            baseTimestamps[blocks] = baseTimestamp;
+            levelMasks[blocks] = 0;
+            blocks++;
+        }
+
+        void add(LogRecord record, String tag) {
+            int block = blocks - 1;
+            records++;
+            if (record.timestamp < minTimestamps[block]) minTimestamps[block] = record.timestamp;
+            if (record.timestamp > maxTimestamps[block]) maxTimestamps[block] = record.timestamp;
+            int level = record.level >= 0 && record.level < 32 ? 1 << record.level : 0;
+            levelMasks[block] |= level;
+
+            if (tag == null) return;
+            Posting posting;
+            if (record.tagId != TagTable.NO_ID) {
+                posting = byId[record.tagId];
+                if (posting == null) {
+                    posting = byId[record.tagId] = new Posting(tag);
+                }
+            } else {
+                posting = byName.get(tag);
+                if (posting == null) {
+                    posting = new Posting(tag);
+                    byName.put(tag, posting);
+                }
+            }
+            posting.add(block, level);
+        }
+
+        /**
+         * Writes the sidecar of the segment just closed (via a temp file, so a reader
+         * never sees half of it) and starts over for the next segment.
+         */
+        void finish(File segment, long endOffset) throws IOException {
+            try {
+                if (records > 0) {
+                    write(segment, endOffset);
+                }
+            } finally {
+                reset();
+            }
+        }
+
+        private void write(File segment, long endOffset) throws IOException {
+            File target = sidecarOf(segment);
+            File partial = new File(target.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+                out.write(MAGIC);
+                out.writeByte(VERSION);
+                out.writeByte(format.ordinal());
+                out.writeInt(records);
+                out.writeLong(endOffset);
+                out.writeInt(blocks);
+                for (int i = 0; i < blocks; i++) {
+                    out.writeLong(offsets[i]);
+                    out.writeLong(minTimestamps[i]);
+                    out.writeLong(maxTimestamps[i]);
+                    out.writeLong(baseTimestamps[i]);
+                    out.writeInt(levelMasks[i]);
+                }
+
+                int tagCount = byName.size();
+                for (Posting posting : byId) {
+                    if (posting != null) tagCount++;
+                }
+                out.writeInt(tagCount);
+                for (Posting posting : byId) {
+                    if (posting != null) posting.writeTo(out);
+                }
+                for (Posting posting : byName.values()) {
+                    posting.writeTo(out);
+                }
+            }
+            if (!partial.renameTo(target)) {
+                partial.delete();
+                throw new IOException("Could not write " + target.getName());
+            }
+        }
+
+        private void reset() {
+            records = 0;
+            blocks = 0;
+            Arrays.fill(byId, null);
+            byName.clear();
+        }
+    }
+
+    private static final class Posting {
+        final String tag;
+        // Block number, level mask, block number, level mask, ...
+        int[] entries = new int[8];
+        int size;
+
+        Posting(String tag) {
+            this.tag = tag;
+        }
+
+        void add(int block, int level) {
+            if (size > 0 && entries[size - 2] == block) {
+                entries[size - 1] |= level;
+                return;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = block;
+            entries[size++] = level;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(tag);
+            out.writeInt(size / 2);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(entries[i]);
+            }
+        }
+    }
+}
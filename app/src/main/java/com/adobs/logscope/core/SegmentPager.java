@@ -0,0 +1,256 @@
+package com.adobs.logscope.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Random access to the records of a text segment that may still be growing.
+ *
+ * refresh() scans only the bytes appended since the last call, up to a byte
+ * budget, and remembers the file offset of every PAGE_SIZE-th record. A 1 GB
+ * capture is therefore browsable after the first budget is scanned, and its
+ * index stays a few hundred KB. Records are read back a page at a time and
+ * kept in a small LRU of pages.
+ *
+ * A record is a line starting with "HH:mm:ss.SSS" plus any following lines
+ * (stack traces). Plain Java: no Android dependencies.
+ *
+ * Threading: refresh() and loadPage() do the disk I/O and must be called from one
+ * background thread; getRecordCount() and getCached() never touch the disk and
+ * may be called from the UI thread while a page is being read.
+ */
+public final class SegmentPager implements Closeable {
+
+    public static final int PAGE_SIZE = 256;
+
+    private static final int SCAN_BUFFER = 64 * 1024;
+    private static final int CACHED_PAGES = 8;
+    // "HH:mm:ss.SSS"
+    private static final int TIME_PREFIX = 12;
+
+    private final File file;
+    private final RandomAccessFile in;
+    private final byte[] scanBuffer = new byte[SCAN_BUFFER];
+
+    // I/O thread only: offsets of records 0, PAGE_SIZE, 2 * PAGE_SIZE, ...
+    private long[] pageOffsets = new long[64];
+    private int indexedRecords;
+
+    // Published once per refresh, after the offsets it covers
+    private volatile int recordCount;
+
+    // End of the last complete line seen; a partial line is re-read next time
+    private long scannedOffset;
+    // How far the last refresh read, partial line included
+    private long readOffset;
+
+    // Scanner state for the line currently being read
+    private final byte[] linePrefix = new byte[TIME_PREFIX];
+    private int linePrefixLength;
+    private long lineStart;
+
+    // Guarded by itself
+    private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    public SegmentPager(File file) throws IOException {
+        this.file = file;
+        this.in = new RandomAccessFile(file, "r");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * True once every complete line currently in the file has been indexed.
+     */
+    public boolean isCaughtUp() throws IOException {
+        return readOffset >= in.length();
+    }
+
+    /**
+     * Indexes up to maxBytes of newly appended data.
+     *
+     * @return number of records added
+     */
+    public int refresh(long maxBytes) throws IOException {
+        int before = indexedRecords;
+        long scannedBefore = scannedOffset;
+        long length = in.length();
+        long offset = scannedOffset;
+        // Compared as a difference: scannedOffset + maxBytes overflows for "no budget"
+        long limit = length - scannedOffset <= maxBytes ? length : scannedOffset + maxBytes;
+
+        // Resume on the partial line left over from the last scan
+        linePrefixLength = 0;
+        lineStart = offset;
+        in.seek(offset);
+
+        while (offset < limit) {
+            int read = in.read(scanBuffer, 0, (int) Math.min(scanBuffer.length, limit - offset));
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = scanBuffer[i];
+                if (b == '\n') {
+                    endLine();
+                    lineStart = offset + i + 1;
+                    scannedOffset = lineStart;
+                    linePrefixLength = 0;
+                } else if (linePrefixLength < TIME_PREFIX) {
+                    linePrefix[linePrefixLength++] = b;
+                }
+            }
+            offset += read;
+        }
+        readOffset = offset;
+
+        if (scannedOffset != scannedBefore && before > 0) {
+            synchronized (pages) {
+                // The last page (and its last record) may have grown
+                pages.remove(pageOf(before - 1));
+            }
+        }
+        recordCount = indexedRecords;
+        return indexedRecords - before;
+    }
+
+    /**
+     * @return the record if its page is in memory, otherwise null (call loadPage off the UI thread)
+     */
+    public String getCached(int index) {
+        String[] page;
+        synchronized (pages) {
+            page = pages.get(pageOf(index));
+        }
+        int slot = index % PAGE_SIZE;
+        return page != null && slot < page.length ? page[slot] : null;
+    }
+
+    /**
+     * Reads one page of records from disk into the cache.
+     */
+    public String[] loadPage(int page) throws IOException {
+        synchronized (pages) {
+            String[] cached = pages.get(page);
+            if (cached != null) return cached;
+        }
+
+        int first = page * PAGE_SIZE;
+        if (first >= indexedRecords) return new String[0];
+        int count = Math.min(PAGE_SIZE, indexedRecords - first);
+        long start = pageOffsets[page];
+        long end = page + 1 < pageCount() ? pageOffsets[page + 1] : scannedOffset;
+
+        byte[] bytes = new byte[(int) (end - start)];
+        in.seek(start);
+        in.readFully(bytes);
+
+        // The page always ends on a '\n'; each record is decoded without its last one
+        String[] records = new String[count];
+        int record = -1;
+        int recordStart = 0;
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') continue;
+            if (record < 0 || isRecordStart(bytes, lineStart, i)) {
+                if (record >= 0 && record < count) {
+                    records[record] = decode(bytes, recordStart, lineStart - 1);
+                }
+                record++;
+                recordStart = lineStart;
+            }
+            lineStart = i + 1;
+        }
+        if (record >= 0 && record < count) {
+            records[record] = decode(bytes, recordStart, bytes.length - 1);
+        }
+        for (int i = 0; i < count; i++) {
+            if (records[i] == null) records[i] = "";
+        }
+
+        synchronized (pages) {
+            pages.put(page, records);
+        }
+        return records;
+    }
+
+    /**
+     * Newest live text segment in a package folder (by session and segment number), or null.
+     */
+    public static File findLatestSegment(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(LogSegments.PREFIX)
+                && name.endsWith(LogFormat.TEXT.getExtension()) && !name.endsWith(CrashRegion.RECOVERED_SUFFIX));
+        if (files == null || files.length == 0) return null;
+
+        File latest = files[0];
+        for (File f : files) {
+            if (LogSegments.ORDER.compare(f, latest) > 0) {
+                latest = f;
+            }
+        }
+        return latest;
+    }
+
+    public static int pageOf(int index) {
+        return index / PAGE_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (pages) {
+            pages.clear();
+        }
+        in.close();
+    }
+
+    private void endLine() {
+        if (indexedRecords == 0 || (linePrefixLength == TIME_PREFIX && isTimePrefix(linePrefix, 0))) {
+            if (indexedRecords % PAGE_SIZE == 0) {
+                int page = indexedRecords / PAGE_SIZE;
+                if (page == pageOffsets.length) {
+                    pageOffsets = Arrays.copyOf(pageOffsets, page * 2);
+                }
+                pageOffsets[page] = lineStart;
+            }
+            indexedRecords++;
+        }
+    }
+
+    private int pageCount() {
+        return (indexedRecords + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    private static boolean isRecordStart(byte[] bytes, int from, int to) {
+        return to - from >= TIME_PREFIX && isTimePrefix(bytes, from);
+    }
+
+    private static boolean isTimePrefix(byte[] b, int o) {
+        return isDigit(b[o]) && isDigit(b[o + 1]) && b[o + 2] == ':'
+                && isDigit(b[o + 3]) && isDigit(b[o + 4]) && b[o + 5] == ':'
+                && isDigit(b[o + 6]) && isDigit(b[o + 7]) && b[o + 8] == '.'
+                && isDigit(b[o + 9]) && isDigit(b[o + 10]) && isDigit(b[o + 11]);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static String decode(byte[] bytes, int from, int to) {
+        return new String(bytes, from, Math.max(0, to - from), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+package com.adobs.logscope.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the captures of a package folder into one zip for sharing: every
+ * segment of a session (or of all sessions), their .idx sidecars, the crash
+ * file recovered for the session and the metrics snapshots. A metrics file is
+ * per process and rewritten by each session, so it describes the newest session
+ * only and is left out of the export of an older one.
+ *
+ * Everything is streamed through one fixed-size buffer, so memory use does not
+ * depend on the size of a session. .gz segments are inflated on the way in,
+ * so the archive holds plain segments next to their sidecars. With a LogQuery
+ * only matching records are written, as text lines; segments are then read
+ * through LogSearch, which skips blocks the query cannot match. Plain Java,
+ * call it off the UI thread.
+ */
+public final class SessionArchive {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SessionArchive() {}
+
+    /**
+     * "Log_2024-05-01_10-00-00_003.txt.gz" -&gt; "2024-05-01_10-00-00"
+     *
+     * @return the session a segment (or its crash file) belongs to, or null for other files
+     */
+    public static String sessionOf(File segment) {
+        return LogSegments.sessionOf(segment.getName());
+    }
+
+    /**
+     * Writes the archive to a temp file next to target and renames it, so a
+     * failed export never leaves a truncated zip behind.
+     *
+     * @return number of files in the archive
+     */
+    public static int write(File folder, String session, LogQuery query, File target) throws IOException {
+        File partial = new File(target.getPath() + ".tmp");
+        int files;
+        try (OutputStream out = new FileOutputStream(partial)) {
+            files = write(folder, session, query, out);
+        } catch (IOException | RuntimeException e) {
+            partial.delete();
+            throw e;
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Could not write " + target.getName());
+        }
+        return files;
+    }
+
+    /**
+     * @param session a session as returned by sessionOf(), or null for every session in the folder
+     * @param query   null to copy segments as they are, with their sidecars; otherwise only
+     *                matching records are written, as text lines without sidecars
+     * @return number of files in the archive
+     */
+    public static int write(File folder, String session, LogQuery query, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int files = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        // Logs shrink to a fraction at the fastest level already; higher ones mostly cost CPU
+        zip.setLevel(Deflater.BEST_SPEED);
+        Writer text = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+        File[] segments = LogSearch.listSegments(folder);
+        for (File segment : segments) {
+            if (session != null && !session.equals(sessionOf(segment))) continue;
+            if (!segment.isFile()) {
+                // Compressed since it was listed
+                segment = new File(segment.getPath() + LogSegments.COMPRESSED_SUFFIX);
+                if (!segment.isFile()) continue;
+            }
+            String name = plainName(segment);
+
+            if (query == null) {
+                putEntry(zip, name, segment);
+                copy(segment, zip, buffer);
+                files++;
+                File sidecar = SegmentIndex.sidecarOf(segment);
+                if (sidecar.isFile()) {
+                    putEntry(zip, sidecar.getName(), sidecar);
+                    copy(sidecar, zip, buffer);
+                    files++;
+                }
+            } else {
+                putEntry(zip, textName(name), segment);
+                writeMatches(segment, query, text);
+                text.flush();
+                files++;
+            }
+        }
+
+        if (query == null) {
+            File[] crashFiles = folder.listFiles((dir, name) -> name.startsWith(LogSegments.PREFIX)
+                    && name.endsWith(CrashRegion.RECOVERED_SUFFIX));
+            if (crashFiles != null) {
+                for (File crashFile : crashFiles) {
+                    if (session != null && !session.equals(sessionOf(crashFile))) continue;
+                    putEntry(zip, crashFile.getName(), crashFile);
+                    copy(crashFile, zip, buffer);
+                    files++;
+                }
+            }
+        }
+
+        // Segments are listed oldest first
+        String newest = segments.length > 0 ? sessionOf(segments[segments.length - 1]) : null;
+        if (session == null || session.equals(newest)) {
+            for (File metrics : LogMetrics.listFiles(folder)) {
+                putEntry(zip, metrics.getName(), metrics);
+                copy(metrics, zip, buffer);
+                files++;
+            }
+        }
+
+        zip.finish();
+        zip.flush();
+        return files;
+    }
+
+    private static void writeMatches(File segment, LogQuery query, Writer text) throws IOException {
+        // Entries already carry resolved tags and rendered traces
+        LogFormatter formatter = new LogFormatter(null, null);
+        try {
+            LogSearch.searchSegment(segment, query, entry -> {
+                CharSequence line = formatter.format(entry.getTimestamp(), entry.getProcess(), entry.getThreadId(),
+                        entry.getThreadName(), entry.getLevel(), entry.getTag(), entry.getMessage(),
+                        entry.getStackTrace());
+                try {
+                    text.append(line).write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, File source) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(source.lastModified());
+        zip.putNextEntry(entry);
+    }
+
+    private static void copy(File file, OutputStream out, byte[] buffer) throws IOException {
+        try (InputStream in = file.getName().endsWith(LogSegments.COMPRESSED_SUFFIX)
+                ? new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE)
+                : new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static String plainName(File segment) {
+        String name = segment.getName();
+        return name.endsWith(LogSegments.COMPRESSED_SUFFIX)
+                ? name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length())
+                : name;
+    }
+
+    /** Filtered binary segments are written as text. */
+    private static String textName(String name) {
+        String binary = LogFormat.BINARY.getExtension();
+        return name.endsWith(binary)
+                ? name.substring(0, name.length() - binary.length()) + LogFormat.TEXT.getExtension()
+                : name;
+    }
+}
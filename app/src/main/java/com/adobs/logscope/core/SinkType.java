@@ -0,0 +1,13 @@
+package com.adobs.logscope.core;
+
+/**
+ * Output backend for a capture session.
+ */
+public enum SinkType {
+
+    /** BufferedWriter over a FileOutputStream (char buffer, encoded per write). */
+    WRITER,
+
+    /** FileChannel fed from a direct ByteBuffer; lines are encoded straight to UTF-8 bytes. */
+    CHANNEL
+}
@@ -0,0 +1,141 @@
+package com.adobs.logscope.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders Throwables on the writer thread and collapses repeats.
+ * The first occurrence of a trace is written in full, prefixed with "#N "; later
+ * identical traces become "same as #N (xK repeats)". Only fingerprints and counters are
+ * kept (never the trace text), and at most MAX_ENTRIES of them.
+ */
+final class StackTraceCache {
+
+    static final int MAX_ENTRIES = 256;
+
+    // Bounds the walk for pathological cause chains (including cycles)
+    private static final int MAX_CAUSES = 16;
+
+    private final boolean enabled;
+    private final StringBuilder reference = new StringBuilder(64);
+    private int nextId = 1;
+
+    // Access-ordered, so the least recently seen trace is evicted first
+    private final Map<Long, SeenTrace> entries = new LinkedHashMap<Long, SeenTrace>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SeenTrace> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    StackTraceCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Segments must be readable on their own, so references never cross a segment.
+     */
+    void reset() {
+        entries.clear();
+    }
+
+    /**
+     * The Throwable is the app's, so its getMessage(), getStackTrace() and
+     * toString() may throw; that RuntimeException is passed on.
+     *
+     * @return the text to write under "Stacktrace:" (full trace or a back-reference)
+     */
+    CharSequence render(Throwable throwable) {
+        if (!enabled) {
+            return CoreLog.getStackTraceString(throwable);
+        }
+        long fingerprint = fingerprint(throwable);
+        if (startReference(fingerprint)) {
+            return reference;
+        }
+        try {
+            return reference.append(CoreLog.getStackTraceString(throwable));
+        } catch (RuntimeException e) {
+            // Nothing is written as #N, so no later record may refer to it, and N is free again
+            entries.remove(fingerprint);
+            nextId--;
+            throw e;
+        }
+    }
+
+    /**
+     * Same for a trace another process already rendered in full (records
+     * merged by a LogCollector), so references are numbered per output segment.
+     */
+    CharSequence render(String trace) {
+        if (!enabled) {
+            return trace;
+        }
+        if (startReference(fingerprint(trace))) {
+            return reference;
+        }
+        return reference.append(trace);
+    }
+
+    /**
+     * Puts "same as #N (xK repeats)" into reference for a known trace, or the
+     * "#N " prefix for a new one.
+     *
+     * @return true if the trace was seen before
+     */
+    private boolean startReference(long fingerprint) {
+        reference.setLength(0);
+        SeenTrace entry = entries.get(fingerprint);
+        if (entry != null) {
+            entry.repeats++;
+            reference.append("same as #").append(entry.id).append(" (x").append(entry.repeats).append(" repeats)");
+            return true;
+        }
+
+        entry = new SeenTrace(nextId++);
+        entries.put(fingerprint, entry);
+        reference.append('#').append(entry.id).append(' ');
+        return false;
+    }
+
+    /**
+     * 64-bit hash over class, message and frames of the whole cause chain,
+     * i.e. over everything that ends up in the rendered trace.
+     */
+    static long fingerprint(Throwable throwable) {
+        long hash = 1125899906842597L;
+        int depth = 0;
+        for (Throwable t = throwable; t != null && depth < MAX_CAUSES; t = t.getCause(), depth++) {
+            hash = mix(hash, t.getClass().getName().hashCode());
+            String message = t.getMessage();
+            hash = mix(hash, message != null ? message.hashCode() : 0);
+            for (StackTraceElement frame : t.getStackTrace()) {
+                hash = mix(hash, frame.hashCode());
+            }
+        }
+        return hash;
+    }
+
+    static long fingerprint(CharSequence trace) {
+        long hash = 1125899906842597L;
+        for (int i = 0, length = trace.length(); i < length; i++) {
+            hash = mix(hash, trace.charAt(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        hash ^= value;
+        hash *= 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static final class SeenTrace {
+        final int id;
+        int repeats;
+
+        SeenTrace(int id) {
+            this.id = id;
+        }
+    }
+}
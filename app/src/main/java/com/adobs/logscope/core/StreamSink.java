@@ -0,0 +1,92 @@
+package com.adobs.logscope.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sends the binary record stream of a virtual process to the LogCollector.
+ * Records are batched in the buffer and go out on the writer's flush policy,
+ * so a burst costs one socket write per batch rather than one per record.
+ *
+ * If the collector goes away the stream is broken for good. The first failure
+ * is thrown, so the writer can switch to local segments (see
+ * AsyncLogWriter.Output); later output is dropped rather than retried against
+ * a dead socket for every batch.
+ */
+final class StreamSink implements LogSink {
+
+    private static final String TAG = "LogManager";
+
+    private static final int STAGING = 8 * 1024;
+
+    private final CollectorTransport.Connection connection;
+    private final OutputStream out;
+    private boolean broken;
+
+    private final byte[] staging = new byte[STAGING];
+    private final int[] position = new int[1];
+
+    StreamSink(CollectorTransport.Connection connection, int bufferSize) {
+        this.connection = connection;
+        this.out = new BufferedOutputStream(connection.out, bufferSize);
+    }
+
+    /**
+     * Sends the line as UTF-8. The collector only decodes the binary layout (see
+     * RecordEncoder.forCollector), so this is for completeness rather than use.
+     */
+    @Override
+    public int appendLine(CharSequence line) throws IOException {
+        int length = line.length();
+        int written = 0;
+        int next = 0;
+
+        do {
+            next = Utf8.encode(line, next, staging, 0, STAGING - 1, position);
+            int count = position[0];
+            if (next == length) {
+                staging[count++] = '\n';
+            }
+            appendBytes(staging, 0, count);
+            written += count;
+        } while (next < length);
+
+        return written;
+    }
+
+    @Override
+    public void appendBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (broken) return;
+        try {
+            out.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (broken) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private IOException fail(IOException e) {
+        broken = true;
+        CoreLog.e(TAG, "Lost connection to the log collector", e);
+        return e;
+    }
+}
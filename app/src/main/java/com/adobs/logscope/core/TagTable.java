@@ -0,0 +1,95 @@
+package com.adobs.logscope.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded intern table mapping log tags to small integer IDs.
+ * Apps use a few dozen tags, so after warm-up a lookup is a lock-free map hit.
+ * Once the table is full (an app generating dynamic tags), new tags get
+ * {@link #NO_ID} and records carry the raw string instead.
+ */
+public final class TagTable {
+
+    public static final int NO_ID = 0;
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Integer> ids;
+    private final AtomicReferenceArray<String> names;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    TagTable(int capacity) {
+        this.capacity = capacity;
+        this.ids = new ConcurrentHashMap<>(capacity * 2);
+        this.names = new AtomicReferenceArray<>(capacity + 1);
+    }
+
+    /**
+     * Called on the app's logging thread.
+     *
+     * @return the tag's ID, or NO_ID if the table is full
+     */
+    int intern(String tag) {
+        Integer id = ids.get(tag);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+
+        misses.increment();
+        if (nextId.get() > capacity) {
+            overflows.increment();
+            return NO_ID;
+        }
+
+        // Only the first sighting of a tag pays for the bin lock
+        id = ids.computeIfAbsent(tag, this::assign);
+        if (id == null) {
+            overflows.increment();
+            return NO_ID;
+        }
+        return id;
+    }
+
+    /**
+     * Writer side lookup. Never null for an ID returned by intern().
+     */
+    String name(int id) {
+        return names.get(id);
+    }
+
+    private Integer assign(String tag) {
+        int id = nextId.getAndIncrement();
+        if (id > capacity) {
+            return null;
+        }
+        names.set(id, tag);
+        return id;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDistinctTags() {
+        return Math.min(nextId.get() - 1, capacity);
+    }
+
+    /** Fraction of intern() calls answered by an existing entry. */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /** Calls that fell back to carrying the raw tag because the table was full. */
+    public long getOverflowCount() {
+        return overflows.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package com.adobs.logscope.core;
+
+/**
+ * Allocation-free UTF-8 helpers for the writer thread.
+ * Unpaired surrogates are written as '?', like String.getBytes(UTF_8).
+ */
+final class Utf8 {
+
+    private Utf8() {}
+
+    static int encodedLength(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 2; // 4 bytes for 2 chars
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // '?' replacement, 1 byte
+            } else {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes text[from..] into dst[offset..limit) until it runs out of room.
+     * Array based so the hot loop avoids per-byte buffer bounds checks.
+     *
+     * @return index of the first char not written; the new dst position is in position[0]
+     */
+    static int encode(CharSequence text, int from, byte[] dst, int offset, int limit, int[] position) {
+        int length = text.length();
+        int i = from;
+        int p = offset;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (p >= limit) break;
+                dst[p++] = (byte) c;
+            } else if (c < 0x800) {
+                if (limit - p < 2) break;
+                dst[p++] = (byte) (0xC0 | (c >> 6));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    if (limit - p < 4) break;
+                    int cp = Character.toCodePoint(c, text.charAt(i + 1));
+                    dst[p++] = (byte) (0xF0 | (cp >> 18));
+                    dst[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[p++] = (byte) (0x80 | (cp & 0x3F));
+                    i++;
+                } else {
+                    if (p >= limit) break;
+                    dst[p++] = (byte) '?';
+                }
+            } else {
+                if (limit - p < 3) break;
+                dst[p++] = (byte) (0xE0 | (c >> 12));
+                dst[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+            i++;
+        }
+        position[0] = p;
+        return i;
+    }
+}
@@ -0,0 +1,16 @@
+package com.adobs.logscope.core;
+
+/**
+ * How the writer thread waits when the ring buffer is empty.
+ */
+public enum WaitStrategy {
+
+    /** Parks until a producer signals. Lowest CPU, default for captures. */
+    BLOCKING,
+
+    /** Spins briefly, then yields, then parks in short naps. No producer signalling. */
+    SLEEPING,
+
+    /** Spins and yields. Lowest latency, burns a core; only for benchmarking. */
+    YIELDING
+}
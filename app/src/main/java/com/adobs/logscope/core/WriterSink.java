@@ -0,0 +1,56 @@
+package com.adobs.logscope.core;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The original BufferedWriter path, kept as the default sink. Raw bytes go to
+ * the file behind the writer's buffer, which is flushed first to keep the order;
+ * that costs a write per call, so binary segments use the channel sink instead.
+ */
+final class WriterSink implements LogSink {
+
+    private final FileOutputStream stream;
+    private final BufferedWriter writer;
+    private char[] chars = new char[256];
+
+    WriterSink(File file, int bufferSize) throws IOException {
+        this.stream = new FileOutputStream(file, true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize);
+    }
+
+    @Override
+    public int appendLine(CharSequence line) throws IOException {
+        // Copy through a reused char[] rather than line.toString()
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            chars[i] = line.charAt(i);
+        }
+        writer.write(chars, 0, length);
+        writer.write('\n');
+        return Utf8.encodedLength(line) + 1;
+    }
+
+    @Override
+    public void appendBytes(byte[] bytes, int offset, int length) throws IOException {
+        writer.flush();
+        stream.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
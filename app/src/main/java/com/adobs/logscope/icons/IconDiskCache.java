@@ -0,0 +1,120 @@
+package com.adobs.logscope.icons;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * App icons rendered once at list size and kept as PNGs in the cache directory,
+ * so a restart decodes a small bitmap instead of inflating each app's resources.
+ * Whether a file is still current is up to the caller (see AppListCache).
+ */
+public final class IconDiskCache {
+
+    private static final String TAG = "IconDiskCache";
+
+    // Size of imgIcon in item_app.xml
+    private static final int ICON_SIZE_DP = 48;
+
+    private static IconDiskCache instance;
+
+    private final File folder;
+    private final int sizePx;
+
+    IconDiskCache(File folder, int sizePx) {
+        this.folder = folder;
+        this.sizePx = sizePx;
+    }
+
+    public static synchronized IconDiskCache get(@NonNull Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            int sizePx = Math.round(ICON_SIZE_DP * app.getResources().getDisplayMetrics().density);
+            instance = new IconDiskCache(new File(app.getCacheDir(), "icons"), sizePx);
+        }
+        return instance;
+    }
+
+    /** Edge length of the cached bitmaps in pixels. */
+    public int getSizePx() {
+        return sizePx;
+    }
+
+    @NonNull
+    public File fileOf(@NonNull String packageName) {
+        return new File(folder, packageName + ".png");
+    }
+
+    /**
+     * Decodes the cached icon, subsampled if it was stored at a larger size
+     * (e.g. before a density change), so it is never much larger than the list needs.
+     *
+     * @return the cached icon, or null if there is none
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap read(@NonNull String packageName) {
+        File file = fileOf(packageName);
+        if (!file.isFile()) return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= sizePx && options.outHeight / (sampleSize * 2) >= sizePx) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    /**
+     * Renders the icon at list size and stores it, replacing any older version.
+     *
+     * @return the rendered bitmap, also when storing it failed
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap write(@NonNull String packageName, @NonNull Drawable icon) {
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        icon.setBounds(0, 0, sizePx, sizePx);
+        icon.draw(new Canvas(bitmap));
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            Log.w(TAG, "Failed to create " + folder);
+            return bitmap;
+        }
+        File file = fileOf(packageName);
+        File partial = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partial))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache icon of " + packageName, e);
+            partial.delete();
+            return bitmap;
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+        }
+        return bitmap;
+    }
+
+    public void remove(@NonNull String packageName) {
+        fileOf(packageName).delete();
+    }
+}
@@ -0,0 +1,95 @@
+package com.adobs.logscope.icons;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.Executors;
+
+/**
+ * App icons for the list, loaded when a row is bound instead of for every
+ * installed app up front. Memory holds only recently shown icons (bounded by
+ * bytes); below that is the IconDiskCache, and below that PackageManager, whose
+ * icon is rendered at list size and written to disk for next time.
+ */
+public final class IconLoader {
+
+    private static final String TAG = "IconLoader";
+
+    private static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Share of the heap the decoded icons may take
+    private static final int HEAP_FRACTION = 16;
+
+    private static IconLoader instance;
+
+    private final PackageManager packageManager;
+    private final IconDiskCache disk;
+    private final LazyLoader<String, Bitmap> loader;
+
+    private IconLoader(Context context) {
+        packageManager = context.getPackageManager();
+        disk = IconDiskCache.get(context);
+        SizedLruCache<String, Bitmap> memory = new SizedLruCache<>(Runtime.getRuntime().maxMemory() / HEAP_FRACTION,
+                Bitmap::getAllocationByteCount);
+        Handler main = new Handler(Looper.getMainLooper());
+        loader = new LazyLoader<>(memory, this::loadIcon,
+                Executors.newFixedThreadPool(THREADS, r -> {
+                    Thread thread = new Thread(r, "LogScope-Icons");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }),
+                main::post);
+    }
+
+    public static synchronized IconLoader get(@NonNull Context context) {
+        if (instance == null) {
+            instance = new IconLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Nullable
+    public Bitmap getCached(@NonNull String packageName) {
+        return loader.getCached(packageName);
+    }
+
+    /**
+     * Loads the icon in the background; cancel the request when the row is rebound or recycled.
+     */
+    @MainThread
+    @NonNull
+    public LazyLoader.Request load(@NonNull String packageName, @NonNull LazyLoader.Callback<Bitmap> callback) {
+        return loader.load(packageName, callback);
+    }
+
+    /**
+     * Forgets the icon of an app that was updated or removed, in memory and on disk.
+     */
+    @WorkerThread
+    public void invalidate(@NonNull String packageName) {
+        loader.invalidate(packageName);
+        disk.remove(packageName);
+    }
+
+    @WorkerThread
+    private Bitmap loadIcon(String packageName) {
+        Bitmap icon = disk.read(packageName);
+        if (icon != null) return icon;
+        try {
+            return disk.write(packageName, packageManager.getApplicationIcon(packageName));
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load icon of " + packageName, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.adobs.logscope.icons;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Loads values on a worker executor through a SizedLruCache and hands them to a
+ * callback on the delivery executor (the main thread in the app). Plain Java,
+ * so it runs on a JVM with direct executors.
+ *
+ * A request can be cancelled until its callback runs: a cancelled request that
+ * has not started yet skips loading, and one that has finished is not delivered.
+ * This is what keeps a recycled ViewHolder from showing the icon of the row it
+ * was bound to before.
+ */
+public final class LazyLoader<K, V> {
+
+    public interface Source<K, V> {
+        /** Runs on the worker executor; returns null if the value is unavailable. */
+        V load(K key);
+    }
+
+    public interface Callback<V> {
+        void onLoaded(V value);
+    }
+
+    private final SizedLruCache<K, V> cache;
+    private final Source<K, V> source;
+    private final Executor worker;
+    private final Executor delivery;
+
+    public LazyLoader(SizedLruCache<K, V> cache, Source<K, V> source, Executor worker, Executor delivery) {
+        this.cache = cache;
+        this.source = source;
+        this.worker = worker;
+        this.delivery = delivery;
+    }
+
+    /** The value if it is in memory, without loading it. */
+    public V getCached(K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Loads the value in the background unless it is cached by then.
+     *
+     * @return handle to cancel the delivery with
+     */
+    public Request load(K key, Callback<V> callback) {
+        Request request = new Request();
+        worker.execute(() -> {
+            if (request.cancelled) return;
+            V value = cache.get(key);
+            if (value == null) {
+                value = source.load(key);
+                if (value == null) return;
+                cache.put(key, value);
+            }
+            V loaded = value;
+            delivery.execute(() -> {
+                if (!request.cancelled) callback.onLoaded(loaded);
+            });
+        });
+        return request;
+    }
+
+    /** Drops the cached value, e.g. after the app was updated. */
+    public void invalidate(K key) {
+        cache.remove(key);
+    }
+
+    public static final class Request {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
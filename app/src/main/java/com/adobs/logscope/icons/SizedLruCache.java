@@ -0,0 +1,82 @@
+package com.adobs.logscope.icons;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache bounded by the total size of its values (e.g. bitmap
+ * bytes) rather than their number. Plain Java and thread-safe.
+ */
+public final class SizedLruCache<K, V> {
+
+    public interface Sizer<V> {
+        /** Size of a value, in the unit of maxSize; must not change while cached. */
+        long sizeOf(V value);
+    }
+
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final Sizer<V> sizer;
+    private final long maxSize;
+    private long size;
+
+    public SizedLruCache(long maxSize, Sizer<V> sizer) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be > 0");
+        this.maxSize = maxSize;
+        this.sizer = sizer;
+    }
+
+    /** Returns the value and marks it as most recently used. */
+    public synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Caches the value, evicting the least recently used ones beyond maxSize.
+     * A value larger than the whole cache is not kept.
+     */
+    public synchronized void put(K key, V value) {
+        long valueSize = sizer.sizeOf(value);
+        V previous = map.remove(key);
+        if (previous != null) {
+            size -= sizer.sizeOf(previous);
+        }
+        if (valueSize > maxSize) return;
+        map.put(key, value);
+        size += valueSize;
+        trimTo(maxSize);
+    }
+
+    public synchronized void remove(K key) {
+        V previous = map.remove(key);
+        if (previous != null) {
+            size -= sizer.sizeOf(previous);
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    /** Current total size of the cached values. */
+    public synchronized long size() {
+        return size;
+    }
+
+    public long maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int count() {
+        return map.size();
+    }
+
+    private void trimTo(long limit) {
+        Iterator<Map.Entry<K, V>> eldest = map.entrySet().iterator();
+        while (size > limit && eldest.hasNext()) {
+            size -= sizer.sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+}
@@ -1,22 +1,22 @@
 package com.adobs.logscope.models;
 
-import android.graphics.drawable.Drawable;
 import androidx.annotation.NonNull;
 
 /**
  * Immutable Data Model for holding Application Information.
+ * Icons are not part of it; the list loads them on demand through IconLoader.
  */
 public class AppInfo {
     
     // 'private final' यह सुनिश्चित करता है कि डेटा एक बार सेट होने के बाद बदला न जा सके (Thread-Safe)
     private final String appName;
     private final String packageName;
-    private final Drawable icon;
+    private final long lastUpdateTime;
 
-    public AppInfo(@NonNull String appName, @NonNull String packageName, @NonNull Drawable icon) {
+    public AppInfo(@NonNull String appName, @NonNull String packageName, long lastUpdateTime) {
         this.appName = appName;
         this.packageName = packageName;
-        this.icon = icon;
+        this.lastUpdateTime = lastUpdateTime;
     }
 
     // डेटा को सुरक्षित रूप से पढ़ने के लिए Getter Methods
@@ -30,8 +30,8 @@ public class AppInfo {
         return packageName;
     }
 
-    @NonNull
-    public Drawable getIcon() {
-        return icon;
+    /** PackageInfo.lastUpdateTime; changes when the app (and so maybe its icon) is updated. */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
     }
 }
@@ -0,0 +1,45 @@
+package com.adobs.logscope.models;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Where the install-and-launch of one app currently is. Immutable.
+ */
+public class LaunchState {
+
+    public enum Stage {
+        RESOLVING, INSTALLING, LAUNCHING, LAUNCHED, FAILED, CANCELLED
+    }
+
+    private final String packageName;
+    private final Stage stage;
+    private final String message;
+
+    public LaunchState(@NonNull String packageName, @NonNull Stage stage, @Nullable String message) {
+        this.packageName = packageName;
+        this.stage = stage;
+        this.message = message;
+    }
+
+    @NonNull
+    public String getPackageName() {
+        return packageName;
+    }
+
+    @NonNull
+    public Stage getStage() {
+        return stage;
+    }
+
+    /** Why it failed, for FAILED; null otherwise. */
+    @Nullable
+    public String getMessage() {
+        return message;
+    }
+
+    /** True once nothing more will happen for this launch. */
+    public boolean isFinished() {
+        return stage == Stage.LAUNCHED || stage == Stage.FAILED || stage == Stage.CANCELLED;
+    }
+}
@@ -0,0 +1,79 @@
+package com.adobs.logscope.models;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Immutable captured log line, as read back from a capture file.
+ */
+public class LogEntry {
+
+    private final long timestamp;
+    private final long threadId;
+    private final String threadName;
+    private final int level;
+    private final String tag;
+    private final String message;
+    private final String stackTrace;
+    private final String process;
+
+    public LogEntry(long timestamp, long threadId, @Nullable String threadName, int level, @Nullable String tag,
+                    @NonNull String message, @Nullable String stackTrace) {
+        this(timestamp, threadId, threadName, level, tag, message, stackTrace, null);
+    }
+
+    public LogEntry(long timestamp, long threadId, @Nullable String threadName, int level, @Nullable String tag,
+                    @NonNull String message, @Nullable String stackTrace, @Nullable String process) {
+        this.timestamp = timestamp;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.level = level;
+        this.tag = tag;
+        this.message = message;
+        this.stackTrace = stackTrace;
+        this.process = process;
+    }
+
+    /** Wall-clock time in epoch millis. */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /** java.lang.Thread id of the logging thread (0 if not captured). */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    /** Null for captures written before thread names were recorded. */
+    @Nullable
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /** android.util.Log priority (VERBOSE..ASSERT). */
+    public int getLevel() {
+        return level;
+    }
+
+    /** Null for LogScope's own session lines. */
+    @Nullable
+    public String getTag() {
+        return tag;
+    }
+
+    @NonNull
+    public String getMessage() {
+        return message;
+    }
+
+    @Nullable
+    public String getStackTrace() {
+        return stackTrace;
+    }
+
+    /** Process that logged it, in captures merged by a LogCollector; null otherwise. */
+    @Nullable
+    public String getProcess() {
+        return process;
+    }
+}
@@ -0,0 +1,102 @@
+package com.adobs.logscope.viewmodels;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The app list as it was last shown, so the next start can show it before
+ * asking PackageManager for anything.
+ *
+ * <pre>
+ * header : "LSL" version(1) utf(locale) count(4)
+ * entry  : utf(packageName) versionCode(8) lastUpdateTime(8) utf(label)
+ * </pre>
+ *
+ * An entry is current while the package's versionCode and lastUpdateTime are
+ * unchanged. Labels are localized, so a cache written under another locale is
+ * not used at all.
+ */
+final class AppListCache {
+
+    private static final byte[] MAGIC = {'L', 'S', 'L'};
+    private static final byte VERSION = 1;
+
+    private final File file;
+    private final String locale;
+
+    AppListCache(File file, String locale) {
+        this.file = file;
+        this.locale = locale;
+    }
+
+    /**
+     * @return entries by package name; empty if there is no usable cache
+     */
+    Map<String, Entry> load() throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!file.isFile()) return entries;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            for (byte b : MAGIC) {
+                if (in.readByte() != b) throw new IOException("Not an app list cache: " + file.getName());
+            }
+            if (in.readByte() != VERSION || !in.readUTF().equals(locale)) return entries;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readUTF());
+                entries.put(entry.packageName, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the cache (via a temp file, so a crash never leaves half of it).
+     */
+    void save(Collection<Entry> entries) throws IOException {
+        File partial = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(locale);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.packageName);
+                out.writeLong(entry.versionCode);
+                out.writeLong(entry.lastUpdateTime);
+                out.writeUTF(entry.label);
+            }
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Could not write " + file.getName());
+        }
+    }
+
+    static final class Entry {
+        final String packageName;
+        final long versionCode;
+        final long lastUpdateTime;
+        final String label;
+
+        Entry(String packageName, long versionCode, long lastUpdateTime, String label) {
+            this.packageName = packageName;
+            this.versionCode = versionCode;
+            this.lastUpdateTime = lastUpdateTime;
+            this.label = label;
+        }
+
+        boolean isCurrent(long versionCode, long lastUpdateTime) {
+            return this.versionCode == versionCode && this.lastUpdateTime == lastUpdateTime;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.adobs.logscope.viewmodels;
 
 import android.app.Application;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -11,27 +13,58 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.adobs.logscope.core.LaunchPipeline;
+import com.adobs.logscope.core.VirtualCore;
+import com.adobs.logscope.icons.IconLoader;
 import com.adobs.logscope.models.AppInfo;
+import com.adobs.logscope.models.LaunchState;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AppListViewModel extends AndroidViewModel {
 
     private static final String TAG = "AppListViewModel";
+    private static final String CACHE_FILE = "app_list.cache";
+    private static final int LOADER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
     
     // LiveData UI को अपने आप अपडेट कर देता है जब डेटा तैयार हो जाता है
     private final MutableLiveData<List<AppInfo>> appListLiveData = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoadingLiveData = new MutableLiveData<>();
+    private final MutableLiveData<LaunchState> launchStateLiveData = new MutableLiveData<>();
+    private final LaunchPipeline.Listener launchListener = launchStateLiveData::postValue;
     
     private final ExecutorService executorService;
+    // नए या अपडेट हुए ऐप्स के label एक साथ कई थ्रेड्स पर लोड होते हैं
+    private final ExecutorService loaderPool;
+    private final ExecutorService filterExecutor;
+
+    private volatile AppSearchIndex searchIndex = AppSearchIndex.EMPTY;
+    private volatile String searchQuery = "";
+    // Filter runs that are not the newest are skipped
+    private final AtomicInteger filterGeneration = new AtomicInteger();
 
     public AppListViewModel(@NonNull Application application) {
         super(application);
         executorService = Executors.newSingleThreadExecutor();
+        loaderPool = Executors.newFixedThreadPool(LOADER_THREADS);
+        filterExecutor = Executors.newSingleThreadExecutor();
+        VirtualCore.get(application).addLaunchListener(launchListener);
         loadInstalledApps(); // ViewModel बनते ही ऐप्स लोड करना शुरू कर देगा
     }
 
@@ -45,41 +78,177 @@ public class AppListViewModel extends AndroidViewModel {
 
     private void loadInstalledApps() {
         isLoadingLiveData.setValue(true);
-        
+
         executorService.execute(() -> {
-            List<AppInfo> tempApps = new ArrayList<>();
+            long start = SystemClock.elapsedRealtime();
             PackageManager pm = getApplication().getPackageManager();
-            
+            IconLoader icons = IconLoader.get(getApplication());
+            AppListCache cache = new AppListCache(new File(getApplication().getCacheDir(), CACHE_FILE),
+                    Locale.getDefault().toString());
+
+            // पहले पिछली बार की लिस्ट तुरंत दिखाना, PackageManager से कुछ भी पूछे बिना
+            Map<String, AppListCache.Entry> cached = readCache(cache);
+            Map<String, AppInfo> shown = new HashMap<>();
+            for (AppListCache.Entry entry : cached.values()) {
+                shown.put(entry.packageName, new AppInfo(entry.label, entry.packageName, entry.lastUpdateTime));
+            }
+            if (!shown.isEmpty()) {
+                publish(shown.values());
+                Log.i(TAG, "First frame: " + shown.size() + " cached apps in "
+                        + (SystemClock.elapsedRealtime() - start) + " ms");
+            }
+
+            // फिर सिर्फ नए या अपडेट हुए ऐप्स का label लोड करना (icons लिस्ट ख़ुद लोड करती है)
+            List<PackageInfo> packages;
             try {
-                List<ApplicationInfo> packages = pm.getInstalledApplications(PackageManager.GET_META_DATA);
-
-                for (ApplicationInfo app : packages) {
-                    if ((app.flags & ApplicationInfo.FLAG_SYSTEM) == 0) {
-                        try {
-                            String name = pm.getApplicationLabel(app).toString();
-                            String pkg = app.packageName;
-                            Drawable icon = pm.getApplicationIcon(app);
-                            
-                            tempApps.add(new AppInfo(name, pkg, icon));
-                        } catch (Exception e) {
-                            Log.w(TAG, "Failed to load icon/label for package: " + app.packageName);
-                        }
-                    }
-                }
-                // FIX: getAppName() का इस्तेमाल क्योंकि fields अब सुरक्षित (private) हैं
-                Collections.sort(tempApps, (o1, o2) -> o1.getAppName().compareToIgnoreCase(o2.getAppName()));
+                packages = pm.getInstalledPackages(0);
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching installed applications", e);
+                isLoadingLiveData.postValue(false);
+                return;
+            }
+
+            Map<String, AppListCache.Entry> current = new HashMap<>();
+            List<PackageInfo> changed = new ArrayList<>();
+            Set<String> installed = new HashSet<>();
+            for (PackageInfo info : packages) {
+                if (info.applicationInfo == null || (info.applicationInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
+                    continue;
+                }
+                installed.add(info.packageName);
+                AppListCache.Entry entry = cached.get(info.packageName);
+                if (entry != null && entry.isCurrent(versionCodeOf(info), info.lastUpdateTime)) {
+                    current.put(info.packageName, entry);
+                } else {
+                    changed.add(info);
+                }
+            }
+            boolean firstLoad = shown.isEmpty();
+            int removed = 0;
+            for (String packageName : cached.keySet()) {
+                if (current.containsKey(packageName)) continue;
+                shown.remove(packageName);
+                icons.invalidate(packageName);
+                if (!installed.contains(packageName)) {
+                    removed++;
+                }
             }
 
-            // postValue अपने आप Main Thread पर जाकर डेटा भेज देता है
-            appListLiveData.postValue(tempApps);
+            try {
+                for (Future<Loaded> future : loadAll(changed, pm)) {
+                    Loaded loaded = future.get();
+                    if (loaded != null) {
+                        shown.put(loaded.entry.packageName, loaded.app);
+                        current.put(loaded.entry.packageName, loaded.entry);
+                    }
+                }
+            } catch (InterruptedException | RejectedExecutionException e) {
+                // ViewModel cleared
+                return;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Error loading installed applications", e.getCause());
+            }
+
+            if (!changed.isEmpty() || removed > 0 || firstLoad) {
+                publish(shown.values());
+                try {
+                    cache.save(current.values());
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to save app list cache", e);
+                }
+            }
             isLoadingLiveData.postValue(false);
+            Log.i(TAG, "Full load: " + shown.size() + " apps (" + changed.size() + " new or updated, " + removed
+                    + " removed) in " + (SystemClock.elapsedRealtime() - start) + " ms");
         });
     }
 
-    public void executeBackgroundLaunch(Runnable task) {
-        executorService.execute(task);
+    private List<Future<Loaded>> loadAll(List<PackageInfo> packages, PackageManager pm) throws InterruptedException {
+        List<Callable<Loaded>> tasks = new ArrayList<>(packages.size());
+        for (PackageInfo info : packages) {
+            tasks.add(() -> {
+                try {
+                    String name = pm.getApplicationLabel(info.applicationInfo).toString();
+                    return new Loaded(new AppInfo(name, info.packageName, info.lastUpdateTime),
+                            new AppListCache.Entry(info.packageName, versionCodeOf(info), info.lastUpdateTime, name));
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to load label for package: " + info.packageName);
+                    return null;
+                }
+            });
+        }
+        return loaderPool.invokeAll(tasks);
+    }
+
+    /**
+     * सर्च बॉक्स का टेक्स्ट; फ़िल्टरिंग बैकग्राउंड थ्रेड पर होती है और सिर्फ आख़िरी query का नतीजा दिखता है।
+     */
+    public void setSearchQuery(@NonNull String query) {
+        searchQuery = query;
+        refilter();
+    }
+
+    private void publish(Collection<AppInfo> apps) {
+        // नाम पहले से lowercase/normalize करके sort होते हैं, हर comparison पर compareToIgnoreCase नहीं
+        searchIndex = AppSearchIndex.build(apps);
+        refilter();
+    }
+
+    private void refilter() {
+        int generation = filterGeneration.incrementAndGet();
+        try {
+            filterExecutor.execute(() -> {
+                if (generation != filterGeneration.get()) return;
+                List<AppInfo> filtered = searchIndex.filter(searchQuery);
+                if (generation == filterGeneration.get()) {
+                    // postValue अपने आप Main Thread पर जाकर डेटा भेज देता है
+                    appListLiveData.postValue(filtered);
+                }
+            });
+        } catch (RejectedExecutionException cleared) {
+            // ViewModel cleared
+        }
+    }
+
+    private static Map<String, AppListCache.Entry> readCache(AppListCache cache) {
+        try {
+            return cache.load();
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring unreadable app list cache", e);
+            return new HashMap<>();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long versionCodeOf(PackageInfo info) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? info.getLongVersionCode() : info.versionCode;
+    }
+
+    public LiveData<LaunchState> getLaunchState() {
+        return launchStateLiveData;
+    }
+
+    /**
+     * Install और launch अपने अलग थ्रेड्स पर चलते हैं, ऐप लिस्ट लोडिंग के पीछे इंतज़ार नहीं करते।
+     */
+    public void launch(@NonNull AppInfo app) {
+        if (!VirtualCore.get(getApplication()).installAndLaunch(app.getPackageName())) {
+            Log.i(TAG, "Launch of " + app.getPackageName() + " already in progress");
+        }
+    }
+
+    public void cancelLaunch(@NonNull String packageName) {
+        VirtualCore.get(getApplication()).cancelLaunch(packageName);
+    }
+
+    private static final class Loaded {
+        final AppInfo app;
+        final AppListCache.Entry entry;
+
+        Loaded(AppInfo app, AppListCache.Entry entry) {
+            this.app = app;
+            this.entry = entry;
+        }
     }
 
     /**
@@ -88,8 +257,11 @@ public class AppListViewModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
+        VirtualCore.get(getApplication()).removeLaunchListener(launchListener);
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdownNow();
         }
+        loaderPool.shutdownNow();
+        filterExecutor.shutdownNow();
     }
 }
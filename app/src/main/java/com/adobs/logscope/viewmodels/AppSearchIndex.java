@@ -0,0 +1,104 @@
+package com.adobs.logscope.viewmodels;
+
+import com.adobs.logscope.models.AppInfo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The app list sorted by name, with every name and package normalized once
+ * (lower case, accents removed) so that neither sorting nor filtering has to
+ * fold case per comparison. Immutable; built and filtered off the main thread.
+ */
+final class AppSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    static final AppSearchIndex EMPTY = build(Collections.emptyList());
+
+    private final List<AppInfo> apps;
+    private final String[] names;
+    private final String[] packages;
+
+    private AppSearchIndex(List<AppInfo> apps, String[] names, String[] packages) {
+        this.apps = apps;
+        this.names = names;
+        this.packages = packages;
+    }
+
+    static AppSearchIndex build(Collection<AppInfo> source) {
+        Keyed[] keyed = new Keyed[source.size()];
+        int n = 0;
+        for (AppInfo app : source) {
+            keyed[n++] = new Keyed(app, normalize(app.getAppName()), app.getPackageName().toLowerCase(Locale.ROOT));
+        }
+        Arrays.sort(keyed, (a, b) -> {
+            int byName = a.name.compareTo(b.name);
+            return byName != 0 ? byName : a.packageName.compareTo(b.packageName);
+        });
+
+        List<AppInfo> apps = new ArrayList<>(n);
+        String[] names = new String[n];
+        String[] packages = new String[n];
+        for (int i = 0; i < n; i++) {
+            apps.add(keyed[i].app);
+            names[i] = keyed[i].name;
+            packages[i] = keyed[i].packageName;
+        }
+        return new AppSearchIndex(Collections.unmodifiableList(apps), names, packages);
+    }
+
+    /** All apps, sorted by name. */
+    List<AppInfo> all() {
+        return apps;
+    }
+
+    /**
+     * Apps whose name or package contains every word of the query, in list order.
+     * A blank query returns the whole list.
+     */
+    List<AppInfo> filter(String query) {
+        String normalized = query != null ? normalize(query).trim() : "";
+        if (normalized.isEmpty()) return apps;
+        String[] words = SPACES.split(normalized);
+
+        List<AppInfo> matches = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            if (matchesAll(i, words)) {
+                matches.add(apps.get(i));
+            }
+        }
+        return matches;
+    }
+
+    private boolean matchesAll(int app, String[] words) {
+        for (String word : words) {
+            if (!names[app].contains(word) && !packages[app].contains(word)) return false;
+        }
+        return true;
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Keyed {
+        final AppInfo app;
+        final String name;
+        final String packageName;
+
+        Keyed(AppInfo app, String name, String packageName) {
+            this.app = app;
+            this.name = name;
+            this.packageName = packageName;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.adobs.logscope.viewmodels;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.adobs.logscope.core.LogManager;
+import com.adobs.logscope.core.SegmentPager;
+import com.adobs.logscope.core.SessionArchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the newest capture segment of one package for LogViewerActivity.
+ * All file access happens on a single background thread; the UI only reads
+ * counts and cached pages from the SegmentPager. Exports run on a thread of
+ * their own, so a large session never holds up tailing.
+ */
+public class LogViewerViewModel extends AndroidViewModel {
+
+    private static final String TAG = "LogViewerViewModel";
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    // Bytes indexed per step while catching up, so the count grows visibly on big files
+    private static final long SCAN_BUDGET = 2L * 1024 * 1024;
+
+    private final MutableLiveData<SegmentPager> pagerLiveData = new MutableLiveData<>();
+    private final MutableLiveData<Integer> recordCountLiveData = new MutableLiveData<>();
+    private final MutableLiveData<String> exportStatusLiveData = new MutableLiveData<>();
+
+    private final ScheduledExecutorService ioExecutor;
+    private final ExecutorService exportExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private File folder;
+    private SegmentPager pager;     // I/O thread only
+    private boolean catchingUp;     // I/O thread only
+
+    public LogViewerViewModel(@NonNull Application application) {
+        super(application);
+        ioExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "LogScope-Viewer"));
+        exportExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "LogScope-Export");
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Starts tailing the package's captures. Later calls (e.g. after rotation) are ignored.
+     */
+    public void open(@NonNull String packageName) {
+        if (folder != null) return;
+        folder = LogManager.getLogFolder(packageName);
+        ioExecutor.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Replaced when the capture rotates to a new segment. */
+    public LiveData<SegmentPager> getPager() {
+        return pagerLiveData;
+    }
+
+    /** Fires as records are indexed; read the value from SegmentPager.getRecordCount(). */
+    public LiveData<Integer> getRecordCount() {
+        return recordCountLiveData;
+    }
+
+    /** Progress and outcome of exportSession(), as text for the user. */
+    public LiveData<String> getExportStatus() {
+        return exportStatusLiveData;
+    }
+
+    /**
+     * Zips every segment of the session the given segment belongs to (with
+     * sidecars and metrics) into Documents/LogScope/&lt;package&gt;_&lt;session&gt;.zip.
+     */
+    public void exportSession(@NonNull File segment) {
+        String session = SessionArchive.sessionOf(segment);
+        if (folder == null || session == null) return;
+        File target = new File(folder.getParentFile(), folder.getName() + "_" + session + ".zip");
+        exportStatusLiveData.setValue("Exporting " + session + "…");
+        exportExecutor.execute(() -> {
+            try {
+                int files = SessionArchive.write(folder, session, null, target);
+                exportStatusLiveData.postValue("Exported " + files + " files to " + target.getAbsolutePath());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export session " + session, e);
+                exportStatusLiveData.postValue("Export failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads a page in the background and runs onLoaded on the main thread.
+     */
+    public void loadPage(@NonNull SegmentPager target, int page, @NonNull Runnable onLoaded) {
+        ioExecutor.execute(() -> {
+            if (target != pager) return;
+            try {
+                target.loadPage(page);
+                mainHandler.post(onLoaded);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read page " + page + " of " + target.getFile().getName(), e);
+            }
+        });
+    }
+
+    private void poll() {
+        try {
+            File latest = SegmentPager.findLatestSegment(folder);
+            if (latest != null && (pager == null || !latest.equals(pager.getFile()))) {
+                switchTo(latest);
+            }
+            if (pager != null && !catchingUp) {
+                catchUp();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to tail capture in " + folder, e);
+        }
+    }
+
+    /**
+     * One budget-sized indexing step. Re-queues itself until caught up, so page
+     * loads requested by the UI interleave with indexing a large file.
+     */
+    private void catchUp() {
+        try {
+            if (pager.refresh(SCAN_BUDGET) > 0) {
+                recordCountLiveData.postValue(pager.getRecordCount());
+            }
+            catchingUp = !pager.isCaughtUp();
+            if (catchingUp) {
+                ioExecutor.execute(this::catchUp);
+            }
+        } catch (RejectedExecutionException cleared) {
+            catchingUp = false;
+        } catch (IOException e) {
+            catchingUp = false;
+            Log.e(TAG, "Failed to index " + pager.getFile().getName(), e);
+        }
+    }
+
+    private void switchTo(File segment) throws IOException {
+        SegmentPager previous = pager;
+        pager = new SegmentPager(segment);
+        pagerLiveData.postValue(pager);
+        recordCountLiveData.postValue(0);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // Runs after any queued page load; shutdown() also cancels the periodic poll
+        ioExecutor.execute(this::closePager);
+        ioExecutor.shutdown();
+        // A running export finishes; it only touches files
+        exportExecutor.shutdown();
+    }
+
+    private void closePager() {
+        try {
+            if (pager != null) {
+                pager.close();
+            }
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,90 @@
+package com.adobs.logscope.viewmodels;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.adobs.logscope.core.LogManager;
+import com.adobs.logscope.core.LogMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-reads the metrics snapshots of one package (one file per process, plus
+ * the collector's) on a background thread for MetricsActivity.
+ */
+public class MetricsViewModel extends AndroidViewModel {
+
+    private static final String TAG = "MetricsViewModel";
+
+    private static final long POLL_INTERVAL_MILLIS = 2000;
+
+    private final MutableLiveData<String> metricsLiveData = new MutableLiveData<>();
+    private final ScheduledExecutorService ioExecutor;
+    private File folder;
+
+    public MetricsViewModel(@NonNull Application application) {
+        super(application);
+        ioExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "LogScope-Metrics"));
+    }
+
+    /**
+     * Starts polling the package's metrics files. Later calls (e.g. after rotation) are ignored.
+     */
+    public void open(@NonNull String packageName) {
+        if (folder != null) return;
+        folder = LogManager.getLogFolder(packageName);
+        ioExecutor.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public LiveData<String> getMetrics() {
+        return metricsLiveData;
+    }
+
+    private void poll() {
+        File[] files = LogMetrics.listFiles(folder);
+        if (files.length == 0) {
+            metricsLiveData.postValue("No metrics yet. Turn on recording above, then launch the app again.");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (File file : files) {
+            try {
+                text.append(read(file)).append('\n');
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read " + file.getName(), e);
+            }
+        }
+        metricsLiveData.postValue(text.toString());
+    }
+
+    private static String read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        ioExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.adobs.logscope.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogWriterTest {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Counts flushes; the bytes themselves are not kept. */
+    static final class CountingSink implements LogSink {
+        volatile int flushes;
+        volatile long bytes;
+        volatile boolean closed;
+
+        @Override
+        public int appendLine(CharSequence line) {
+            bytes += line.length() + 1;
+            return line.length() + 1;
+        }
+
+        @Override
+        public void appendBytes(byte[] b, int offset, int length) {
+            bytes += length;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final CountingSink sink = new CountingSink();
+    private LogRingBuffer ring;
+    private Backpressure backpressure;
+    private AsyncLogWriter writer;
+    private Thread thread;
+
+    private void start(LogConfig config) {
+        ring = new LogRingBuffer(1024, config.getWaitStrategy());
+        backpressure = new Backpressure(ring, config);
+        writer = new AsyncLogWriter(ring, backpressure, null, null, sink, null, new TagTable(16), null, config);
+        thread = new Thread(writer, "writer");
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    public void flushesAfterRecordLimit() throws InterruptedException {
+        start(new LogConfig.Builder().flushRecords(10).flushBytes(1 << 20).flushInterval(1, TimeUnit.HOURS).build());
+        publish(9, "short");
+        Thread.sleep(200);
+        assertEquals(0, sink.flushes);
+
+        publish(1, "short");
+        assertTrue(awaitFlushes(1));
+    }
+
+    @Test
+    public void flushesAfterByteLimit() throws InterruptedException {
+        start(new LogConfig.Builder().flushRecords(1000).flushBytes(256).flushInterval(1, TimeUnit.HOURS).build());
+        publish(1, "short");
+        Thread.sleep(200);
+        assertEquals(0, sink.flushes);
+
+        StringBuilder longMessage = new StringBuilder();
+        while (longMessage.length() < 300) longMessage.append("payload ");
+        publish(1, longMessage.toString());
+        assertTrue(awaitFlushes(1));
+    }
+
+    @Test
+    public void flushesAfterInterval() throws InterruptedException {
+        start(new LogConfig.Builder().flushRecords(1000).flushBytes(1 << 20).flushInterval(100, TimeUnit.MILLISECONDS)
+                .build());
+        long published = System.nanoTime();
+        publish(1, "short");
+        assertTrue(awaitFlushes(1));
+        assertTrue(System.nanoTime() - published >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void batchesFlushesOfAHighRateStream() throws InterruptedException {
+        start(new LogConfig.Builder().flushRecords(100).flushBytes(1 << 20).flushInterval(1, TimeUnit.HOURS).build());
+        publish(1000, "short");
+        writer.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+        thread.join(5000);
+
+        // One flush per record limit at most, plus the final one on close
+        assertTrue(sink.flushes + " flushes", sink.flushes > 0 && sink.flushes <= 1000 / 100 + 1);
+    }
+
+    @Test
+    public void drainsQueueAndClosesSinkOnStop() throws InterruptedException {
+        start(new LogConfig.Builder().flushRecords(1000).flushBytes(1 << 20).flushInterval(1, TimeUnit.HOURS).build());
+        publish(500, "short");
+        writer.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(ring.isEmpty());
+        assertTrue(sink.closed);
+    }
+
+    private void publish(int count, String message) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(backpressure.publish(System.currentTimeMillis(), LogLevel.INFO, TagTable.NO_ID, "T",
+                    message + " " + i, null, Thread.currentThread()));
+        }
+    }
+
+    private boolean awaitFlushes(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sink.flushes < count) {
+            if (System.nanoTime() - deadline > 0) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+}
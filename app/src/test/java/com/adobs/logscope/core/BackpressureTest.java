@@ -0,0 +1,164 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BackpressureTest {
+
+    private LogRingBuffer ring;
+    private Backpressure backpressure;
+
+    private void create(int capacity, LogConfig.Builder config) {
+        ring = new LogRingBuffer(capacity, WaitStrategy.BLOCKING);
+        backpressure = new Backpressure(ring, config.build());
+    }
+
+    @Test
+    public void dropNewestCountsAndSummarisesOnce() {
+        create(4, new LogConfig.Builder().overflowPolicy(OverflowPolicy.DROP_NEWEST));
+        fill(4);
+        assertFalse(publish(LogLevel.DEBUG));
+        assertFalse(publish(LogLevel.INFO));
+        assertEquals(2, backpressure.totalDropped());
+
+        StringBuilder summary = new StringBuilder();
+        assertTrue(backpressure.appendSummary(summary, 5000));
+        assertEquals("[System] Dropped 2 logs in the last 5s (queue full: 2, oldest shed: 0, sampled out: 0,"
+                + " critical timeout: 0, unrenderable: 0)", summary.toString());
+        // Already reported
+        assertFalse(backpressure.appendSummary(new StringBuilder(), 5000));
+    }
+
+    @Test
+    public void criticalWaitsForRoomUpToTheLimit() {
+        create(4, new LogConfig.Builder().blockCritical(30, TimeUnit.MILLISECONDS));
+        fill(4);
+
+        long start = System.nanoTime();
+        assertFalse(publish(LogLevel.ERROR));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals("queue full: 0, oldest shed: 0, sampled out: 0, critical timeout: 1, unrenderable: 0", totals());
+    }
+
+    @Test
+    public void mergedRecordWaitsForTheWriterThenCountsAsDropped() throws Exception {
+        create(4, new LogConfig.Builder());
+        fill(4);
+
+        long start = System.nanoTime();
+        assertFalse(backpressure.publishMerged(entry(LogLevel.INFO), TagTable.NO_ID, "T", "p",
+                TimeUnit.MILLISECONDS.toNanos(30)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals("queue full: 1, oldest shed: 0, sampled out: 0, critical timeout: 0, unrenderable: 0", totals());
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                ring.drain(record -> { }, 1);
+            } catch (Exception ignored) {
+            }
+        });
+        consumer.start();
+        assertTrue(backpressure.publishMerged(entry(LogLevel.ERROR), TagTable.NO_ID, "T", "p",
+                TimeUnit.SECONDS.toNanos(5)));
+        consumer.join();
+        assertEquals(1, backpressure.totalDropped());
+    }
+
+    @Test
+    public void criticalGetsInWhenTheWriterMakesRoom() throws Exception {
+        create(4, new LogConfig.Builder().blockCritical(5, TimeUnit.SECONDS));
+        fill(4);
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                ring.drain(record -> { }, 1);
+            } catch (Exception ignored) {
+            }
+        });
+        consumer.start();
+
+        assertTrue(publish(LogLevel.ERROR));
+        consumer.join();
+        assertEquals(0, backpressure.totalDropped());
+    }
+
+    @Test
+    public void writerThreadNeverBlocksOnItsOwnRing() {
+        create(4, new LogConfig.Builder().blockCritical(5, TimeUnit.SECONDS));
+        fill(4);
+        backpressure.onWriterStart(Thread.currentThread());
+
+        long start = System.nanoTime();
+        assertFalse(publish(LogLevel.ERROR));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals("queue full: 1, oldest shed: 0, sampled out: 0, critical timeout: 0, unrenderable: 0", totals());
+    }
+
+    @Test
+    public void dropOldestShedsQueuedRecordsButKeepsCritical() throws Exception {
+        create(4, new LogConfig.Builder().overflowPolicy(OverflowPolicy.DROP_OLDEST));
+        publish(LogLevel.ERROR);
+        fill(3);
+        AtomicInteger kept = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            try {
+                ring.await(TimeUnit.SECONDS.toNanos(5));
+                int shed = 0;
+                while (shed == 0) {
+                    shed = ring.shedIfRequested(2, LogLevel.ERROR, record -> kept.incrementAndGet());
+                    Thread.yield();
+                }
+                backpressure.onShed(shed);
+            } catch (Exception ignored) {
+            }
+        });
+        writer.start();
+
+        assertTrue(publish(LogLevel.DEBUG));
+        writer.join(5000);
+        // Down to 2 queued: the E record at the head is handed on, the D record behind it is shed
+        assertEquals(1, kept.get());
+        assertEquals("queue full: 0, oldest shed: 1, sampled out: 0, critical timeout: 0, unrenderable: 0", totals());
+    }
+
+    @Test
+    public void sampleThinsNonCriticalAboveHighWater() {
+        // 1 in a million: effectively everything above the high-water mark is sampled out
+        create(8, new LogConfig.Builder().overflowPolicy(OverflowPolicy.SAMPLE).sampleRate(1_000_000));
+        fill(6);
+        assertTrue(publish(LogLevel.DEBUG));
+        assertFalse(publish(LogLevel.DEBUG));
+        assertTrue(publish(LogLevel.ERROR));
+        assertEquals("queue full: 0, oldest shed: 0, sampled out: 1, critical timeout: 0, unrenderable: 0", totals());
+    }
+
+    private void fill(int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(publish(LogLevel.DEBUG));
+        }
+    }
+
+    private boolean publish(byte level) {
+        return backpressure.publish(System.currentTimeMillis(), level, TagTable.NO_ID, "T", "message", null,
+                Thread.currentThread());
+    }
+
+    private String totals() {
+        StringBuilder out = new StringBuilder();
+        backpressure.appendTotals(out);
+        return out.toString();
+    }
+
+    private static LogEntry entry(int level) {
+        return new LogEntry(System.currentTimeMillis(), 1, "main", level, "T", "merged", null);
+    }
+}
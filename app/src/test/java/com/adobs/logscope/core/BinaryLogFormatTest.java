@@ -0,0 +1,133 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryLogFormatTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final TagTable tags = new TagTable(16);
+    private final LogRecord record = new LogRecord();
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.lsb");
+        Thread worker = new Thread("worker \u4e2d");
+        long base = 1_714_557_600_000L;
+
+        try (ChannelSink sink = new ChannelSink(file, 64)) {
+            BinaryRecordEncoder encoder = new BinaryRecordEncoder(tags, new StackTraceCache(false));
+            encoder.startSegment(sink);
+            for (int i = 0; i < 100; i++) {
+                String tag = "Tag" + (i % 5);
+                record.set(base + i * 7L, LogLevel.DEBUG, tags.intern(tag), null, "message " + i + " \u00e9",
+                        null, i % 2 == 0 ? worker : Thread.currentThread());
+                encoder.encode(record, sink);
+            }
+            // A tag that could not be interned travels as text
+            record.set(base + 1000, LogLevel.WARN, TagTable.NO_ID, "RawTag", "raw", null, worker);
+            encoder.encode(record, sink);
+            record.set(base + 2000, LogLevel.ERROR, tags.intern("Crash"), null, "failed",
+                    new IllegalStateException("bad state"), worker);
+            encoder.encode(record, sink);
+        }
+
+        List<LogEntry> entries = readAll(file);
+        assertEquals(102, entries.size());
+        for (int i = 0; i < 100; i++) {
+            LogEntry entry = entries.get(i);
+            assertEquals(base + i * 7L, entry.getTimestamp());
+            assertEquals(LogLevel.DEBUG, entry.getLevel());
+            assertEquals("Tag" + (i % 5), entry.getTag());
+            assertEquals("message " + i + " \u00e9", entry.getMessage());
+            Thread thread = i % 2 == 0 ? worker : Thread.currentThread();
+            assertEquals(thread.getId(), entry.getThreadId());
+            assertEquals(thread.getName(), entry.getThreadName());
+            assertNull(entry.getStackTrace());
+        }
+
+        LogEntry raw = entries.get(100);
+        assertEquals(LogLevel.WARN, raw.getLevel());
+        assertEquals("RawTag", raw.getTag());
+
+        LogEntry crash = entries.get(101);
+        assertEquals("Crash", crash.getTag());
+        assertTrue(crash.getStackTrace(), crash.getStackTrace().startsWith("java.lang.IllegalStateException: bad state"));
+    }
+
+    @Test
+    public void truncatedRecordEndsTheStream() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.lsb");
+        try (ChannelSink sink = new ChannelSink(file, 64)) {
+            BinaryRecordEncoder encoder = new BinaryRecordEncoder(tags, new StackTraceCache(false));
+            encoder.startSegment(sink);
+            for (int i = 0; i < 10; i++) {
+                record.set(1000 + i, LogLevel.INFO, tags.intern("T"), null, "message " + i, null,
+                        Thread.currentThread());
+                encoder.encode(record, sink);
+            }
+        }
+        // Cut into the last record, as a crash mid-write would
+        try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+            cut.setLength(cut.length() - 3);
+        }
+
+        List<LogEntry> entries = readAll(file);
+        assertEquals(9, entries.size());
+        assertEquals("message 8", entries.get(8).getMessage());
+    }
+
+    @Test
+    public void exportsTextAndJsonLines() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.lsb");
+        try (ChannelSink sink = new ChannelSink(file, 64)) {
+            BinaryRecordEncoder encoder = new BinaryRecordEncoder(tags, new StackTraceCache(false));
+            encoder.startSegment(sink);
+            for (int i = 0; i < 3; i++) {
+                record.set(1000 + i, LogLevel.WARN, tags.intern("Net"), null, "slow \u00e9 " + i, null,
+                        Thread.currentThread());
+                encoder.encode(record, sink);
+            }
+        }
+
+        StringWriter text = new StringWriter();
+        assertEquals(3, LogExporter.export(file, text, LogExporter.Target.TEXT));
+        String[] lines = text.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[2], lines[2].endsWith("[W/Net] slow \u00e9 2"));
+
+        StringWriter json = new StringWriter();
+        assertEquals(3, LogExporter.export(file, json, LogExporter.Target.JSON_LINES));
+        lines = json.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"time\":1000,"));
+        assertTrue(lines[0], lines[0].contains("\"level\":\"W\",\"tag\":\"Net\",\"msg\":\"slow \u00e9 0\"}"));
+    }
+
+    private static List<LogEntry> readAll(File file) throws IOException {
+        List<LogEntry> entries = new ArrayList<>();
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            LogEntry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,149 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BurstCollapserTest {
+
+    private static final long T0 = 1_714_557_600_000L;
+
+    private final TagTable tags = new TagTable(16);
+    private final List<String> written = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+    // The summary record is reused, so only copies are kept
+    private final LogRingBuffer.Handler out = record -> {
+        written.add(record.tag(tags) + ": " + record.message);
+        timestamps.add(record.timestamp);
+    };
+
+    @Test
+    public void repeatsAreCountedAndSummarizedOnFlush() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(4, tags);
+        assertFalse(collapser.absorb(record(T0, LogLevel.WARN, "Net", "retrying"), out));
+        assertTrue(collapser.absorb(record(T0 + 10, LogLevel.WARN, "Net", "retrying"), out));
+        assertTrue(collapser.absorb(record(T0 + 20, LogLevel.WARN, "Net", "retrying"), out));
+        assertTrue(collapser.absorb(record(T0 + 1_234, LogLevel.WARN, "Net", "retrying"), out));
+        assertTrue(written.isEmpty());
+
+        assertEquals(1, collapser.emitAll(out));
+        assertEquals("Net: [repeated x3 " + time(T0 + 10) + " - " + time(T0 + 1_234) + "] retrying",
+                written.get(0));
+        assertEquals(T0 + 1_234, (long) timestamps.get(0));
+
+        // Nothing pending any more, but the line is still in the window
+        assertEquals(0, collapser.emitAll(out));
+        assertTrue(collapser.absorb(record(T0 + 2_000, LogLevel.WARN, "Net", "retrying"), out));
+    }
+
+    @Test
+    public void singleRepeatIsWrittenAsItself() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(4, tags);
+        collapser.absorb(record(T0, LogLevel.INFO, "Net", "connected"), out);
+        assertTrue(collapser.absorb(record(T0 + 5, LogLevel.INFO, "Net", "connected"), out));
+
+        collapser.emitAll(out);
+        assertEquals(1, written.size());
+        assertEquals("Net: connected", written.get(0));
+    }
+
+    @Test
+    public void lineLeavingTheWindowWritesItsRepeatsFirst() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(2, tags);
+        collapser.absorb(record(T0, LogLevel.DEBUG, "A", "one"), out);
+        collapser.absorb(record(T0 + 1, LogLevel.DEBUG, "A", "one"), out);
+        collapser.absorb(record(T0 + 2, LogLevel.DEBUG, "A", "one"), out);
+        assertFalse(collapser.absorb(record(T0 + 3, LogLevel.DEBUG, "A", "two"), out));
+        assertTrue(written.isEmpty());
+
+        // "one" is the oldest of a full window: its summary goes out before "three" is written
+        assertFalse(collapser.absorb(record(T0 + 4, LogLevel.DEBUG, "A", "three"), out));
+        assertEquals(1, written.size());
+        assertTrue(written.get(0), written.get(0).startsWith("A: [repeated x2 "));
+        assertTrue(written.get(0).endsWith("] one"));
+
+        // Evicted, so "one" is new again
+        assertFalse(collapser.absorb(record(T0 + 5, LogLevel.DEBUG, "A", "one"), out));
+    }
+
+    @Test
+    public void onlyIdenticalLinesAreCollapsed() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(8, tags);
+        collapser.absorb(record(T0, LogLevel.DEBUG, "Net", "ping"), out);
+        assertFalse(collapser.absorb(record(T0, LogLevel.INFO, "Net", "ping"), out));
+        assertFalse(collapser.absorb(record(T0, LogLevel.DEBUG, "Db", "ping"), out));
+        assertFalse(collapser.absorb(record(T0, LogLevel.DEBUG, "Net", "pong"), out));
+
+        LogRecord remote = record(T0, LogLevel.DEBUG, "Net", "ping");
+        remote.process = "com.example:sync";
+        assertFalse(collapser.absorb(remote, out));
+        assertEquals(0, collapser.emitAll(out));
+    }
+
+    @Test
+    public void errorsAndTracesAreNeverCollapsed() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(4, tags);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(collapser.absorb(record(T0, LogLevel.ERROR, "Net", "failed"), out));
+            assertFalse(collapser.absorb(record(T0, LogLevel.ASSERT, "Net", "wtf"), out));
+
+            LogRecord withTrace = record(T0, LogLevel.WARN, "Net", "slow");
+            withTrace.stackTrace = "Stacktrace:\n#1 java.lang.Thread.run";
+            assertFalse(collapser.absorb(withTrace, out));
+
+            LogRecord withThrowable = record(T0, LogLevel.WARN, "Net", "slow");
+            withThrowable.throwable = new IllegalStateException();
+            assertFalse(collapser.absorb(withThrowable, out));
+        }
+        assertEquals(0, collapser.emitAll(out));
+    }
+
+    @Test
+    public void resetForgetsTheWindow() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(4, tags);
+        collapser.absorb(record(T0, LogLevel.DEBUG, "Net", "ping"), out);
+        collapser.reset();
+        assertFalse(collapser.absorb(record(T0 + 1, LogLevel.DEBUG, "Net", "ping"), out));
+    }
+
+    @Test
+    public void uninternedTagsAreComparedAsStrings() throws Exception {
+        BurstCollapser collapser = new BurstCollapser(4, tags);
+        LogRecord first = record(T0, LogLevel.DEBUG, null, "ping");
+        first.tag = new String("Overflow");
+        collapser.absorb(first, out);
+
+        LogRecord second = record(T0 + 1, LogLevel.DEBUG, null, "ping");
+        second.tag = new String("Overflow");
+        assertTrue(collapser.absorb(second, out));
+        LogRecord third = record(T0 + 2, LogLevel.DEBUG, null, "ping");
+        third.tag = "Overflow";
+        assertTrue(collapser.absorb(third, out));
+
+        collapser.emitAll(out);
+        assertTrue(written.get(0), written.get(0).startsWith("Overflow: [repeated x2 "));
+    }
+
+    private LogRecord record(long timestamp, byte level, String tag, String message) {
+        LogRecord record = new LogRecord();
+        record.timestamp = timestamp;
+        record.level = level;
+        record.tagId = tag != null ? tags.intern(tag) : TagTable.NO_ID;
+        record.message = message;
+        record.threadId = 1;
+        record.threadName = "main";
+        return record;
+    }
+
+    private static String time(long timestamp) {
+        return new SimpleDateFormat("HH:mm:ss.SSS", Locale.US).format(new Date(timestamp));
+    }
+}
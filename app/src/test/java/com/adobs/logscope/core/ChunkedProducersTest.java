@@ -0,0 +1,101 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedProducersTest {
+
+    private final LogRingBuffer ring = new LogRingBuffer(16, WaitStrategy.BLOCKING);
+    private final Backpressure backpressure = new Backpressure(ring, new LogConfig.Builder().build());
+
+    @Test
+    public void handsOverFullChunks() throws IOException {
+        ChunkedProducers producers = new ChunkedProducers(4, 64, ring, backpressure);
+        for (long t = 1; t <= 3; t++) {
+            append(producers, t, LogLevel.DEBUG);
+        }
+        assertTrue(producers.isEmpty());
+
+        append(producers, 4, LogLevel.DEBUG);
+        assertFalse(producers.isEmpty());
+        assertEquals(4, producers.pendingRecords());
+        assertEquals(Arrays.asList("1", "2", "3", "4"), drain(producers));
+        assertTrue(producers.isEmpty());
+    }
+
+    @Test
+    public void errorsAreHandedOverAtOnce() throws IOException {
+        ChunkedProducers producers = new ChunkedProducers(256, 1024, ring, backpressure);
+        append(producers, 1, LogLevel.DEBUG);
+        append(producers, 2, LogLevel.ERROR);
+        assertFalse(producers.isEmpty());
+        assertEquals(Arrays.asList("1", "2"), drain(producers));
+    }
+
+    @Test
+    public void sweepMergesThreadsByTimestamp() throws Exception {
+        ChunkedProducers producers = new ChunkedProducers(256, 1024, ring, backpressure);
+        Thread odd = new Thread(() -> {
+            for (long t = 1; t <= 9; t += 2) append(producers, t, LogLevel.DEBUG);
+        }, "odd");
+        Thread even = new Thread(() -> {
+            for (long t = 2; t <= 10; t += 2) append(producers, t, LogLevel.DEBUG);
+        }, "even");
+        odd.start();
+        even.start();
+        odd.join();
+        even.join();
+        assertTrue(producers.isEmpty());
+
+        producers.sweep();
+        List<String> threads = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        producers.drain(record -> {
+            messages.add(record.message);
+            threads.add(record.threadName);
+        });
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10"), messages);
+        assertEquals(Arrays.asList("odd", "even", "odd", "even", "odd", "even", "odd", "even", "odd", "even"),
+                threads);
+    }
+
+    @Test
+    public void dropsWhenEveryChunkIsTaken() throws Exception {
+        // Room for two chunks: a third thread finds none
+        ChunkedProducers producers = new ChunkedProducers(4, 8, ring, backpressure);
+        boolean[] accepted = new boolean[3];
+        for (int i = 0; i < accepted.length; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> accepted[index] = append(producers, index, LogLevel.DEBUG));
+            thread.start();
+            thread.join();
+        }
+        assertTrue(accepted[0]);
+        assertTrue(accepted[1]);
+        assertFalse(accepted[2]);
+        assertEquals(1, backpressure.totalDropped());
+
+        // Draining frees the chunks again
+        producers.sweep();
+        drain(producers);
+        assertTrue(append(producers, 10, LogLevel.DEBUG));
+    }
+
+    private static boolean append(ChunkedProducers producers, long timestamp, byte level) {
+        return producers.append(timestamp, level, TagTable.NO_ID, "T", Long.toString(timestamp), null);
+    }
+
+    private static List<String> drain(ChunkedProducers producers) throws IOException {
+        List<String> messages = new ArrayList<>();
+        producers.drain(record -> messages.add(record.message));
+        return messages;
+    }
+}
@@ -0,0 +1,174 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One app with several processes, each logging a batch: written by every
+ * process to its own segments (FILES), or streamed to one LogCollector that
+ * merges them into a single session (COLLECTOR). Each invocation publishes the
+ * batch into the processes' rings and waits until everything is on disk, so
+ * the time covers the merge and the collector's writer as well. cpuMillis is
+ * the CPU time of the whole JVM over the same span: every writer, the merge
+ * and connection threads, and the socket copies.
+ *
+ * The processes are writer threads in this JVM, talking over loopback.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="CollectorBenchmark"
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CollectorBenchmark {
+
+    private static final int RECORDS_PER_PROCESS = 20_000;
+    private static final String SESSION = "2024-05-01_10-00-00";
+    private static final String[] TAGS = new String[16];
+    private static final String[] MESSAGES = new String[64];
+
+    static {
+        for (int i = 0; i < TAGS.length; i++) {
+            TAGS[i] = "Tag" + i;
+        }
+        for (int i = 0; i < MESSAGES.length; i++) {
+            MESSAGES[i] = "Request " + i + " finished in 12 ms, status=OK, bytes=" + (i * 1337);
+        }
+    }
+
+    public enum Output { FILES, COLLECTOR }
+
+    /** The writer side of one process, as LogManager sets it up. */
+    static final class Process {
+        final TagTable tags = new TagTable(64);
+        final LogRingBuffer ring = new LogRingBuffer(32_768, WaitStrategy.BLOCKING);
+        final Backpressure backpressure;
+        final AsyncLogWriter writer;
+        final Thread thread;
+
+        Process(String name, File folder, String collector) throws IOException {
+            LogConfig.Builder builder = new LogConfig.Builder().collapseWindow(0).compressSegments(false)
+                    .metricsInterval(0, TimeUnit.MILLISECONDS);
+            LogSink sink = null;
+            if (collector != null) {
+                LogConfig config = builder.collector(collector).collectorTransport(CollectorTransport.LOOPBACK)
+                        .build();
+                sink = LogCollector.connect(name, config);
+                if (sink == null) throw new IOException("Collector " + collector + " not running");
+            }
+            LogConfig config = builder.build();
+            backpressure = new Backpressure(ring, config);
+
+            LogSink stream = sink;
+            writer = new AsyncLogWriter(ring, backpressure, null, tags, null, config, () -> {
+                if (stream != null) return new AsyncLogWriter.Output(null, stream, null);
+                File own = new File(folder, name);
+                own.mkdirs();
+                LogSegments segments = new LogSegments(own, SESSION, config);
+                return new AsyncLogWriter.Output(segments, segments.open(), null);
+            });
+            thread = new Thread(writer, "writer-" + name);
+            thread.start();
+        }
+
+        void log(int i) {
+            Thread caller = Thread.currentThread();
+            while (!backpressure.publish(System.currentTimeMillis(), LogLevel.DEBUG, tags.intern(TAGS[i & 15]),
+                    null, MESSAGES[i & 63], null, caller)) {
+                Thread.yield();
+            }
+        }
+
+        void stop() throws InterruptedException {
+            writer.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(30));
+            thread.join();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class App {
+
+        @Param({"FILES", "COLLECTOR"})
+        public Output output;
+
+        @Param({"1", "4"})
+        public int processes;
+
+        File root;
+        LogCollector collector;
+        Process[] running;
+
+        @Setup(Level.Iteration)
+        public void start() throws IOException {
+            root = Files.createTempDirectory("collectorbench").toFile();
+            String name = null;
+            if (output == Output.COLLECTOR) {
+                try (ServerSocket socket = new ServerSocket(0)) {
+                    name = Integer.toString(socket.getLocalPort());
+                }
+                collector = LogCollector.start(name, new File(root, "collector"), new LogConfig.Builder()
+                        .collectorTransport(CollectorTransport.LOOPBACK)
+                        .collapseWindow(0)
+                        .compressSegments(false)
+                        .metricsInterval(0, TimeUnit.MILLISECONDS)
+                        .build());
+            }
+            running = new Process[processes];
+            for (int p = 0; p < processes; p++) {
+                running[p] = new Process("p" + p, root, name);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void cleanUp() {
+            HookToDiskBenchmark.deleteRecursively(root);
+        }
+    }
+
+    /** Process CPU time, reported next to the wall time as a total over all measured invocations. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cpu {
+        public double cpuMillis;
+    }
+
+    @Benchmark
+    public boolean logAndWrite(App app, Cpu cpu) throws InterruptedException {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+
+        for (int i = 0; i < RECORDS_PER_PROCESS; i++) {
+            for (Process process : app.running) {
+                process.log(i);
+            }
+        }
+        for (Process process : app.running) {
+            process.stop();
+        }
+        boolean drained = app.collector == null || app.collector.close(30, TimeUnit.SECONDS);
+
+        cpu.cpuMillis += (os.getProcessCpuTime() - cpuStart) / 1e6;
+        return drained;
+    }
+}
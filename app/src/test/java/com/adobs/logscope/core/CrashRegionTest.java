@@ -0,0 +1,81 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CrashRegionTest {
+
+    private static final String SESSION = "2024-05-01_10-00-00";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final TagTable tags = new TagTable(16);
+    private final LogRecord record = new LogRecord();
+
+    @Test
+    public void recoversLastRecordsOldestFirstAfterUncleanExit() throws IOException {
+        File folder = temp.getRoot();
+        CrashRegion region = CrashRegion.open(new File(folder, CrashRegion.FILE_NAME), SESSION, 4);
+        for (int i = 0; i < 6; i++) {
+            append(region, LogLevel.INFO, "message " + i, null);
+        }
+        // No close(): the process died
+
+        File recovered = CrashRegion.recover(folder);
+        assertEquals(new File(folder, "Log_" + SESSION + CrashRegion.RECOVERED_SUFFIX), recovered);
+        List<String> lines = Files.readAllLines(recovered.toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(lines.get(i), lines.get(i).endsWith("[I/Tag] message " + (i + 2)));
+        }
+    }
+
+    @Test
+    public void cleanCloseLeavesNothingToRecover() throws IOException {
+        File folder = temp.getRoot();
+        CrashRegion region = CrashRegion.open(new File(folder, CrashRegion.FILE_NAME), SESSION, 4);
+        append(region, LogLevel.INFO, "message", null);
+        region.close();
+
+        assertNull(CrashRegion.recover(folder));
+    }
+
+    @Test
+    public void missingRegionRecoversNothing() throws IOException {
+        assertNull(CrashRegion.recover(temp.getRoot()));
+    }
+
+    @Test
+    public void truncatesLongRecordsAndKeepsTheExceptionLine() throws IOException {
+        File folder = temp.getRoot();
+        CrashRegion region = CrashRegion.open(new File(folder, CrashRegion.FILE_NAME), SESSION, 4);
+        append(region, LogLevel.ERROR, "fatal", new IllegalStateException("broken"));
+        StringBuilder huge = new StringBuilder();
+        while (huge.length() < 1000) huge.append("0123456789");
+        append(region, LogLevel.WARN, huge.toString(), null);
+
+        String text = new String(Files.readAllBytes(CrashRegion.recover(folder).toPath()), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains("[E/Tag] fatal"));
+        assertTrue(text, text.contains("java.lang.IllegalStateException: broken"));
+        assertTrue(text, text.contains("[W/Tag] 0123456789"));
+        assertTrue(text.length() < 1000);
+    }
+
+    private void append(CrashRegion region, byte level, String message, Throwable throwable) {
+        record.set(System.currentTimeMillis(), level, tags.intern("Tag"), null, message, throwable,
+                Thread.currentThread());
+        region.append(record, tags);
+    }
+}
@@ -0,0 +1,127 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesHaveTheirOwnBucket() {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.upperBoundOf((int) value));
+        }
+    }
+
+    @Test
+    public void everyValueFallsWithinItsBucketAndWithinAnEighth() {
+        long previousBucket = -1;
+        for (long value = 0; value < 1L << 20; value++) {
+            int bucket = Histogram.bucketOf(value);
+            long upper = Histogram.upperBoundOf(bucket);
+            assertTrue(value + " above " + upper, value <= upper);
+            assertTrue(value + " reported as " + upper, upper - value <= value / 8);
+            // Buckets are contiguous and never go back
+            assertTrue(bucket == previousBucket || bucket == previousBucket + 1);
+            previousBucket = bucket;
+        }
+    }
+
+    @Test
+    public void bucketBoundsCoverTheWholeRange() {
+        for (int bucket = 0; bucket < Histogram.BUCKETS - 1; bucket++) {
+            long upper = Histogram.upperBoundOf(bucket);
+            assertEquals(bucket, Histogram.bucketOf(upper));
+            assertEquals(bucket + 1, Histogram.bucketOf(upper + 1));
+        }
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(1L << 41));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesOfAUniformRange() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.count);
+        assertEquals(10_000, snapshot.max);
+        assertEquals(5000.5, snapshot.mean(), 1e-9);
+        assertWithinAnEighth(5000, snapshot.percentile(50));
+        assertWithinAnEighth(9900, snapshot.percentile(99));
+        assertEquals(1, snapshot.percentile(0));
+        // Never above the largest value actually recorded
+        assertEquals(10_000, snapshot.percentile(100));
+    }
+
+    @Test
+    public void rareOutlierOnlyShowsInTheTail() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5_000_000);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertWithinAnEighth(100, snapshot.percentile(50));
+        assertWithinAnEighth(100, snapshot.percentile(99.9));
+        assertEquals(5_000_000, snapshot.percentile(99.95));
+        assertEquals(5_000_000, snapshot.max);
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.snapshot().percentile(99));
+        assertEquals(0, histogram.snapshot().mean(), 0);
+
+        // A clock that stepped back counts as 0 rather than corrupting the sum
+        histogram.record(-5);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count);
+        assertEquals(0, snapshot.sum);
+        assertEquals(1, snapshot.counts[0]);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i & 1023);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.snapshot().count);
+    }
+
+    @Test
+    public void recordAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = LogFormatterTest.threadBean();
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 20_000; i++) {
+            histogram.record(i * 31L);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i * 31L);
+        }
+        long perCall = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100_000;
+        assertTrue(perCall + " bytes per record", perCall < 1);
+    }
+
+    private static void assertWithinAnEighth(long expected, long actual) {
+        assertTrue(actual + " for " + expected, actual >= expected && actual - expected <= expected / 8);
+    }
+}
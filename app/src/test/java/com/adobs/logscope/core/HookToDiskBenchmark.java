@@ -0,0 +1,319 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hook-to-disk cost on a plain JVM: LogHook is installed through a fake
+ * HookEngine that hands back its hooks, and the benchmarks call them the way
+ * BlackBox would after Log.d/Log.e returns. Segments go to a temp folder.
+ *
+ * callD, callE and callDContended sample what the app thread pays per call, so
+ * the tail shows next to the median. drainToDisk measures one batch from the
+ * hook until the writer has closed the segment; the batch fits the ring, so
+ * nothing is dropped and the time is the writer's. bytesWritten is what the
+ * writer encoded while the iterations ran.
+ *
+ * ./gradlew :app:hookBenchmark (with -prof gc), or with JMH options:
+ * -PjmhArgs="-f 1 -wi 2 -p profile=EXCEPTION_STORM drainToDisk"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HookToDiskBenchmark {
+
+    private static final String PACKAGE = "com.bench";
+
+    private static final String[] TAGS = new String[20];
+
+    static {
+        for (int i = 0; i < TAGS.length; i++) {
+            TAGS[i] = "Tag" + i;
+        }
+    }
+
+    /** What the app logs. The batch of each stays under LogManager's ring capacity. */
+    public enum Profile {
+        /** Short lines; errors carry one of a few recurring exceptions, as most apps' do. */
+        TYPICAL(40_000, 0, 16),
+        /**
+         * 16 KB messages (JSON dumps, base64 blobs): logcat keeps about 4 KB of a line,
+         * but the hook sees the whole string.
+         */
+        HUGE_MESSAGE(1_000, 16 * 1024, 16),
+        /**
+         * Every error has its own exception, more than StackTraceCache remembers, so
+         * each trace is rendered in full. drainToDisk logs errors only.
+         */
+        EXCEPTION_STORM(4_000, 0, 4 * StackTraceCache.MAX_ENTRIES);
+
+        final int batch;
+        final int messageChars;   // 0 = about 60
+        final int failures;
+
+        Profile(int batch, int messageChars, int failures) {
+            this.batch = batch;
+            this.messageChars = messageChars;
+            this.failures = failures;
+        }
+
+        String[] messages() {
+            // More distinct lines than any collapse window, so no repeats are folded
+            String[] messages = new String[64];
+            for (int i = 0; i < messages.length; i++) {
+                StringBuilder message = new StringBuilder("Request " + i + " finished in 12 ms, status=OK, bytes="
+                        + (i * 1337));
+                while (message.length() < messageChars) {
+                    message.append(", \"field").append(message.length()).append("\":\"").append(i).append('"');
+                }
+                messages[i] = message.toString();
+            }
+            return messages;
+        }
+
+        Throwable[] failures() {
+            Throwable[] failures = new Throwable[this.failures];
+            for (int i = 0; i < failures.length; i++) {
+                // Depth and message both differ, so no two fingerprints match
+                failures[i] = nested(10 + i % 16, "Request " + i + " failed");
+            }
+            return failures;
+        }
+    }
+
+    /**
+     * Collects the hooks LogHook registers, by method name and arity (e.g. "d2", "e3").
+     */
+    static final class FakeHookEngine implements HookEngine {
+
+        final Map<String, AfterHook> hooks = new HashMap<>();
+
+        @Override
+        public void hookAfter(Method method, AfterHook hook) {
+            hooks.put(method.getName() + method.getParameterTypes().length, hook);
+        }
+
+        AfterHook get(String key) {
+            AfterHook hook = hooks.get(key);
+            if (hook == null) throw new IllegalStateException("LogHook did not hook " + key);
+            return hook;
+        }
+    }
+
+    /**
+     * One capture session in a temp folder, with LogHook attached to it.
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Capture {
+
+        @Param({"TEXT", "BINARY"})
+        public LogFormat format;
+
+        @Param({"TYPICAL", "HUGE_MESSAGE", "EXCEPTION_STORM"})
+        public Profile profile;
+
+        File folder;
+        HookEngine.AfterHook d;
+        HookEngine.AfterHook e;
+        String[] messages;
+        Throwable[] failures;
+
+        void start() throws IOException {
+            messages = profile.messages();
+            failures = profile.failures();
+            folder = new File(Files.createTempDirectory("hookbench").toFile(), PACKAGE);
+            LogManager.init(PACKAGE, folder, new LogConfig.Builder().format(format).build());
+            FakeHookEngine engine = new FakeHookEngine();
+            LogHook.startHooking(engine);
+            d = engine.get("d2");
+            e = engine.get("e3");
+        }
+
+        void stop() {
+            long dropped = LogManager.getDroppedCount();
+            if (!LogManager.shutdown(30, TimeUnit.SECONDS)) {
+                System.err.println("Writer did not drain within 30 s");
+            }
+            if (dropped > 0) {
+                System.err.println(dropped + " records dropped by the overflow policy");
+            }
+            deleteRecursively(folder.getParentFile());
+        }
+    }
+
+    /** One session for the whole run. */
+    @State(Scope.Benchmark)
+    public static class Session extends Capture {
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stop();
+        }
+    }
+
+    /** A fresh session per batch, so every drainToDisk call starts with an empty ring. */
+    @State(Scope.Benchmark)
+    public static class BatchSession extends Capture {
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            // drainToDisk has already shut the session down; this only reports and cleans up
+            stop();
+        }
+    }
+
+    /** Per-thread position in TAGS, messages and failures. */
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+    }
+
+    /**
+     * Bytes the writer encoded during each measured iteration of the session,
+     * split evenly over the calling threads so that their sum is the total.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Written {
+        public long bytesWritten;
+        private long atStart;
+        private int threads;
+
+        @Setup(Level.Iteration)
+        public void start(ThreadParams params) {
+            threads = params.getThreadCount();
+            atStart = LogManager.getBytesWritten();
+            bytesWritten = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            bytesWritten = (LogManager.getBytesWritten() - atStart) / threads;
+        }
+    }
+
+    /** drainToDisk starts a new session per batch, so it counts what that batch wrote itself. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BatchWritten {
+        public long bytesWritten;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            bytesWritten = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object callD(Session session, Caller caller, Written written) {
+        int i = caller.next++;
+        // BlackBox allocates the argument array for every call, so the fake does too
+        return session.d.afterHookedMethod(new Object[]{TAGS[i % TAGS.length], session.messages[i & 63]});
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object callE(Session session, Caller caller, Written written) {
+        int i = caller.next++;
+        Throwable failure = session.failures[i % session.failures.length];
+        return session.e.afterHookedMethod(new Object[]{TAGS[i % TAGS.length], session.messages[i & 63], failure});
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Threads(4)
+    public Object callDContended(Session session, Caller caller, Written written) {
+        int i = caller.next++;
+        return session.d.afterHookedMethod(new Object[]{TAGS[i % TAGS.length], session.messages[i & 63]});
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public boolean drainToDisk(BatchSession session, BatchWritten written) {
+        String[] messages = session.messages;
+        Throwable[] failures = session.failures;
+        int batch = session.profile.batch;
+        if (session.profile == Profile.EXCEPTION_STORM) {
+            HookEngine.AfterHook e = session.e;
+            for (int i = 0; i < batch; i++) {
+                Throwable failure = failures[i % failures.length];
+                e.afterHookedMethod(new Object[]{TAGS[i % TAGS.length], messages[i & 63], failure});
+            }
+        } else {
+            HookEngine.AfterHook d = session.d;
+            for (int i = 0; i < batch; i++) {
+                d.afterHookedMethod(new Object[]{TAGS[i % TAGS.length], messages[i & 63]});
+            }
+        }
+        boolean drained = LogManager.shutdown(30, TimeUnit.SECONDS);
+        // Final once the writer has stopped
+        written.bytesWritten += LogManager.getBytesWritten();
+        return drained;
+    }
+
+    private static Throwable nested(int depth, String message) {
+        return depth == 0 ? new IllegalStateException(message) : nested(depth - 1, message);
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (options.getIncludes().isEmpty()) {
+            builder.include(HookToDiskBenchmark.class.getSimpleName());
+        }
+        new Runner(builder.build()).run();
+    }
+}
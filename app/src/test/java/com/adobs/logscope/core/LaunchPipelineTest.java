@@ -0,0 +1,225 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LaunchState;
+import com.adobs.logscope.models.LaunchState.Stage;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchPipelineTest {
+
+    private static final String APP = "com.example.app";
+
+    /** Records every call; an install can be held until the test releases it. */
+    private static final class FakeEngine implements LaunchEngine {
+        long deviceUpdateTime = 200;
+        // Package -> update time of the installed copy; missing = not installed
+        final Map<String, Long> engineCopies = new ConcurrentHashMap<>();
+        final AtomicInteger queries = new AtomicInteger();
+        final AtomicInteger installs = new AtomicInteger();
+        final AtomicInteger launches = new AtomicInteger();
+        volatile CountDownLatch installStarted = new CountDownLatch(1);
+        volatile CountDownLatch releaseInstall = new CountDownLatch(0);
+        volatile Error launchError;
+
+        @Override
+        public String resolveApk(String packageName) {
+            return "/data/app/" + packageName + "/base.apk";
+        }
+
+        @Override
+        public long lastUpdateTime(String packageName) {
+            return deviceUpdateTime;
+        }
+
+        @Override
+        public long installedUpdateTime(String packageName) {
+            queries.incrementAndGet();
+            Long time = engineCopies.get(packageName);
+            return time != null ? time : -1;
+        }
+
+        @Override
+        public String install(String packageName, String apkPath, long updateTime) {
+            installs.incrementAndGet();
+            installStarted.countDown();
+            try {
+                releaseInstall.await();
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+            engineCopies.put(packageName, updateTime);
+            return null;
+        }
+
+        @Override
+        public boolean launch(String packageName) {
+            launches.incrementAndGet();
+            if (launchError != null) throw launchError;
+            return true;
+        }
+    }
+
+    private final FakeEngine engine = new FakeEngine();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final BlockingQueue<LaunchState> states = new LinkedBlockingQueue<>();
+    private final LaunchPipeline pipeline = new LaunchPipeline(engine, executor, states::add);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void installsThenLaunches() throws Exception {
+        assertTrue(pipeline.launch(APP));
+
+        assertEquals(Arrays.asList(Stage.RESOLVING, Stage.INSTALLING, Stage.LAUNCHING, Stage.LAUNCHED), stagesUntilDone());
+        assertEquals(200L, (long) engine.engineCopies.get(APP));
+        assertFalse(pipeline.isInFlight(APP));
+    }
+
+    @Test
+    public void secondLaunchWhileInFlightIsRejected() throws Exception {
+        engine.releaseInstall = new CountDownLatch(1);
+        assertTrue(pipeline.launch(APP));
+        assertTrue(engine.installStarted.await(5, TimeUnit.SECONDS));
+
+        assertFalse(pipeline.launch(APP));
+        assertTrue(pipeline.isInFlight(APP));
+        engine.releaseInstall.countDown();
+        assertEquals(Stage.LAUNCHED, last(stagesUntilDone()));
+        assertEquals(1, engine.installs.get());
+
+        // Done, so it can be launched again
+        assertTrue(pipeline.launch(APP));
+        assertEquals(Stage.LAUNCHED, last(stagesUntilDone()));
+    }
+
+    @Test
+    public void cancelTakesEffectAfterTheRunningStage() throws Exception {
+        engine.releaseInstall = new CountDownLatch(1);
+        assertTrue(pipeline.launch(APP));
+        assertTrue(engine.installStarted.await(5, TimeUnit.SECONDS));
+
+        assertTrue(pipeline.cancel(APP));
+        engine.releaseInstall.countDown();
+
+        assertEquals(Stage.CANCELLED, last(stagesUntilDone()));
+        assertEquals(0, engine.launches.get());
+        assertFalse(pipeline.cancel(APP));
+    }
+
+    @Test
+    public void engineAnswerIsCached() throws Exception {
+        engine.engineCopies.put(APP, 200L);
+        assertTrue(pipeline.launch(APP));
+        assertEquals(Arrays.asList(Stage.RESOLVING, Stage.LAUNCHING, Stage.LAUNCHED), stagesUntilDone());
+        assertTrue(pipeline.launch(APP));
+        stagesUntilDone();
+
+        assertEquals(1, engine.queries.get());
+        assertEquals(0, engine.installs.get());
+    }
+
+    @Test
+    public void copyOfAnOlderDeviceVersionIsReinstalled() throws Exception {
+        engine.engineCopies.put(APP, 100L);
+        assertTrue(pipeline.launch(APP));
+        assertTrue(stagesUntilDone().contains(Stage.INSTALLING));
+        assertEquals(200L, (long) engine.engineCopies.get(APP));
+
+        // Updated on the device while cached
+        engine.deviceUpdateTime = 300;
+        assertTrue(pipeline.launch(APP));
+        assertTrue(stagesUntilDone().contains(Stage.INSTALLING));
+        assertEquals(2, engine.installs.get());
+        assertEquals(1, engine.queries.get());
+    }
+
+    @Test
+    public void copyOfUnknownOriginIsReinstalledOnce() throws Exception {
+        engine.engineCopies.put(APP, 0L);
+        assertTrue(pipeline.launch(APP));
+        stagesUntilDone();
+        assertTrue(pipeline.launch(APP));
+        stagesUntilDone();
+
+        assertEquals(1, engine.installs.get());
+    }
+
+    @Test
+    public void errorFromTheEngineFailsTheLaunchAndSparesThePoolThread() throws Exception {
+        engine.engineCopies.put(APP, 200L);
+        engine.launchError = new NoClassDefFoundError("top/niunaijun/Missing");
+        assertTrue(pipeline.launch(APP));
+
+        LaunchState failed = lastState();
+        assertEquals(Stage.FAILED, failed.getStage());
+        assertTrue(failed.getMessage(), failed.getMessage().contains("Missing"));
+
+        // The single pool thread is still there to run the next launch
+        engine.launchError = null;
+        assertTrue(pipeline.launch(APP));
+        assertEquals(Stage.LAUNCHED, last(stagesUntilDone()));
+    }
+
+    private static Stage last(List<Stage> stages) {
+        return stages.get(stages.size() - 1);
+    }
+
+    /** Stages reported for one launch, up to and including its final one. */
+    private List<Stage> stagesUntilDone() throws InterruptedException {
+        List<Stage> stages = new ArrayList<>();
+        LaunchState state;
+        do {
+            state = states.poll(5, TimeUnit.SECONDS);
+            assertNotNull("launch never finished: " + stages, state);
+            stages.add(state.getStage());
+        } while (!isFinal(state.getStage()));
+        awaitNotInFlight();
+        return stages;
+    }
+
+    private LaunchState lastState() throws InterruptedException {
+        LaunchState state;
+        do {
+            state = states.poll(5, TimeUnit.SECONDS);
+            assertNotNull("launch never finished", state);
+        } while (!isFinal(state.getStage()));
+        awaitNotInFlight();
+        return state;
+    }
+
+    /** The final stage is reported just before the launch leaves the in-flight map. */
+    private void awaitNotInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.isInFlight(APP)) {
+            assertTrue("still in flight", deadline - System.nanoTime() > 0);
+            Thread.sleep(1);
+        }
+    }
+
+    private static boolean isFinal(Stage stage) {
+        return stage == Stage.LAUNCHED || stage == Stage.FAILED || stage == Stage.CANCELLED;
+    }
+}
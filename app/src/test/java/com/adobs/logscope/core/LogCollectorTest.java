@@ -0,0 +1,207 @@
+package com.adobs.logscope.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogCollectorTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private String port;
+    private File folder;
+    private LogCollector collector;
+
+    /** The writer side of one virtual process, streaming to the collector. */
+    private final class Process {
+        final TagTable tags = new TagTable(16);
+        final LogRingBuffer ring;
+        final Backpressure backpressure;
+        final AsyncLogWriter writer;
+        final Thread thread;
+
+        Process(String name) {
+            this(name, null);
+        }
+
+        /**
+         * @param fallbackFolder where the process continues if the collector goes away, or null
+         */
+        Process(String name, File fallbackFolder) {
+            LogConfig config = new LogConfig.Builder().collector(port).collectorTransport(CollectorTransport.LOOPBACK)
+                    .flushInterval(50, TimeUnit.MILLISECONDS).metricsInterval(0, TimeUnit.MILLISECONDS).build();
+            LogSink sink = LogCollector.connect(name, config);
+            assertNotNull(sink);
+            ring = new LogRingBuffer(4096, config.getWaitStrategy());
+            backpressure = new Backpressure(ring, config);
+            AsyncLogWriter.Opener fallback = fallbackFolder == null ? null : () -> {
+                LogSegments segments = new LogSegments(fallbackFolder, "2024-05-01_10-00-00", config);
+                return new AsyncLogWriter.Output(segments, segments.open(), null);
+            };
+            writer = new AsyncLogWriter(ring, backpressure, null, tags, null, config,
+                    () -> new AsyncLogWriter.Output(null, sink, null, fallback));
+            thread = new Thread(writer, name);
+            thread.start();
+        }
+
+        void log(String message, Throwable throwable) {
+            assertTrue(backpressure.publish(System.currentTimeMillis(),
+                    throwable != null ? LogLevel.ERROR : LogLevel.INFO, tags.intern("T"), null, message, throwable,
+                    Thread.currentThread()));
+        }
+
+        void stop() throws InterruptedException {
+            writer.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+            thread.join(5000);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = Integer.toString(socket.getLocalPort());
+        }
+        folder = new File(temp.getRoot(), "com.test");
+        collector = LogCollector.start(port, folder, new LogConfig.Builder()
+                .collectorTransport(CollectorTransport.LOOPBACK)
+                .compressSegments(false)
+                .metricsInterval(0, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        collector.close(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void startReturnsTheRunningCollector() throws IOException {
+        assertSame(collector, LogCollector.start(port, folder, new LogConfig.Builder().build()));
+    }
+
+    @Test
+    public void connectWithoutCollectorReturnsNull() throws IOException {
+        String unused;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            unused = Integer.toString(socket.getLocalPort());
+        }
+        assertNull(LogCollector.connect("p", new LogConfig.Builder().collector(unused)
+                .collectorTransport(CollectorTransport.LOOPBACK).build()));
+    }
+
+    @Test
+    public void mergesProcessesInTimestampOrder() throws Exception {
+        Process busy = new Process("busy");
+        Process quiet = new Process("quiet");
+        for (int i = 0; i < 300; i++) {
+            busy.log("b" + i, null);
+            if (i % 30 == 0) quiet.log("q" + i, null);
+            Thread.sleep(2);
+        }
+        busy.stop();
+        quiet.stop();
+        assertTrue(collector.close(5, TimeUnit.SECONDS));
+
+        int busyNext = 0;
+        int quietNext = 0;
+        String previous = "";
+        for (String line : records()) {
+            String time = line.substring(0, 12);
+            assertTrue(previous + " then " + line, time.compareTo(previous) >= 0);
+            previous = time;
+            if (line.contains("{busy}")) {
+                assertTrue(line, line.endsWith(" b" + busyNext));
+                busyNext++;
+            } else if (line.contains("{quiet}")) {
+                assertTrue(line, line.endsWith(" q" + quietNext));
+                quietNext += 30;
+            }
+        }
+        assertEquals(300, busyNext);
+        assertEquals(300, quietNext);
+    }
+
+    @Test
+    public void tracesAreDedupedAcrossProcesses() throws Exception {
+        Throwable failure = new IllegalStateException("shared");
+        Process first = new Process("first");
+        Process second = new Process("second");
+        first.log("one", failure);
+        first.stop();
+        Thread.sleep(50);
+        second.log("two", failure);
+        second.stop();
+        assertTrue(collector.close(5, TimeUnit.SECONDS));
+
+        String text = String.join("\n", lines());
+        assertTrue(text, text.contains("#1 java.lang.IllegalStateException: shared"));
+        assertTrue(text, text.contains("same as #1 (x1 repeats)"));
+        assertFalse(text, text.contains("#2 "));
+    }
+
+    @Test
+    public void processContinuesInLocalSegmentsWhenTheCollectorGoesAway() throws Exception {
+        File local = temp.newFolder("com.test_remote");
+        Process process = new Process("remote", local);
+        process.log("before", null);
+        Thread.sleep(200);
+        assertTrue(collector.close(5, TimeUnit.SECONDS));
+
+        // The first writes after the close may still reach the socket buffer
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int sent = 0;
+        while (LogSearch.listSegments(local).length == 0) {
+            assertTrue("never fell back", deadline - System.nanoTime() > 0);
+            process.log("after " + sent++, null);
+            Thread.sleep(20);
+        }
+        process.log("last", null);
+        process.stop();
+
+        String text = String.join("\n", lines(local));
+        assertTrue(text, text.contains("[System] Lost connection to the log collector"));
+        assertTrue(text, text.contains("continuing in Log_2024-05-01_10-00-00_001."));
+        assertTrue(text, text.endsWith(" last"));
+        assertFalse(text, text.contains(" before"));
+    }
+
+    private List<String> lines() throws IOException {
+        return lines(folder);
+    }
+
+    private static List<String> lines(File folder) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (File segment : LogSearch.listSegments(folder)) {
+            lines.addAll(Files.readAllLines(segment.toPath(), StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    /** Lines starting with "HH:mm:ss.SSS", from the processes only. */
+    private List<String> records() throws IOException {
+        List<String> records = new ArrayList<>();
+        for (String line : lines()) {
+            if (line.length() > 12 && line.charAt(2) == ':' && line.contains("} ")) records.add(line);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,129 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a hooked Log.d costs the app thread when the capture filter drops it,
+ * per stage that can reject it: the level mask, the allowed and denied tag
+ * sets, and the message regex. accepted is the same call passing an
+ * ACCEPT_ALL filter into a live session, for scale.
+ *
+ * The argument arrays are built once: BlackBox allocates one per call whatever
+ * the filter says, so it is left out. Run with -prof gc to check that a
+ * rejected call allocates nothing.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="LogFilterBenchmark -prof gc"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogFilterBenchmark {
+
+    private static final String PACKAGE = "com.bench";
+    private static final Object[][] CALLS = new Object[64][];
+
+    static {
+        for (int i = 0; i < CALLS.length; i++) {
+            CALLS[i] = new Object[]{"Tag" + (i % 20), "Request " + i + " finished in 12 ms, status=OK"};
+        }
+    }
+
+    /** The Log.d hook behind a filter that rejects every call at one stage. */
+    @State(Scope.Benchmark)
+    public static class Rejecting {
+
+        @Param({"LEVEL", "ALLOWED_TAG", "DENIED_TAG", "MESSAGE"})
+        public String rejectedBy;
+
+        HookEngine.AfterHook d;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            LogFilter.Builder filter = new LogFilter.Builder();
+            switch (rejectedBy) {
+                case "LEVEL":
+                    filter.minLevel(LogLevel.WARN);
+                    break;
+                case "ALLOWED_TAG":
+                    filter.allowTags("OkHttp", "Retrofit");
+                    break;
+                case "DENIED_TAG":
+                    for (int i = 0; i < 20; i++) {
+                        filter.denyTags("Tag" + i);
+                    }
+                    break;
+                default:
+                    filter.messageRegex("timeout|refused");
+                    break;
+            }
+            LogHook.setFilter(filter.build());
+            HookToDiskBenchmark.FakeHookEngine engine = new HookToDiskBenchmark.FakeHookEngine();
+            LogHook.startHooking(engine);
+            d = engine.get("d2");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            LogHook.setFilter(LogFilter.ACCEPT_ALL);
+        }
+    }
+
+    /** The Log.d hook with no filter, writing into a session in a temp folder. */
+    @State(Scope.Benchmark)
+    public static class Accepting {
+
+        File folder;
+        HookEngine.AfterHook d;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            folder = new File(Files.createTempDirectory("filterbench").toFile(), PACKAGE);
+            LogManager.init(PACKAGE, folder, new LogConfig.Builder().build());
+            LogHook.setFilter(LogFilter.ACCEPT_ALL);
+            HookToDiskBenchmark.FakeHookEngine engine = new HookToDiskBenchmark.FakeHookEngine();
+            LogHook.startHooking(engine);
+            d = engine.get("d2");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            LogManager.shutdown(30, TimeUnit.SECONDS);
+            HookToDiskBenchmark.deleteRecursively(folder.getParentFile());
+        }
+    }
+
+    /** Per-thread position in CALLS. */
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+    }
+
+    @Benchmark
+    public Object rejected(Rejecting hook, Caller caller) {
+        return hook.d.afterHookedMethod(CALLS[caller.next++ & 63]);
+    }
+
+    @Benchmark
+    public Object accepted(Accepting hook, Caller caller) {
+        return hook.d.afterHookedMethod(CALLS[caller.next++ & 63]);
+    }
+}
@@ -0,0 +1,65 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogFilterTest {
+
+    @Test
+    public void acceptAllTakesEveryLevelAndTag() {
+        for (int level = LogLevel.VERBOSE; level <= LogLevel.ASSERT; level++) {
+            assertTrue(LogFilter.ACCEPT_ALL.acceptsLevel(level));
+        }
+        assertTrue(LogFilter.ACCEPT_ALL.accepts("Any", "message"));
+        assertTrue(LogFilter.ACCEPT_ALL.accepts(null, null));
+    }
+
+    @Test
+    public void minLevelMasksLowerLevels() {
+        LogFilter filter = new LogFilter.Builder().minLevel(LogLevel.WARN).build();
+        assertFalse(filter.acceptsLevel(LogLevel.DEBUG));
+        assertFalse(filter.acceptsLevel(LogLevel.INFO));
+        assertTrue(filter.acceptsLevel(LogLevel.WARN));
+        assertTrue(filter.acceptsLevel(LogLevel.ASSERT));
+    }
+
+    @Test
+    public void outOfRangeLevelsAreRejected() {
+        // Log.println takes any int; shifts by 32 or more would wrap around
+        assertFalse(LogFilter.ACCEPT_ALL.acceptsLevel(-1));
+        assertFalse(LogFilter.ACCEPT_ALL.acceptsLevel(32 + LogLevel.DEBUG));
+        assertFalse(LogFilter.ACCEPT_ALL.acceptsLevel(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minLevelMustBeALogPriority() {
+        new LogFilter.Builder().minLevel(LogLevel.ASSERT + 1).build();
+    }
+
+    @Test
+    public void allowAndDenyTags() {
+        LogFilter allow = new LogFilter.Builder().allowTags("Net", "Db").build();
+        assertTrue(allow.acceptsTag("Net"));
+        assertFalse(allow.acceptsTag("Ui"));
+        assertFalse(allow.acceptsTag(null));
+
+        LogFilter deny = new LogFilter.Builder().denyTags("Chatty").build();
+        assertFalse(deny.acceptsTag("Chatty"));
+        assertTrue(deny.acceptsTag("Net"));
+        assertTrue(deny.acceptsTag(null));
+
+        LogFilter both = new LogFilter.Builder().allowTags("Net", "Chatty").denyTags("Chatty").build();
+        assertTrue(both.acceptsTag("Net"));
+        assertFalse(both.acceptsTag("Chatty"));
+    }
+
+    @Test
+    public void messageRegexUsesFind() {
+        LogFilter filter = new LogFilter.Builder().messageRegex("status=5\\d\\d").build();
+        assertTrue(filter.accepts("Net", "GET /api status=503 in 12 ms"));
+        assertFalse(filter.accepts("Net", "GET /api status=200 in 12 ms"));
+        assertFalse(filter.accepts("Net", null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class LogFormatterTest {
+
+    private static final long T0 = 1_714_557_600_123L;
+
+    private final LogFormatter formatter = new LogFormatter(new TagTable(16), null);
+
+    @Test
+    public void formatsTimeLevelTagAndMessage() {
+        LogRecord record = record(T0, LogLevel.WARN, "Net", "slow response");
+        assertEquals(time(T0) + " : [W/Net] slow response", formatter.format(record).toString());
+    }
+
+    @Test
+    public void sessionLinesHaveNoLevelOrTag() {
+        LogRecord record = record(T0, LogLevel.INFO, null, "--- Session Started: com.test ---");
+        assertEquals(time(T0) + " : --- Session Started: com.test ---", formatter.format(record).toString());
+    }
+
+    @Test
+    public void includesThreadNameAndId() {
+        LogRecord record = record(T0, LogLevel.INFO, "Db", "opened");
+        record.threadName = "worker";
+        record.threadId = 42;
+        assertEquals(time(T0) + " [worker#42] : [I/Db] opened", formatter.format(record).toString());
+    }
+
+    @Test
+    public void cachedSecondIsRefreshedAcrossSeconds() {
+        LogRecord record = record(T0, LogLevel.DEBUG, "A", "m");
+        for (long t = T0; t < T0 + 3_000; t += 250) {
+            record.timestamp = t;
+            assertEquals(time(t) + " : [D/A] m", formatter.format(record).toString());
+        }
+    }
+
+    @Test
+    public void formattingAllocatesNothingPerLine() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        LogRecord record = record(T0, LogLevel.DEBUG, "Net", "request finished in 12 ms");
+        for (int i = 0; i < 20_000; i++) {
+            record.timestamp = T0 + i;
+            formatter.format(record);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+            record.timestamp = T0 + i;
+            formatter.format(record);
+        }
+        long perLine = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100_000;
+        assertTrue(perLine + " bytes per line", perLine < 8);
+    }
+
+    private static LogRecord record(long timestamp, byte level, String tag, String message) {
+        LogRecord record = new LogRecord();
+        record.timestamp = timestamp;
+        record.level = level;
+        record.tag = tag;
+        record.message = message;
+        return record;
+    }
+
+    static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    static String time(long timestamp) {
+        return new SimpleDateFormat("HH:mm:ss.SSS", Locale.US).format(new Date(timestamp));
+    }
+
+}
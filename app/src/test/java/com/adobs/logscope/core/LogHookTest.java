@@ -0,0 +1,211 @@
+package com.adobs.logscope.core;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogHookTest {
+
+    /** Keeps every hook LogHook registers, keyed like "w(String,Throwable)". */
+    static final class FakeHookEngine implements HookEngine {
+        final Map<String, AfterHook> hooks = new HashMap<>();
+
+        @Override
+        public void hookAfter(Method method, AfterHook hook) {
+            StringBuilder key = new StringBuilder(method.getName()).append('(');
+            Class<?>[] types = method.getParameterTypes();
+            for (int i = 0; i < types.length; i++) {
+                if (i > 0) key.append(',');
+                key.append(types[i].getSimpleName());
+            }
+            hooks.put(key.append(')').toString(), hook);
+        }
+
+        Object call(String key, Object... args) {
+            AfterHook hook = hooks.get(key);
+            assertNotNull(key, hook);
+            return hook.afterHookedMethod(args);
+        }
+    }
+
+    private static final Map<String, Byte> LEVELS = new HashMap<>();
+
+    static {
+        LEVELS.put("v", LogLevel.VERBOSE);
+        LEVELS.put("d", LogLevel.DEBUG);
+        LEVELS.put("i", LogLevel.INFO);
+        LEVELS.put("w", LogLevel.WARN);
+        LEVELS.put("e", LogLevel.ERROR);
+        LEVELS.put("wtf", LogLevel.ASSERT);
+    }
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final FakeHookEngine engine = new FakeHookEngine();
+    private File folder;
+
+    @Before
+    public void setUp() {
+        folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        LogHook.startHooking(engine);
+    }
+
+    @After
+    public void tearDown() {
+        LogManager.shutdown(5, TimeUnit.SECONDS);
+        LogHook.setFilter(null);
+        LogHook.setShortCircuitIsLoggable(false);
+    }
+
+    @Test
+    public void hooksEveryOverloadAndIsLoggable() {
+        assertEquals(LogHook.TARGETS.length + 1, engine.hooks.size());
+        assertTrue(engine.hooks.containsKey("w(String,Throwable)"));
+        assertTrue(engine.hooks.containsKey("println(int,String,String)"));
+        assertTrue(engine.hooks.containsKey("isLoggable(String,int)"));
+    }
+
+    @Test
+    public void everyTargetResolvesToALogOverload() throws NoSuchMethodException {
+        Set<String> signatures = new HashSet<>();
+        for (LogHook.HookTarget target : LogHook.TARGETS) {
+            Method method = Log.class.getMethod(target.methodName, target.paramTypes);
+            assertEquals(int.class, method.getReturnType());
+            assertTrue("hooked twice: " + method, signatures.add(method.toString()));
+        }
+        // v/d/i/e with and without a Throwable, w/wtf also with a Throwable only, and println
+        assertEquals(15, signatures.size());
+    }
+
+    @Test
+    public void levelsAreResolvedPerMethod() {
+        int throwableOnly = 0;
+        int println = 0;
+        for (LogHook.HookTarget target : LogHook.TARGETS) {
+            if (target.shape == LogHook.SHAPE_PRIORITY_TAG_MSG) {
+                // println carries its level in the first argument
+                assertEquals("println", target.methodName);
+                println++;
+                continue;
+            }
+            assertEquals(target.methodName, LEVELS.get(target.methodName).byteValue(), target.level);
+            if (target.shape == LogHook.SHAPE_TAG_THROWABLE) {
+                assertTrue(target.methodName, target.methodName.equals("w") || target.methodName.equals("wtf"));
+                throwableOnly++;
+            }
+        }
+        assertEquals(2, throwableOnly);
+        assertEquals(1, println);
+    }
+
+    @Test
+    public void dispatchesEachShapeWithItsLevel() throws IOException {
+        assertSame(HookEngine.KEEP_RESULT, engine.call("d(String,String)", "Net", "plain"));
+        engine.call("e(String,String,Throwable)", "Db", "with trace", new IllegalStateException("closed"));
+        engine.call("w(String,Throwable)", "Io", new RuntimeException("only trace"));
+        engine.call("println(int,String,String)", (int) LogLevel.INFO, "Raw", "via println");
+        // Malformed calls are ignored rather than thrown into the app
+        engine.call("d(String,String)", "Short");
+        engine.call("println(int,String,String)", "not a level", "Raw", "dropped");
+
+        String text = readSegment();
+        assertTrue(text, text.contains("[D/Net] plain"));
+        assertTrue(text, text.contains("[E/Db] with trace"));
+        assertTrue(text, text.contains("java.lang.IllegalStateException: closed"));
+        assertTrue(text, text.contains("[W/Io] "));
+        assertTrue(text, text.contains("java.lang.RuntimeException: only trace"));
+        assertTrue(text, text.contains("[I/Raw] via println"));
+        assertFalse(text, text.contains("dropped"));
+    }
+
+    @Test
+    public void filterRejectsBeforeLogManager() throws IOException {
+        LogHook.setFilter(new LogFilter.Builder().minLevel(LogLevel.INFO).denyTags("Chatty").build());
+        engine.call("d(String,String)", "Net", "too low");
+        engine.call("i(String,String)", "Chatty", "denied tag");
+        engine.call("i(String,String)", "Net", "kept");
+
+        String text = readSegment();
+        assertFalse(text, text.contains("too low"));
+        assertFalse(text, text.contains("denied tag"));
+        assertTrue(text, text.contains("[I/Net] kept"));
+    }
+
+    @Test
+    public void isLoggableOnlyNarrowedWhenEnabled() {
+        LogHook.setFilter(new LogFilter.Builder().minLevel(LogLevel.WARN).build());
+        assertSame(HookEngine.KEEP_RESULT, engine.call("isLoggable(String,int)", "Net", (int) LogLevel.DEBUG));
+
+        LogHook.setShortCircuitIsLoggable(true);
+        assertEquals(Boolean.FALSE, engine.call("isLoggable(String,int)", "Net", (int) LogLevel.DEBUG));
+        assertSame(HookEngine.KEEP_RESULT, engine.call("isLoggable(String,int)", "Net", (int) LogLevel.ERROR));
+    }
+
+    @Test
+    public void hookPathAllocatesNothingWithMetricsOff() {
+        assertNull(LogManager.metrics());
+        assertHookAllocatesNothing();
+    }
+
+    @Test
+    public void hookPathAllocatesNothingWithMetricsOn() {
+        LogManager.shutdown(5, TimeUnit.SECONDS);
+        LogManager.init("com.test", folder, new LogConfig.Builder().metricsInterval(10, TimeUnit.SECONDS).build());
+        assertNotNull(LogManager.metrics());
+        assertHookAllocatesNothing();
+        // The sampled calls were timed
+        assertTrue(LogManager.metrics().hookNanos.snapshot().count > 0);
+    }
+
+    /** The hooked Log.d as the engine runs it: the app already built the args array. */
+    private void assertHookAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = LogFormatterTest.threadBean();
+        HookEngine.AfterHook hook = engine.hooks.get("d(String,String)");
+        Object[] args = {"Net", "request finished"};
+        for (int i = 0; i < 20_000; i++) {
+            hook.afterHookedMethod(args);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+            hook.afterHookedMethod(args);
+        }
+        long perCall = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100_000;
+        assertTrue(perCall + " bytes per call", perCall < 8);
+    }
+
+    private String readSegment() throws IOException {
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+        File[] segments = folder.listFiles((dir, name) -> name.startsWith(LogSegments.PREFIX)
+                && name.endsWith(LogFormat.TEXT.getExtension()));
+        assertNotNull(segments);
+        assertEquals(1, segments.length);
+        List<String> lines = Files.readAllLines(segments[0].toPath(), StandardCharsets.UTF_8);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,215 @@
+package com.adobs.logscope.core;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogManagerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        LogManager.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writesRecordsInOrderWithLevelTagAndThread() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        for (int i = 0; i < 1000; i++) {
+            LogManager.write(LogLevel.DEBUG, "Net", "request " + i, null);
+        }
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        List<String> lines = readSegment(folder);
+        assertTrue(lines.get(0).contains("--- Session Started: com.test ---"));
+        int next = 0;
+        for (String line : lines) {
+            if (!line.endsWith("request " + next)) continue;
+            assertTrue(line, line.contains("[D/Net] "));
+            assertTrue(line, line.contains("[" + Thread.currentThread().getName() + "#"));
+            next++;
+        }
+        assertEquals(1000, next);
+        assertEquals(0, LogManager.getDroppedCount());
+    }
+
+    @Test
+    public void countsTheBytesItWrites() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        for (int i = 0; i < 1000; i++) {
+            LogManager.write(LogLevel.DEBUG, "Net", "request " + i, null);
+        }
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        // Every record line, but not the segment header
+        long lines = 0;
+        for (String line : readSegment(folder)) {
+            if (line.contains("[D/Net] request ")) lines += line.length() + 1;
+        }
+        long segment = folder.listFiles((dir, name) -> name.startsWith(LogSegments.PREFIX)
+                && name.endsWith(LogFormat.TEXT.getExtension()))[0].length();
+        long written = LogManager.getBytesWritten();
+        assertTrue(written + " of " + segment, written >= lines && written <= segment);
+    }
+
+    @Test
+    public void repeatsAreWrittenUnlessCollapsingIsTurnedOn() throws IOException {
+        assertEquals(0, LogConfig.defaults().getCollapseWindow());
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, LogConfig.defaults());
+        for (int i = 0; i < 100; i++) {
+            LogManager.write(LogLevel.WARN, "Net", "retrying", null);
+        }
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(100, count(readSegment(folder), "[W/Net] retrying"));
+
+        folder = new File(temp.getRoot(), "com.collapsed");
+        LogManager.init("com.collapsed", folder, new LogConfig.Builder().collapseWindow(8).build());
+        for (int i = 0; i < 100; i++) {
+            LogManager.write(LogLevel.WARN, "Net", "retrying", null);
+        }
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+        List<String> lines = readSegment(folder);
+        assertEquals(2, count(lines, "[W/Net] "));
+        assertEquals(1, count(lines, "[repeated x99 "));
+    }
+
+    @Test
+    public void rendersThrowableOnWriterThread() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        LogManager.write(LogLevel.ERROR, "Db", "query failed", new IllegalStateException("closed"));
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        String text = String.join("\n", readSegment(folder));
+        assertTrue(text, text.contains("query failed"));
+        assertTrue(text, text.contains("java.lang.IllegalStateException: closed"));
+        assertTrue(text, text.contains("at com.adobs.logscope.core.LogManagerTest.rendersThrowableOnWriterThread"));
+    }
+
+    @Test
+    public void survivesAThrowableThatThrowsWhileRendered() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        LogManager.write(LogLevel.ERROR, "Db", "query failed", new HostileException());
+        LogManager.write(LogLevel.INFO, "Db", "still writing", null);
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        String text = String.join("\n", readSegment(folder));
+        assertTrue(text, text.contains("query failed"));
+        assertTrue(text, text.contains("<unrenderable throwable: " + HostileException.class.getName() + ">"));
+        assertTrue(text, text.contains("still writing"));
+        assertEquals(1, LogManager.getDroppedCount());
+    }
+
+    @Test
+    public void writeAllocatesNothingPerCall() throws IOException {
+        com.sun.management.ThreadMXBean threads = LogFormatterTest.threadBean();
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        for (int i = 0; i < 20_000; i++) {
+            LogManager.write(LogLevel.DEBUG, "Net", "request finished", null);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+            LogManager.write(LogLevel.DEBUG, "Net", "request finished", null);
+        }
+        long perCall = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100_000;
+        assertTrue(perCall + " bytes per call", perCall < 8);
+    }
+
+    @Test
+    public void ignoresWritesAfterShutdown() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().build());
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+        LogManager.write(LogLevel.INFO, "Late", "after shutdown", null);
+
+        for (String line : readSegment(folder)) {
+            assertFalse(line, line.contains("after shutdown"));
+        }
+    }
+
+    @Test
+    public void metricsAreOffUnlessConfigured() {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, LogConfig.defaults());
+        assertNull(LogManager.metrics());
+        LogManager.write(LogLevel.DEBUG, "Net", "request finished", null);
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        assertEquals(0, LogMetrics.listFiles(folder).length);
+    }
+
+    @Test
+    public void metricsAreWrittenWhenConfigured() throws IOException {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder().metricsInterval(10, TimeUnit.SECONDS).build());
+        assertNotNull(LogManager.metrics());
+        LogManager.write(LogLevel.DEBUG, "Net", "request finished", null);
+        assertTrue(LogManager.shutdown(5, TimeUnit.SECONDS));
+
+        File[] files = LogMetrics.listFiles(folder);
+        assertEquals(1, files.length);
+        String text = new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8);
+        assertTrue(text, text.startsWith("LogScope metrics: com.test\n"));
+    }
+
+    /** An app exception whose every accessor throws. */
+    private static final class HostileException extends RuntimeException {
+        @Override
+        public String getMessage() {
+            throw new IllegalStateException("getMessage");
+        }
+
+        @Override
+        public StackTraceElement[] getStackTrace() {
+            throw new IllegalStateException("getStackTrace");
+        }
+
+        @Override
+        public synchronized Throwable getCause() {
+            throw new IllegalStateException("getCause");
+        }
+
+        @Override
+        public String toString() {
+            throw new IllegalStateException("toString");
+        }
+    }
+
+    private static int count(List<String> lines, String part) {
+        int count = 0;
+        for (String line : lines) {
+            if (line.contains(part)) count++;
+        }
+        return count;
+    }
+
+    private static List<String> readSegment(File folder) throws IOException {
+        File[] segments = folder.listFiles((dir, name) -> name.startsWith(LogSegments.PREFIX)
+                && name.endsWith(LogFormat.TEXT.getExtension()));
+        assertNotNull(segments);
+        assertEquals(1, segments.length);
+        return Files.readAllLines(segments[0].toPath(), StandardCharsets.UTF_8);
+    }
+}
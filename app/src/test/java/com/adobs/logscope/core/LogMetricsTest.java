@@ -0,0 +1,126 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogMetricsTest {
+
+    private static final long START = System.currentTimeMillis();
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final Backpressure backpressure = new Backpressure(new LogRingBuffer(16, WaitStrategy.BLOCKING),
+            LogConfig.defaults());
+
+    @Test
+    public void offByDefault() {
+        assertEquals(0, LogConfig.defaults().getMetricsIntervalMillis());
+    }
+
+    @Test
+    public void formatsTotalsAndOneRowPerHistogram() {
+        LogMetrics metrics = new LogMetrics(null, "com.test:remote", 10_000);
+        metrics.recordsWritten = 3000;
+        metrics.bytesWritten = 3 * 1024 * 1024;
+        metrics.recordsCollapsed = 7;
+        for (int i = 1; i <= 100; i++) {
+            metrics.hookNanos.record(i * 1000L);
+        }
+        metrics.batchRecords.record(64);
+
+        String text = metrics.format(System.currentTimeMillis() + 30_000, backpressure);
+        String[] lines = text.split("\n");
+
+        assertEquals("LogScope metrics: com.test:remote", lines[0]);
+        assertTrue(lines[1], lines[1].endsWith(", running 30 s"));
+        assertTrue(text, text.contains("Records written   3000 (100/s)\n"));
+        assertTrue(text, text.contains("Bytes written     3.0 MB (102.4 KB/s)\n"));
+        assertTrue(text, text.contains("Collapsed repeats 7\n"));
+        assertTrue(text, text.contains("Dropped           0 (queue full: 0, oldest shed: 0, sampled out: 0, "
+                + "critical timeout: 0, unrenderable: 0)\n"));
+        // Nothing measured at startup, so no startup line
+        assertFalse(text, text.contains("Startup"));
+
+        String hook = lineStartingWith(lines, "Hook time (us)");
+        // count, p50, p90, p99, p99.9, max, mean; bucket bounds are within an eighth
+        String[] columns = hook.substring("Hook time (us)".length()).trim().split("\\s+");
+        assertEquals(7, columns.length);
+        assertEquals("100", columns[0]);
+        assertTrue(hook, Double.parseDouble(columns[1]) >= 50 && Double.parseDouble(columns[1]) <= 56.25);
+        assertEquals("100.0", columns[5]);
+        assertEquals("50.5", columns[6]);
+        assertEquals("Writer batch                   1      64.0      64.0      64.0      64.0      64.0      64.0",
+                lineStartingWith(lines, "Writer batch"));
+        // Empty histograms show only their count
+        assertEquals("Queue depth                    0", lineStartingWith(lines, "Queue depth"));
+        assertEquals("Hook time and enqueue latency: 1 in 64 calls timed", lines[lines.length - 1]);
+    }
+
+    @Test
+    public void startupLineListsWhatWasMeasured() {
+        LogMetrics metrics = new LogMetrics(null, "com.test", 10_000);
+        metrics.initNanos = 1_500_000;
+        metrics.openNanos = 4_000_000;
+        metrics.bufferedAtOpen = 12;
+
+        String startup = lineStartingWith(metrics.format(START, backpressure).split("\n"), "Startup");
+        assertEquals("Startup           init 1.50 ms (caller thread); open 4.00 ms (writer thread), "
+                + "12 records buffered meanwhile", startup);
+    }
+
+    @Test
+    public void snapshotReplacesTheFileAndLeavesNoTempFile() throws IOException {
+        File folder = temp.getRoot();
+        File file = LogMetrics.fileFor(folder, "com.test:remote");
+        assertEquals("Metrics_com.test_remote.txt", file.getName());
+
+        LogMetrics metrics = new LogMetrics(file, "com.test:remote", 10_000);
+        metrics.recordsWritten = 1;
+        metrics.snapshot(START, backpressure);
+        metrics.recordsWritten = 2;
+        metrics.snapshot(START, backpressure);
+
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains("Records written   2 "));
+        assertArrayEquals(new File[]{file}, LogMetrics.listFiles(folder));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void snapshotsOnlyOnceTheIntervalHasPassed() throws IOException {
+        File file = LogMetrics.fileFor(temp.getRoot(), "com.test");
+        LogMetrics metrics = new LogMetrics(file, "com.test", 10_000);
+        long now = System.currentTimeMillis();
+
+        metrics.maybeSnapshot(now + 5_000, backpressure);
+        assertFalse(file.exists());
+        metrics.maybeSnapshot(now + 10_000, backpressure);
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void withoutAFileNothingIsWritten() {
+        LogMetrics metrics = new LogMetrics(null, "com.test", 10_000);
+        metrics.snapshot(START, backpressure);
+        assertEquals(0, LogMetrics.listFiles(temp.getRoot()).length);
+    }
+
+    private static String lineStartingWith(String[] lines, String prefix) {
+        for (String line : lines) {
+            if (line.startsWith(prefix)) return line;
+        }
+        throw new AssertionError("No line starting with " + prefix);
+    }
+}
@@ -0,0 +1,115 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new LogRingBuffer(8, WaitStrategy.BLOCKING).capacity());
+        assertEquals(16, new LogRingBuffer(9, WaitStrategy.BLOCKING).capacity());
+        assertEquals(65536, new LogRingBuffer(50000, WaitStrategy.BLOCKING).capacity());
+    }
+
+    @Test
+    public void rejectsWhenFullAndAcceptsAfterDrain() throws IOException {
+        LogRingBuffer ring = new LogRingBuffer(4, WaitStrategy.BLOCKING);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(publish(ring, "m" + i));
+        }
+        assertFalse(publish(ring, "overflow"));
+        assertEquals(4, ring.size());
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(record -> drained.add(record.message), 2));
+        assertTrue(publish(ring, "m4"));
+        assertTrue(publish(ring, "m5"));
+        assertFalse(publish(ring, "overflow"));
+
+        ring.drain(record -> drained.add(record.message), Integer.MAX_VALUE);
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3", "m4", "m5"), drained);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void clearsSlotsOnceHandled() throws IOException {
+        LogRingBuffer ring = new LogRingBuffer(2, WaitStrategy.BLOCKING);
+        publish(ring, "first");
+        LogRecord[] seen = new LogRecord[1];
+        ring.drain(record -> seen[0] = record, 1);
+        assertNull(seen[0].message);
+        assertNull(seen[0].threadName);
+    }
+
+    @Test
+    public void keepsEachProducersOrderUnderContention() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        LogRingBuffer ring = new LogRingBuffer(1024, WaitStrategy.BLOCKING);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    String message = producer + ":" + i;
+                    while (!publish(ring, message)) {
+                        Thread.yield();
+                    }
+                }
+            }, "producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] next = new int[producers];
+        int[] received = {0};
+        LogRingBuffer.Handler handler = record -> {
+            int colon = record.message.indexOf(':');
+            int producer = Integer.parseInt(record.message.substring(0, colon));
+            assertEquals("producer-" + producer, record.threadName);
+            assertEquals(record.message, next[producer], Integer.parseInt(record.message.substring(colon + 1)));
+            next[producer]++;
+            received[0]++;
+        };
+
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received[0] < producers * perProducer && deadline - System.nanoTime() > 0) {
+            if (ring.drain(handler, 256) == 0) {
+                ring.await(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, received[0]);
+        for (int count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    private static boolean publish(LogRingBuffer ring, String message) {
+        return ring.tryPublish(System.currentTimeMillis(), LogLevel.DEBUG, TagTable.NO_ID, "T", message, null,
+                Thread.currentThread());
+    }
+}
@@ -0,0 +1,139 @@
+package com.adobs.logscope.core;
+
+import com.adobs.logscope.models.LogEntry;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogSearchTest {
+
+    private static final int RECORDS = 2000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        LogManager.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Captures RECORDS lines into many small segments: tag "Tag" + i % 10,
+     * message "m i", and E for every i % 50 == 3 (all of them Tag3), D otherwise.
+     * Waits until every closed segment has been gzipped.
+     */
+    private File capture(LogFormat format) throws Exception {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder()
+                .format(format)
+                .maxSegmentBytes(8 * 1024)
+                .indexBlockRecords(32)
+                .compressSegments(true)
+                .retentionBytes(0)
+                .build());
+        for (int i = 0; i < RECORDS; i++) {
+            LogManager.write(i % 50 == 3 ? LogLevel.ERROR : LogLevel.DEBUG, "Tag" + (i % 10), "m " + i, null);
+        }
+        assertTrue(LogManager.shutdown(10, TimeUnit.SECONDS));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            File[] segments = LogSearch.listSegments(folder);
+            int compressed = 0;
+            for (File segment : segments) {
+                if (segment.getName().endsWith(LogSegments.COMPRESSED_SUFFIX)) compressed++;
+            }
+            if (segments.length > 2 && compressed == segments.length - 1) break;
+            assertTrue("segments not compressed in time", deadline - System.nanoTime() > 0);
+            Thread.sleep(20);
+        }
+        return folder;
+    }
+
+    @Test
+    public void textSegmentsPlainAndGzipped() throws Exception {
+        assertSearches(capture(LogFormat.TEXT));
+    }
+
+    @Test
+    public void binarySegmentsPlainAndGzipped() throws Exception {
+        assertSearches(capture(LogFormat.BINARY));
+    }
+
+    private static void assertSearches(File folder) throws IOException {
+        LogQuery errors = new LogQuery.Builder().tags("Tag3").minLevel(LogLevel.ERROR).build();
+        List<String> expected = new ArrayList<>();
+        for (int i = 3; i < RECORDS; i += 50) expected.add("m " + i);
+        assertEquals(expected, messages(folder, errors));
+
+        LogQuery byText = new LogQuery.Builder().messageContains("m 1999").build();
+        assertEquals(1, messages(folder, byText).size());
+
+        List<String> tag7 = messages(folder, new LogQuery.Builder().tags("Tag7").build());
+        assertEquals(RECORDS / 10, tag7.size());
+        assertEquals("m 7", tag7.get(0));
+        assertEquals("m " + (RECORDS - 3), tag7.get(tag7.size() - 1));
+
+        // Without the sidecars every segment is scanned in full, with the same result
+        for (File sidecar : folder.listFiles((dir, name) -> name.endsWith(SegmentIndex.SUFFIX))) {
+            assertTrue(sidecar.delete());
+        }
+        assertEquals(expected, messages(folder, errors));
+        assertEquals(tag7, messages(folder, new LogQuery.Builder().tags("Tag7").build()));
+    }
+
+    @Test
+    public void visitorCanStopTheSearch() throws Exception {
+        File folder = capture(LogFormat.TEXT);
+        List<String> seen = new ArrayList<>();
+        long matches = LogSearch.search(folder, new LogQuery.Builder().tags("Tag1").build(), entry -> {
+            seen.add(entry.getMessage());
+            return seen.size() < 5;
+        });
+        assertEquals(5, matches);
+        assertEquals("m 41", seen.get(4));
+    }
+
+    @Test
+    public void listsSegmentsBySessionThenNumber() throws IOException {
+        File folder = temp.newFolder();
+        String[] names = {
+                "Log_2024-05-02_10-00-00_001.txt",
+                "Log_2024-05-01_10-00-00_1000.lsb",
+                "Log_2024-05-01_10-00-00_999.lsb.gz",
+                "Log_2024-05-01_10-00-00_002.lsb",
+                "Log_2024-05-01_10-00-00_002.lsb.idx",
+                "Log_2024-05-01_10-00-00" + CrashRegion.RECOVERED_SUFFIX,
+                "Metrics_com.test.txt",
+        };
+        for (String name : names) {
+            assertTrue(new File(folder, name).createNewFile());
+        }
+
+        List<String> listed = new ArrayList<>();
+        for (File segment : LogSearch.listSegments(folder)) listed.add(segment.getName());
+        assertEquals(Arrays.asList(
+                "Log_2024-05-01_10-00-00_002.lsb",
+                "Log_2024-05-01_10-00-00_999.lsb.gz",
+                "Log_2024-05-01_10-00-00_1000.lsb",
+                "Log_2024-05-02_10-00-00_001.txt"), listed);
+    }
+
+    private static List<String> messages(File folder, LogQuery query) throws IOException {
+        List<String> messages = new ArrayList<>();
+        LogSearch.search(folder, query, (LogEntry entry) -> messages.add(entry.getMessage()));
+        return messages;
+    }
+}
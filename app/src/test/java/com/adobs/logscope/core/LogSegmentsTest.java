@@ -0,0 +1,203 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogSegmentsTest {
+
+    private static final String SESSION = "2024-05-01_10-00-00";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void rotatesBySizeAndAge() throws IOException {
+        LogConfig config = new LogConfig.Builder().maxSegmentBytes(1000).maxSegmentAge(1, TimeUnit.HOURS).build();
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+        segments.open();
+        long now = System.currentTimeMillis();
+
+        assertFalse(segments.shouldRotate(0, now));
+        assertFalse(segments.shouldRotate(999, now));
+        assertTrue(segments.shouldRotate(1000, now));
+        // Age only counts once the segment has content
+        assertFalse(segments.shouldRotate(0, now + TimeUnit.HOURS.toMillis(2)));
+        assertTrue(segments.shouldRotate(1, now + TimeUnit.HOURS.toMillis(2)));
+        segments.close();
+    }
+
+    @Test
+    public void numbersSegmentsAndCompressesClosedOnes() throws Exception {
+        LogConfig config = new LogConfig.Builder().compressSegments(true).retentionBytes(0).build();
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+
+        LogSink sink = segments.open();
+        File first = segments.currentFile();
+        assertEquals("Log_" + SESSION + "_001.txt", first.getName());
+        sink.appendLine("first segment");
+
+        sink = segments.rotate();
+        assertEquals("Log_" + SESSION + "_002.txt", segments.currentFile().getName());
+        sink.appendLine("second segment");
+        segments.close();
+
+        File compressed = new File(first.getPath() + LogSegments.COMPRESSED_SUFFIX);
+        assertTrue(awaitFile(compressed, true));
+        assertTrue(awaitFile(first, false));
+        assertEquals("first segment\n", gunzip(compressed));
+        // The live segment is never compressed
+        assertTrue(segments.currentFile().isFile());
+    }
+
+    @Test
+    public void retentionDeletesOldestButNeverLiveSegment() throws Exception {
+        File oldest = writeFile("Log_2024-04-01_10-00-00_001.txt", 4000, 1_000_000L);
+        File older = writeFile("Log_2024-04-02_10-00-00_001.txt", 4000, 2_000_000L);
+        File unrelated = writeFile("notes.txt", 4000, 500_000L);
+
+        LogConfig config = new LogConfig.Builder().compressSegments(false).retentionBytes(3000).build();
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+        LogSink sink = segments.open();
+        File closed = segments.currentFile();
+        sink.appendLine("closed");
+        sink = segments.rotate();
+        sink.appendLine("live");
+        segments.close();
+
+        // 8000 bytes of old sessions over a 3000 byte cap: both go, oldest first
+        assertTrue(awaitFile(oldest, false));
+        assertTrue(awaitFile(older, false));
+        assertTrue(closed.isFile());
+        assertTrue(segments.currentFile().isFile());
+        // Only segments count towards the cap
+        assertTrue(unrelated.isFile());
+    }
+
+    @Test
+    public void retentionStopsOnceUnderCap() throws Exception {
+        File oldest = writeFile("Log_2024-04-01_10-00-00_001.txt", 4000, 1_000_000L);
+        File older = writeFile("Log_2024-04-02_10-00-00_001.txt", 4000, 2_000_000L);
+
+        LogConfig config = new LogConfig.Builder().compressSegments(false).retentionBytes(5000).build();
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+        segments.open().appendLine("closed");
+        segments.rotate().appendLine("live");
+        segments.close();
+
+        assertTrue(awaitFile(oldest, false));
+        assertTrue(older.isFile());
+    }
+
+    @Test
+    public void sessionLockIsHeldWhileOpenAndOutsideSegmentNames() throws IOException {
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, new LogConfig.Builder().build());
+        segments.open();
+        File lock = LogSegments.lockFileOf(temp.getRoot(), SESSION);
+
+        assertTrue(lock.isFile());
+        assertFalse(lock.getName().startsWith(LogSegments.PREFIX));
+        assertTrue(LogSegments.isSessionLive(temp.getRoot(), SESSION));
+
+        segments.close();
+        assertFalse(lock.exists());
+        assertFalse(LogSegments.isSessionLive(temp.getRoot(), SESSION));
+    }
+
+    @Test
+    public void retentionKeepsLiveSegmentsOfOtherWriters() throws Exception {
+        // Another process of the app, still writing its first segment
+        String otherSession = "2024-04-01_10-00-00";
+        File otherLive = writeFile("Log_" + otherSession + "_001.txt", 4000, 1_000_000L);
+        File otherLock = LogSegments.lockFileOf(temp.getRoot(), otherSession);
+        // A writer of this process, with one closed segment behind its live one
+        LogSegments sibling = new LogSegments(temp.getRoot(), "2024-04-02_10-00-00", new LogConfig.Builder()
+                .compressSegments(false).retentionBytes(0).build());
+        sibling.open().appendLine("sibling closed");
+        File siblingClosed = sibling.currentFile();
+        sibling.rotate().appendLine("sibling live");
+        File siblingLive = sibling.currentFile();
+        assertTrue(siblingClosed.setLastModified(2_000_000L));
+        assertTrue(siblingLive.setLastModified(2_000_000L));
+        File dead = writeFile("Log_2024-04-03_10-00-00_001.txt", 4000, 3_000_000L);
+
+        try (FileChannel channel = new RandomAccessFile(otherLock, "rw").getChannel()) {
+            channel.lock();
+
+            LogConfig config = new LogConfig.Builder().compressSegments(false).retentionBytes(100).build();
+            LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+            segments.open().appendLine("closed");
+            segments.rotate().appendLine("live");
+            segments.close();
+
+            assertTrue(awaitFile(dead, false));
+            assertTrue(awaitFile(siblingClosed, false));
+        }
+        assertTrue(otherLive.isFile());
+        assertTrue(siblingLive.isFile());
+        sibling.close();
+    }
+
+    @Test
+    public void retentionTreatsAnUnheldLockAsAClosedSession() throws Exception {
+        String crashedSession = "2024-04-01_10-00-00";
+        File crashed = writeFile("Log_" + crashedSession + "_001.txt", 4000, 1_000_000L);
+        File staleLock = LogSegments.lockFileOf(temp.getRoot(), crashedSession);
+        assertTrue(staleLock.createNewFile());
+
+        LogConfig config = new LogConfig.Builder().compressSegments(false).retentionBytes(100).build();
+        LogSegments segments = new LogSegments(temp.getRoot(), SESSION, config);
+        segments.open().appendLine("closed");
+        segments.rotate().appendLine("live");
+        segments.close();
+
+        assertTrue(awaitFile(crashed, false));
+        assertTrue(awaitFile(staleLock, false));
+    }
+
+    private File writeFile(String name, int bytes, long lastModified) throws IOException {
+        File file = new File(temp.getRoot(), name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[bytes]);
+        }
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static boolean awaitFile(File file, boolean exists) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (file.isFile() != exists) {
+            if (System.nanoTime() - deadline > 0) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static String gunzip(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
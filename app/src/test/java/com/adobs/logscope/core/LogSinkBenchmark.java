@@ -0,0 +1,92 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer-thread throughput of the two text sinks: ChannelSink (UTF-8 encoded
+ * straight into a direct buffer, FileChannel) against WriterSink
+ * (BufferedWriter over an OutputStreamWriter). Each operation formats and
+ * appends one line; the sink is flushed every FLUSH_LINES lines, as
+ * AsyncLogWriter would under load. The score is lines per second, and the
+ * line sizes are printed once per trial so it converts to MB/s.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="LogSinkBenchmark"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogSinkBenchmark {
+
+    private static final int FLUSH_LINES = 1000;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    @State(Scope.Thread)
+    public static class Output {
+
+        @Param({"CHANNEL", "WRITER"})
+        public SinkType sink;
+
+        /** ASCII, or with 2- and 3-byte UTF-8 characters in it. */
+        @Param({"ASCII", "MIXED"})
+        public String text;
+
+        File file;
+        LogSink out;
+        final LogFormatter formatter = new LogFormatter(new TagTable(16), new StackTraceCache(false));
+        final LogRecord record = new LogRecord();
+        int lines;
+
+        @Setup(Level.Trial)
+        public void describe() {
+            String message = "ASCII".equals(text)
+                    ? "Request 42 finished in 12 ms, status=OK, bytes=56154"
+                    : "Anfrage 42 beendet nach 12 ms, Größe=56154, 请求完成";
+            record.set(1_714_557_600_000L, LogLevel.DEBUG, TagTable.NO_ID, "OkHttp", message, null,
+                    Thread.currentThread());
+            CharSequence line = formatter.format(record);
+            System.out.println(text + " line: " + line.length() + " chars, " + (Utf8.encodedLength(line) + 1)
+                    + " bytes");
+        }
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            file = File.createTempFile("sinkbench", ".txt");
+            out = sink == SinkType.CHANNEL ? new ChannelSink(file, BUFFER_BYTES) : new WriterSink(file, BUFFER_BYTES);
+            lines = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            out.close();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public int formatAndAppend(Output output) throws IOException {
+        output.record.timestamp++;
+        int bytes = output.out.appendLine(output.formatter.format(output.record));
+        if (++output.lines % FLUSH_LINES == 0) {
+            output.out.flush();
+        }
+        return bytes;
+    }
+}
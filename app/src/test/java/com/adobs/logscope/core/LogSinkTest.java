@@ -0,0 +1,78 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LogSinkTest {
+
+    // ASCII, 2-byte, 3-byte, a surrogate pair and an unpaired surrogate
+    private static final String MIXED = "log \u00e9 \u4e2d\u6587 \uD83D\uDE00 lone \uD800 end";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void encodedLengthMatchesJdk() {
+        assertEquals(MIXED.getBytes(StandardCharsets.UTF_8).length, Utf8.encodedLength(MIXED));
+        assertEquals(0, Utf8.encodedLength(""));
+    }
+
+    @Test
+    public void encodeInSmallChunksMatchesJdk() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50; i++) text.append(MIXED);
+
+        // 5 bytes: a 4-byte pair often does not fit and must wait for the next chunk
+        byte[] chunk = new byte[5];
+        int[] position = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int next = 0;
+        while (next < text.length()) {
+            next = Utf8.encode(text, next, chunk, 0, chunk.length, position);
+            out.write(chunk, 0, position[0]);
+        }
+        assertArrayEquals(text.toString().getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void channelSinkWritesSameBytesAsJdk() throws IOException {
+        File file = temp.newFile();
+        assertSinkWrites(new ChannelSink(file, 16), file);
+    }
+
+    @Test
+    public void writerSinkWritesSameBytesAsJdk() throws IOException {
+        File file = temp.newFile();
+        assertSinkWrites(new WriterSink(file, 16), file);
+    }
+
+    private static void assertSinkWrites(LogSink sink, File file) throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 200; i++) longLine.append(MIXED);
+        byte[] raw = {1, 2, 3, (byte) 0xFF};
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try {
+            assertEquals(Utf8.encodedLength(MIXED) + 1, sink.appendLine(MIXED));
+            expected.write((MIXED + "\n").getBytes(StandardCharsets.UTF_8));
+            // Raw bytes between text lines must land between them in the file
+            sink.appendBytes(raw, 0, raw.length);
+            expected.write(raw);
+            assertEquals(Utf8.encodedLength(longLine) + 1, sink.appendLine(longLine));
+            expected.write((longLine + "\n").getBytes(StandardCharsets.UTF_8));
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file.toPath()));
+    }
+}
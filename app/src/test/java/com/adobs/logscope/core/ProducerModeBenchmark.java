@@ -0,0 +1,108 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogManager.write under 1, 4 and 16 logging threads, with every thread
+ * claiming slots in the shared ring (SHARED_RING) against each thread filling
+ * its own chunk (THREAD_LOCAL). SampleTime reports the distribution of one
+ * call. The session writes to a temp folder; the records the overflow policy
+ * dropped are printed after each trial, since a dropped call is a cheap one.
+ * Contention only shows with a core per thread: with fewer, the writer falls
+ * behind and most calls take the drop path.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="ProducerModeBenchmark"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProducerModeBenchmark {
+
+    private static final String PACKAGE = "com.bench";
+    private static final String[] TAGS = new String[20];
+    private static final String[] MESSAGES = new String[64];
+
+    static {
+        for (int i = 0; i < TAGS.length; i++) {
+            TAGS[i] = "Tag" + i;
+        }
+        for (int i = 0; i < MESSAGES.length; i++) {
+            MESSAGES[i] = "Request " + i + " finished in 12 ms, status=OK, bytes=" + (i * 1337);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Session {
+
+        @Param({"SHARED_RING", "THREAD_LOCAL"})
+        public ProducerMode mode;
+
+        File folder;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            folder = new File(Files.createTempDirectory("producerbench").toFile(), PACKAGE);
+            LogManager.init(PACKAGE, folder, new LogConfig.Builder()
+                    .producerMode(mode)
+                    .collapseWindow(0)
+                    .build());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.println(mode + ": " + LogManager.getDroppedCount() + " dropped");
+            LogManager.shutdown(30, TimeUnit.SECONDS);
+            HookToDiskBenchmark.deleteRecursively(folder.getParentFile());
+        }
+    }
+
+    /** Per-thread position in TAGS and MESSAGES. */
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+    }
+
+    private static int write(Caller caller) {
+        int i = caller.next++;
+        LogManager.write(LogLevel.DEBUG, TAGS[i % TAGS.length], MESSAGES[i & 63], null);
+        return i;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int write1(Session session, Caller caller) {
+        return write(caller);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int write4(Session session, Caller caller) {
+        return write(caller);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int write16(Session session, Caller caller) {
+        return write(caller);
+    }
+}
@@ -0,0 +1,167 @@
+package com.adobs.logscope.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offer latency of LogRingBuffer against the LinkedBlockingQueue it replaced,
+ * with 1, 4 and 16 producers and one consumer thread draining in batches.
+ * SampleTime reports the distribution (p50, p99, p99.99) of one offer. A full
+ * ring or queue is retried, so a producer that outruns the consumer pays for
+ * the wait instead of dropping.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="RingBufferBenchmark"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RingBufferBenchmark {
+
+    private static final int CAPACITY = 65_536;
+    private static final int DRAIN_BATCH = 256;
+    private static final String TAG = "Net";
+    private static final String MESSAGE = "Request finished in 12 ms";
+
+    /** The ring with a consumer that drains it the way AsyncLogWriter does. */
+    @State(Scope.Benchmark)
+    public static class Ring {
+
+        final LogRingBuffer ring = new LogRingBuffer(CAPACITY, WaitStrategy.BLOCKING);
+        private final LogRingBuffer.Handler discard = record -> { };
+        private volatile boolean running;
+        private Thread consumer;
+
+        @Setup(Level.Trial)
+        public void start() {
+            running = true;
+            consumer = new Thread(() -> {
+                while (running) {
+                    try {
+                        if (ring.drain(discard, DRAIN_BATCH) == 0) {
+                            ring.await(TimeUnit.MILLISECONDS.toNanos(1));
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, "ring-consumer");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            running = false;
+            ring.wakeUp();
+            consumer.join();
+        }
+    }
+
+    /** The previous design: one node and one record allocated per log. */
+    @State(Scope.Benchmark)
+    public static class Queue {
+
+        final LinkedBlockingQueue<LogRecord> queue = new LinkedBlockingQueue<>(CAPACITY);
+        private volatile boolean running;
+        private Thread consumer;
+
+        @Setup(Level.Trial)
+        public void start() {
+            running = true;
+            consumer = new Thread(() -> {
+                List<LogRecord> batch = new ArrayList<>(DRAIN_BATCH);
+                while (running) {
+                    try {
+                        LogRecord first = queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (first == null) continue;
+                        queue.drainTo(batch, DRAIN_BATCH - 1);
+                        batch.clear();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "queue-consumer");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws InterruptedException {
+            running = false;
+            consumer.join();
+        }
+    }
+
+    private static boolean offer(Ring ring) {
+        Thread thread = Thread.currentThread();
+        while (!ring.ring.tryPublish(System.currentTimeMillis(), LogLevel.DEBUG, TagTable.NO_ID, TAG, MESSAGE,
+                null, thread)) {
+            Thread.yield();
+        }
+        return true;
+    }
+
+    private static boolean offer(Queue queue) {
+        LogRecord record = new LogRecord();
+        record.set(System.currentTimeMillis(), LogLevel.DEBUG, TagTable.NO_ID, TAG, MESSAGE, null,
+                Thread.currentThread());
+        while (!queue.queue.offer(record)) {
+            Thread.yield();
+        }
+        return true;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean ring1(Ring ring) {
+        return offer(ring);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean ring4(Ring ring) {
+        return offer(ring);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean ring16(Ring ring) {
+        return offer(ring);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean queue1(Queue queue) {
+        return offer(queue);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean queue4(Queue queue) {
+        return offer(queue);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean queue16(Queue queue) {
+        return offer(queue);
+    }
+}
@@ -0,0 +1,109 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentIndexTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final TagTable tags = new TagTable(16);
+    private final LogRecord record = new LogRecord();
+
+    /**
+     * Three blocks of two records:
+     * block 0: A/D at 1000, B/D at 1001
+     * block 1: A/E at 2000, B/I at 2001
+     * block 2: C/I at 3000 (interned), Raw/W at 3001 (not interned)
+     */
+    private File writeIndex() throws IOException {
+        File segment = temp.newFile("Log_2024-05-01_10-00-00_001.txt");
+        SegmentIndex.Builder builder = new SegmentIndex.Builder(LogFormat.TEXT, 2, tags.getCapacity());
+        add(builder, 0, 1000, LogLevel.DEBUG, "A");
+        add(builder, 100, 1001, LogLevel.DEBUG, "B");
+        add(builder, 200, 2000, LogLevel.ERROR, "A");
+        add(builder, 300, 2001, LogLevel.INFO, "B");
+        add(builder, 400, 3000, LogLevel.INFO, "C");
+        record.set(3001, LogLevel.WARN, TagTable.NO_ID, "Raw", "m", null, Thread.currentThread());
+        builder.add(record, "Raw");
+        builder.finish(segment, 600);
+        return segment;
+    }
+
+    private void add(SegmentIndex.Builder builder, long offset, long timestamp, byte level, String tag) {
+        if (builder.needsBlock()) {
+            builder.startBlock(offset, timestamp);
+        }
+        record.set(timestamp, level, tags.intern(tag), null, "m", null, Thread.currentThread());
+        builder.add(record, tag);
+    }
+
+    @Test
+    public void writesAndLoadsTheSidecar() throws IOException {
+        File segment = writeIndex();
+        assertTrue(SegmentIndex.sidecarOf(segment).isFile());
+
+        SegmentIndex index = SegmentIndex.load(segment);
+        assertEquals(LogFormat.TEXT, index.format);
+        assertEquals(6, index.recordCount);
+        assertEquals(3, index.blockCount);
+        assertArrayEquals(new long[]{0, 200, 400}, index.offsets);
+        assertArrayEquals(new long[]{1000, 2000, 3000}, index.minTimestamps);
+        assertArrayEquals(new long[]{1001, 2001, 3001}, index.maxTimestamps);
+        assertEquals(400, index.blockEnd(1));
+        assertEquals(600, index.blockEnd(2));
+    }
+
+    @Test
+    public void sidecarIsSharedByThePlainAndGzipName() {
+        File plain = new File(temp.getRoot(), "Log_2024-05-01_10-00-00_001.lsb");
+        File compressed = new File(temp.getRoot(), "Log_2024-05-01_10-00-00_001.lsb.gz");
+        assertEquals(SegmentIndex.sidecarOf(plain), SegmentIndex.sidecarOf(compressed));
+        assertEquals("Log_2024-05-01_10-00-00_001.lsb.idx", SegmentIndex.sidecarOf(plain).getName());
+    }
+
+    @Test
+    public void missingSidecarLoadsAsNull() throws IOException {
+        assertNull(SegmentIndex.load(temp.newFile("Log_2024-05-01_10-00-00_001.txt")));
+    }
+
+    @Test
+    public void candidatesCombineTagLevelAndTime() throws IOException {
+        SegmentIndex index = SegmentIndex.load(writeIndex());
+
+        assertEquals(blocks(0, 1, 2), index.candidates(new LogQuery.Builder().build()));
+        assertEquals(blocks(0, 1), index.candidates(new LogQuery.Builder().tags("A").build()));
+        // A only logged an error in block 1
+        assertEquals(blocks(1), index.candidates(new LogQuery.Builder().tags("A").minLevel(LogLevel.ERROR).build()));
+        assertEquals(blocks(1, 2), index.candidates(new LogQuery.Builder().minLevel(LogLevel.INFO).build()));
+        assertEquals(blocks(2), index.candidates(new LogQuery.Builder().tags("Raw").build()));
+        assertEquals(blocks(), index.candidates(new LogQuery.Builder().tags("Unknown").build()));
+        assertEquals(blocks(1, 2), index.candidates(new LogQuery.Builder().between(2001, 5000).build()));
+        assertEquals(blocks(0), index.candidates(new LogQuery.Builder().tags("B").between(0, 1500).build()));
+    }
+
+    @Test
+    public void emptyBuilderWritesNoSidecar() throws IOException {
+        File segment = temp.newFile("Log_2024-05-01_10-00-00_002.txt");
+        new SegmentIndex.Builder(LogFormat.TEXT, 2, tags.getCapacity()).finish(segment, 0);
+        assertFalse(SegmentIndex.sidecarOf(segment).exists());
+    }
+
+    private static BitSet blocks(int... numbers) {
+        BitSet set = new BitSet();
+        for (int number : numbers) set.set(number);
+        return set;
+    }
+}
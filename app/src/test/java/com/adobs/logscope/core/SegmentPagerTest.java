@@ -0,0 +1,121 @@
+package com.adobs.logscope.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentPagerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void pagesRecordsWithTheirContinuationLines() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.txt");
+        append(file, records(0, 600));
+
+        try (SegmentPager pager = new SegmentPager(file)) {
+            assertEquals(600, pager.refresh(Long.MAX_VALUE));
+            assertTrue(pager.isCaughtUp());
+            assertEquals(600, pager.getRecordCount());
+
+            assertNull(pager.getCached(0));
+            String[] first = pager.loadPage(0);
+            assertEquals(SegmentPager.PAGE_SIZE, first.length);
+            assertEquals(record(0), first[0]);
+            assertEquals(record(10), first[10]);
+            assertEquals(record(10), pager.getCached(10));
+
+            String[] last = pager.loadPage(SegmentPager.pageOf(599));
+            assertEquals(600 - 2 * SegmentPager.PAGE_SIZE, last.length);
+            assertEquals(record(599), last[last.length - 1]);
+            assertEquals(0, pager.loadPage(3).length);
+        }
+    }
+
+    @Test
+    public void refreshPicksUpAppendedRecordsOnly() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.txt");
+        append(file, records(0, 5));
+        // A line still being written is not a record yet
+        append(file, "10:00:05.000 [main#1] : [I/Tag] partial");
+
+        try (SegmentPager pager = new SegmentPager(file)) {
+            assertEquals(5, pager.refresh(Long.MAX_VALUE));
+            assertEquals(record(4), pager.loadPage(0)[4]);
+
+            append(file, " line\n" + records(6, 8));
+            assertEquals(3, pager.refresh(Long.MAX_VALUE));
+            assertEquals(8, pager.getRecordCount());
+            // The grown last page is read again
+            String[] page = pager.loadPage(0);
+            assertEquals("10:00:05.000 [main#1] : [I/Tag] partial line", page[5]);
+            assertEquals(record(7), page[7]);
+        }
+    }
+
+    @Test
+    public void refreshStopsAtTheByteBudget() throws IOException {
+        File file = temp.newFile("Log_2024-05-01_10-00-00_001.txt");
+        append(file, records(0, 100));
+
+        try (SegmentPager pager = new SegmentPager(file)) {
+            int first = pager.refresh(1000);
+            assertTrue(first > 0 && first < 100);
+            assertFalse(pager.isCaughtUp());
+            while (!pager.isCaughtUp()) {
+                pager.refresh(1000);
+            }
+            assertEquals(100, pager.getRecordCount());
+            assertEquals(record(99), pager.loadPage(0)[99]);
+        }
+    }
+
+    @Test
+    public void latestSegmentIsByNumberNotName() throws IOException {
+        File folder = temp.getRoot();
+        temp.newFile("Log_2024-05-01_10-00-00_999.txt");
+        File latest = temp.newFile("Log_2024-05-01_10-00-00_1000.txt");
+        temp.newFile("Log_2024-04-30_10-00-00_1001.txt");
+        temp.newFile("Log_2024-05-01_10-00-00_1001.txt.gz");
+        temp.newFile("Log_2024-05-02_10-00-00" + CrashRegion.RECOVERED_SUFFIX);
+
+        assertEquals(latest, SegmentPager.findLatestSegment(folder));
+        assertNull(SegmentPager.findLatestSegment(temp.newFolder()));
+    }
+
+    /** Every third record carries a two-line stack trace. */
+    private static String record(int i) {
+        String line = String.format(Locale.US, "10:%02d:%02d.%03d [main#1] : [I/Tag] message %d",
+                i / 3600 % 60, i / 60 % 60, i % 1000, i);
+        return i % 3 == 0
+                ? line + "\nStacktrace:\n\tat com.example.Foo.bar(Foo.java:" + i + ")"
+                : line;
+    }
+
+    private static String records(int from, int to) {
+        StringBuilder out = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            out.append(record(i)).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void append(File file, String text) throws IOException {
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.adobs.logscope.core;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionArchiveTest {
+
+    private static final int RECORDS = 1000;
+    private static final String OLD_SESSION = "2000-01-01_00-00-00";
+    private static final String OLD_SEGMENT = LogSegments.PREFIX + OLD_SESSION + "_001" + LogFormat.TEXT.getExtension();
+    private static final String OLD_CRASH = LogSegments.PREFIX + OLD_SESSION + CrashRegion.RECOVERED_SUFFIX;
+
+    private static final String LARGE_SESSION = "2024-05-01_10-00-00";
+    private static final int LARGE_SEGMENTS = 16;
+    private static final int LARGE_SEGMENT_BYTES = 2 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        LogManager.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A live session of several segments (all but the last gzipped, each with a
+     * sidecar) next to an older session of one segment and its crash file, plus
+     * a metrics file. Messages are "m i", tag "Tag" + i % 5.
+     */
+    private File capture(LogFormat format) throws Exception {
+        File folder = new File(temp.getRoot(), "com.test");
+        LogManager.init("com.test", folder, new LogConfig.Builder()
+                .format(format)
+                .maxSegmentBytes(4 * 1024)
+                .indexBlockRecords(32)
+                .compressSegments(true)
+                .retentionBytes(0)
+                .build());
+        for (int i = 0; i < RECORDS; i++) {
+            LogManager.write(LogLevel.DEBUG, "Tag" + (i % 5), "m " + i, null);
+        }
+        assertTrue(LogManager.shutdown(10, TimeUnit.SECONDS));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            File[] segments = LogSearch.listSegments(folder);
+            int compressed = 0;
+            for (File segment : segments) {
+                if (segment.getName().endsWith(LogSegments.COMPRESSED_SUFFIX)) compressed++;
+            }
+            if (segments.length > 1 && compressed == segments.length - 1) break;
+            assertTrue("segments not compressed in time", deadline - System.nanoTime() > 0);
+            Thread.sleep(20);
+        }
+
+        write(new File(folder, OLD_SEGMENT), "00:00:01.000 [main#1] : [D/Old] old line\n");
+        write(new File(folder, OLD_CRASH), "old crash\n");
+        write(LogMetrics.fileFor(folder, "com.test"), "metrics\n");
+        return folder;
+    }
+
+    @Test
+    public void allSessionsWithSidecarsCrashFilesAndMetrics() throws Exception {
+        File folder = capture(LogFormat.TEXT);
+        File[] segments = LogSearch.listSegments(folder);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int files = SessionArchive.write(folder, null, null, out);
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        assertEquals(files, entries.size());
+
+        for (File segment : segments) {
+            String name = segment.getName();
+            if (name.endsWith(LogSegments.COMPRESSED_SUFFIX)) {
+                String plain = name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length());
+                assertArrayEquals(plain, gunzip(segment), entries.get(plain));
+                assertFalse(entries.containsKey(name));
+            } else {
+                assertArrayEquals(name, Files.readAllBytes(segment.toPath()), entries.get(name));
+            }
+            File sidecar = SegmentIndex.sidecarOf(segment);
+            if (sidecar.isFile()) {
+                assertArrayEquals(Files.readAllBytes(sidecar.toPath()), entries.get(sidecar.getName()));
+            }
+        }
+        assertNotNull(entries.get(OLD_SEGMENT));
+        assertEquals("old crash\n", new String(entries.get(OLD_CRASH), StandardCharsets.UTF_8));
+        assertNotNull(entries.get(LogMetrics.fileFor(folder, "com.test").getName()));
+    }
+
+    @Test
+    public void olderSessionLeavesOutOtherSessionsAndMetrics() throws Exception {
+        File folder = capture(LogFormat.TEXT);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, SessionArchive.write(folder, OLD_SESSION, null, out));
+        assertEquals(Arrays.asList(OLD_SEGMENT, OLD_CRASH), Arrays.asList(
+                unzip(out.toByteArray()).keySet().toArray(new String[0])));
+    }
+
+    @Test
+    public void newestSessionIncludesMetrics() throws Exception {
+        File folder = capture(LogFormat.TEXT);
+        File[] segments = LogSearch.listSegments(folder);
+        String newest = SessionArchive.sessionOf(segments[segments.length - 1]);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SessionArchive.write(folder, newest, null, out);
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+
+        assertNotNull(entries.get(LogMetrics.fileFor(folder, "com.test").getName()));
+        assertFalse(entries.containsKey(OLD_SEGMENT));
+        assertFalse(entries.containsKey(OLD_CRASH));
+        for (String name : entries.keySet()) {
+            assertFalse(name, name.endsWith(LogSegments.COMPRESSED_SUFFIX));
+        }
+    }
+
+    @Test
+    public void queryWritesMatchingLinesAsText() throws Exception {
+        File folder = capture(LogFormat.BINARY);
+        File[] segments = LogSearch.listSegments(folder);
+        String newest = SessionArchive.sessionOf(segments[segments.length - 1]);
+        LogQuery query = new LogQuery.Builder().tags("Tag3").messageContains("m 5").build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int files = SessionArchive.write(folder, newest, query, out);
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        assertEquals(files, entries.size());
+
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (name.startsWith(LogMetrics.FILE_PREFIX)) continue;
+            // No sidecars, and binary segments come out as text
+            assertTrue(name, name.endsWith(LogFormat.TEXT.getExtension()));
+            text.append(new String(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        // 53, 58, 503, 508, ..., 598, oldest segment first
+        List<String> expected = new ArrayList<>();
+        for (int i = 3; i < RECORDS; i += 5) {
+            if (Integer.toString(i).startsWith("5")) expected.add("[D/Tag3] m " + i);
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : text.toString().split("\n")) {
+            lines.add(line.substring(line.indexOf(" : ") + 3));
+        }
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    public void writeToFileLeavesNoPartialFile() throws Exception {
+        File folder = capture(LogFormat.TEXT);
+        File target = new File(temp.getRoot(), "export.zip");
+
+        int files = SessionArchive.write(folder, OLD_SESSION, null, target);
+        assertEquals(2, files);
+        assertEquals(2, unzip(Files.readAllBytes(target.toPath())).size());
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * 32 MB of plain text in 16 segments, every other one gzipped as rotation leaves
+     * them. Streamed into a sink that keeps nothing, so the bytes the export
+     * allocates are its own, and must not grow with the session.
+     */
+    @Test
+    public void largeSessionStreamsThroughAFixedBuffer() throws Exception {
+        com.sun.management.ThreadMXBean threads = LogFormatterTest.threadBean();
+        File folder = temp.newFolder("com.large");
+        long plainBytes = largeSession(folder);
+
+        // Once to warm up, then measured
+        SessionArchive.write(folder, LARGE_SESSION, null, new CountingSink());
+        CountingSink sink = new CountingSink();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        assertEquals(LARGE_SEGMENTS, SessionArchive.write(folder, LARGE_SESSION, null, sink));
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        double mbPerSecond = plainBytes / 1e6 / (nanos / 1e9);
+        System.out.println(String.format(Locale.US, "SessionArchive: %.1f MB in %d ms (%.0f MB/s), zip %.1f MB, "
+                + "%d KB allocated", plainBytes / 1e6, nanos / 1_000_000, mbPerSecond, sink.bytes / 1e6,
+                allocated / 1024));
+        assertTrue(sink.bytes > 0 && sink.bytes < plainBytes);
+        // A few buffers per segment; a copy of the session would be 32 MB
+        assertTrue(allocated + " bytes allocated for " + plainBytes, allocated < 4 * 1024 * 1024);
+    }
+
+    @Test
+    public void largeSessionQueryKeepsOnlyMatches() throws Exception {
+        File folder = temp.newFolder("com.large");
+        long plainBytes = largeSession(folder);
+        LogQuery query = new LogQuery.Builder().tags("Tag7").messageContains("status=500").build();
+
+        CountingSink sink = new CountingSink();
+        long start = System.nanoTime();
+        assertEquals(LARGE_SEGMENTS, SessionArchive.write(folder, LARGE_SESSION, query, sink));
+        long nanos = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.US, "SessionArchive query: %.1f MB in %d ms (%.0f MB/s), zip %d KB",
+                plainBytes / 1e6, nanos / 1_000_000, plainBytes / 1e6 / (nanos / 1e9), sink.bytes / 1024));
+        // One line in 80 matches, so the archive is a small fraction of the session
+        assertTrue(sink.bytes + " of " + plainBytes, sink.bytes > 0 && sink.bytes < plainBytes / 50);
+    }
+
+    /**
+     * Segments of lines as LogFormatter writes them, without sidecars.
+     *
+     * @return size of the session uncompressed
+     */
+    private static long largeSession(File folder) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        long plainBytes = 0;
+        int n = 0;
+        for (int segment = 1; segment <= LARGE_SEGMENTS; segment++) {
+            String name = String.format(Locale.US, "%s%s_%03d%s", LogSegments.PREFIX, LARGE_SESSION, segment,
+                    LogFormat.TEXT.getExtension());
+            boolean compressed = segment % 2 == 1 && segment < LARGE_SEGMENTS;
+            File file = new File(folder, compressed ? name + LogSegments.COMPRESSED_SUFFIX : name);
+            try (OutputStream out = compressed
+                    ? new GZIPOutputStream(new FileOutputStream(file), 64 * 1024)
+                    : new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) {
+                int written = 0;
+                while (written < LARGE_SEGMENT_BYTES) {
+                    line.setLength(0);
+                    line.append(String.format(Locale.US, "10:%02d:%02d.%03d", n / 60_000 % 60, n / 1000 % 60, n % 1000))
+                            .append(" [worker-").append(n % 4).append('#').append(20 + n % 4).append("] : [D/Tag")
+                            .append(n % 16).append("] GET /api/items/").append(n).append(" status=")
+                            .append(n % 10 == 7 ? 500 : 200).append(" in ").append(n % 97).append(" ms\n");
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    out.write(bytes);
+                    written += bytes.length;
+                    n++;
+                }
+                plainBytes += written;
+            }
+        }
+        return plainBytes;
+    }
+
+    /** Counts what the archive writes and keeps none of it. */
+    private static final class CountingSink extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Test
+    public void sessionOfIgnoresOtherFiles() {
+        assertEquals(OLD_SESSION, SessionArchive.sessionOf(new File(OLD_SEGMENT + LogSegments.COMPRESSED_SUFFIX)));
+        assertEquals(OLD_SESSION, SessionArchive.sessionOf(new File(OLD_CRASH)));
+        assertNull(SessionArchive.sessionOf(new File("Metrics_com.test.txt")));
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), readAll(in));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StackTraceCacheTest {
+
+    @Test
+    public void repeatsBecomeReferences() {
+        StackTraceCache cache = new StackTraceCache(true);
+        Throwable[] failures = new Throwable[3];
+        for (int i = 0; i < failures.length; i++) {
+            // Same site, class and message: the same trace every time
+            failures[i] = new IllegalStateException("bad state");
+        }
+
+        String first = cache.render(failures[0]).toString();
+        assertTrue(first, first.startsWith("#1 java.lang.IllegalStateException: bad state"));
+        assertEquals("same as #1 (x1 repeats)", cache.render(failures[1]).toString());
+        assertEquals("same as #1 (x2 repeats)", cache.render(failures[2]).toString());
+
+        String other = cache.render(new IllegalStateException("other message")).toString();
+        assertTrue(other, other.startsWith("#2 java.lang.IllegalStateException: other message"));
+    }
+
+    @Test
+    public void resetStartsEachSegmentWithFullTraces() {
+        StackTraceCache cache = new StackTraceCache(true);
+        Throwable failure = new RuntimeException("io");
+        cache.render(failure);
+        cache.render(failure);
+
+        cache.reset();
+        String again = cache.render(failure).toString();
+        assertTrue(again, again.contains("java.lang.RuntimeException: io"));
+        assertTrue(again, again.contains("\tat "));
+    }
+
+    @Test
+    public void disabledCacheAlwaysRendersInFull() {
+        StackTraceCache cache = new StackTraceCache(false);
+        Throwable failure = new RuntimeException("io");
+        for (int i = 0; i < 3; i++) {
+            String text = cache.render(failure).toString();
+            assertTrue(text, text.startsWith("java.lang.RuntimeException: io"));
+        }
+        assertEquals("as sent", cache.render("as sent").toString());
+    }
+
+    @Test
+    public void renderedTextFromOtherProcessesIsDedupedToo() {
+        StackTraceCache cache = new StackTraceCache(true);
+        String trace = "java.lang.IllegalStateException: remote\n\tat com.example.Remote.run(Remote.java:10)";
+
+        assertEquals("#1 " + trace, cache.render(trace).toString());
+        assertEquals("same as #1 (x1 repeats)", cache.render(trace).toString());
+    }
+
+    @Test
+    public void evictsLeastRecentlySeenBeyondMaxEntries() {
+        StackTraceCache cache = new StackTraceCache(true);
+        cache.render("trace 0");
+        for (int i = 1; i <= StackTraceCache.MAX_ENTRIES; i++) {
+            cache.render("trace " + i);
+        }
+        // "trace 0" was the eldest and is gone; the newest are still known
+        assertTrue(cache.render("trace " + StackTraceCache.MAX_ENTRIES).toString().startsWith("same as "));
+        assertTrue(cache.render("trace 0").toString().startsWith("#"));
+    }
+
+    @Test
+    public void failedRenderLeavesNoReference() {
+        StackTraceCache cache = new StackTraceCache(true);
+        Throwable failure = new IllegalStateException("bad state") {
+            @Override
+            public String toString() {
+                throw new UnsupportedOperationException("toString");
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.render(failure);
+                fail("rendered");
+            } catch (UnsupportedOperationException expected) {
+                // Not "same as #1": #1 was never written
+            }
+        }
+        String next = cache.render(new IllegalStateException("next")).toString();
+        assertTrue(next, next.startsWith("#1 java.lang.IllegalStateException: next"));
+    }
+
+    @Test
+    public void equalTracesShareAFingerprint() {
+        Throwable[] failures = new Throwable[2];
+        for (int i = 0; i < failures.length; i++) {
+            // Same site, class and message: the same trace every time
+            failures[i] = new IllegalStateException("bad state");
+        }
+        assertEquals(StackTraceCache.fingerprint(failures[0]), StackTraceCache.fingerprint(failures[1]));
+        assertNotEquals(StackTraceCache.fingerprint(failures[0]),
+                StackTraceCache.fingerprint(new IllegalStateException("other message")));
+    }
+
+    @Test
+    public void cyclicCauseChainsTerminate() {
+        RuntimeException outer = new RuntimeException("outer");
+        IllegalStateException inner = new IllegalStateException("inner", outer);
+        outer.initCause(inner);
+        assertEquals(StackTraceCache.fingerprint(outer), StackTraceCache.fingerprint(outer));
+    }
+
+    @Test
+    public void fingerprintCoversCauseChain() {
+        assertEquals(StackTraceCache.fingerprint(wrapper(false)), StackTraceCache.fingerprint(wrapper(false)));
+        assertEquals(StackTraceCache.fingerprint(wrapper(true)), StackTraceCache.fingerprint(wrapper(true)));
+        // Same frames and message at the top: only the cause tells them apart
+        assertNotEquals(StackTraceCache.fingerprint(wrapper(false)), StackTraceCache.fingerprint(wrapper(true)));
+    }
+
+    private static Throwable wrapper(boolean withCause) {
+        return new RuntimeException("wrapper", withCause ? new IllegalArgumentException("cause") : null);
+    }
+}
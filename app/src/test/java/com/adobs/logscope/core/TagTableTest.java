@@ -0,0 +1,96 @@
+package com.adobs.logscope.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TagTableTest {
+
+    @Test
+    public void internsTagsToStableIds() {
+        TagTable table = new TagTable(8);
+        int net = table.intern("Net");
+        int db = table.intern("Db");
+
+        assertNotEquals(TagTable.NO_ID, net);
+        assertNotEquals(net, db);
+        assertEquals(net, table.intern("Net"));
+        assertEquals("Net", table.name(net));
+        assertEquals("Db", table.name(db));
+        assertEquals(2, table.getDistinctTags());
+        assertEquals(1.0 / 3, table.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void overflowFallsBackToNoIdAndKeepsExistingTags() {
+        TagTable table = new TagTable(3);
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(TagTable.NO_ID, table.intern("Tag" + i));
+        }
+
+        assertEquals(TagTable.NO_ID, table.intern("Dynamic1"));
+        assertEquals(TagTable.NO_ID, table.intern("Dynamic2"));
+        assertEquals(TagTable.NO_ID, table.intern("Dynamic1"));
+        assertEquals(3, table.getOverflowCount());
+        assertEquals(3, table.getDistinctTags());
+
+        // Tags interned before the table filled up still resolve
+        int id = table.intern("Tag1");
+        assertNotEquals(TagTable.NO_ID, id);
+        assertEquals("Tag1", table.name(id));
+    }
+
+    @Test
+    public void concurrentInternNeverExceedsCapacity() throws InterruptedException {
+        TagTable table = new TagTable(50);
+        ConcurrentMap<String, Integer> seen = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 200; i++) {
+                    String tag = "Tag" + i;
+                    int id = table.intern(tag);
+                    if (id != TagTable.NO_ID) {
+                        Integer previous = seen.putIfAbsent(tag, id);
+                        if (previous != null && previous != id) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, conflicts.get());
+        Set<Integer> ids = new HashSet<>(seen.values());
+        assertEquals(seen.size(), ids.size());
+        assertTrue(ids.size() <= 50);
+        for (int id : ids) {
+            assertTrue(id >= 1 && id <= 50);
+            assertEquals(seen.get(table.name(id)), Integer.valueOf(id));
+        }
+    }
+}
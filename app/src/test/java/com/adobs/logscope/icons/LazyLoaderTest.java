@@ -0,0 +1,125 @@
+package com.adobs.logscope.icons;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyLoaderTest {
+
+    /** Runs tasks only when the test says so, to force any interleaving. */
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /** A recycled row: binding cancels the previous request, as the app adapter does. */
+    private final class Holder {
+        LazyLoader.Request request;
+        String shown;
+
+        void bind(String key) {
+            if (request != null) request.cancel();
+            shown = null;
+            request = loader.load(key, value -> shown = value);
+        }
+    }
+
+    private final ManualExecutor worker = new ManualExecutor();
+    private final ManualExecutor main = new ManualExecutor();
+    private final List<String> loaded = new ArrayList<>();
+    private final LazyLoader<String, String> loader = new LazyLoader<>(
+            new SizedLruCache<>(1024, String::length),
+            key -> {
+                loaded.add(key);
+                return "icon:" + key;
+            },
+            worker, main);
+
+    @Test
+    public void deliversToTheRowItWasRequestedFor() {
+        Holder holder = new Holder();
+        holder.bind("com.a");
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("icon:com.a", holder.shown);
+        assertEquals("icon:com.a", loader.getCached("com.a"));
+    }
+
+    @Test
+    public void cancelledBeforeLoadingSkipsTheSource() {
+        Holder holder = new Holder();
+        holder.bind("com.a");
+        holder.request.cancel();
+        worker.runAll();
+        main.runAll();
+
+        assertTrue(loaded.isEmpty());
+        assertNull(holder.shown);
+    }
+
+    @Test
+    public void reboundBeforeLoadingNeverShowsTheOldIcon() {
+        Holder holder = new Holder();
+        holder.bind("com.a");
+        holder.bind("com.b");
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("icon:com.b", holder.shown);
+        assertEquals(1, loaded.size());
+    }
+
+    @Test
+    public void reboundWhileTheOldIconIsOnItsWayNeverShowsIt() {
+        Holder holder = new Holder();
+        holder.bind("com.a");
+        // Loaded, delivery queued on the main thread
+        worker.runAll();
+        holder.bind("com.b");
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("icon:com.b", holder.shown);
+        // Still cached for the next row that needs it
+        assertEquals("icon:com.a", loader.getCached("com.a"));
+    }
+
+    @Test
+    public void reboundBackToAnEarlierKeyShowsItFromTheCache() {
+        Holder holder = new Holder();
+        holder.bind("com.a");
+        worker.runAll();
+        holder.bind("com.b");
+        worker.runAll();
+        // Deliveries run in order: com.a's (cancelled) first, then com.b's
+        main.runAll();
+        assertEquals("icon:com.b", holder.shown);
+
+        holder.bind("com.a");
+        worker.runAll();
+        main.runAll();
+        assertEquals("icon:com.a", holder.shown);
+        // The second com.a came from the cache
+        assertEquals(2, loaded.size());
+    }
+}
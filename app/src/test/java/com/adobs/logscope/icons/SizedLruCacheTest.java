@@ -0,0 +1,65 @@
+package com.adobs.logscope.icons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SizedLruCacheTest {
+
+    private final SizedLruCache<String, byte[]> cache = new SizedLruCache<>(100, value -> value.length);
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondMaxSize() {
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        // Reading a makes b the eldest
+        cache.get("a");
+        cache.put("c", new byte[40]);
+
+        assertNull(cache.get("b"));
+        assertEquals(40, cache.get("a").length);
+        assertEquals(40, cache.get("c").length);
+        assertEquals(80, cache.size());
+        assertEquals(2, cache.count());
+    }
+
+    @Test
+    public void replacingAValueUpdatesTheSize() {
+        cache.put("a", new byte[40]);
+        cache.put("a", new byte[10]);
+        assertEquals(10, cache.size());
+        assertEquals(1, cache.count());
+
+        cache.remove("a");
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void valueLargerThanTheCacheIsNotKept() {
+        cache.put("small", new byte[10]);
+        cache.put("huge", new byte[101]);
+        assertNull(cache.get("huge"));
+        assertEquals(10, cache.size());
+
+        // A huge replacement still drops the old value of its key
+        cache.put("small", new byte[500]);
+        assertNull(cache.get("small"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clearEmptiesTheCache() {
+        cache.put("a", new byte[40]);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.count());
+        assertEquals(100, cache.maxSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSizeMustBePositive() {
+        new SizedLruCache<String, byte[]>(0, value -> value.length);
+    }
+}
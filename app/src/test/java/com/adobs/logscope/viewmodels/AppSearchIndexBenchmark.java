@@ -0,0 +1,81 @@
+package com.adobs.logscope.viewmodels;
+
+import com.adobs.logscope.models.AppInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency over 1,000 installed apps, the upper end of what a phone has:
+ * building the index when the list loads, and filtering it for one keystroke.
+ * The budget for either is a frame (16 ms at 60 Hz); both run off the main
+ * thread, but a slow filter still shows as a lagging list.
+ *
+ * ./gradlew :app:benchmark -PjmhArgs="AppSearchIndexBenchmark"
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AppSearchIndexBenchmark {
+
+    private static final int APPS = 1000;
+    private static final String[] WORDS = {
+            "Camera", "Maps", "Photos", "Mail", "Music", "Notes", "Clock", "Calendar", "Weather", "Files",
+            "Banking", "Wallet", "Fitness", "Reader", "Player", "Chat", "Studio", "Scanner", "Keyboard", "Launcher",
+            "Écran", "Café", "Menü", "Señal", "München", "İstanbul", "Zürich",
+    };
+    private static final String[] VENDORS = {
+            "google", "samsung", "android", "microsoft", "whatsapp", "spotify", "niunaijun", "adobs", "example",
+    };
+
+    @State(Scope.Benchmark)
+    public static class Apps {
+
+        final List<AppInfo> apps = new ArrayList<>(APPS);
+        final AppSearchIndex index;
+
+        public Apps() {
+            Random random = new Random(42);
+            for (int i = 0; i < APPS; i++) {
+                String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + (i % 7 == 0 ? " Pro" : "");
+                String vendor = VENDORS[random.nextInt(VENDORS.length)];
+                apps.add(new AppInfo(name, "com." + vendor + ".app" + i, i));
+            }
+            index = AppSearchIndex.build(apps);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        /** One letter, a word, two words, and a query that matches nothing. */
+        @Param({"m", "maps", "go cam", "zzzz"})
+        public String text;
+    }
+
+    @Benchmark
+    public List<AppInfo> filter(Apps apps, Query query) {
+        return apps.index.filter(query.text);
+    }
+
+    @Benchmark
+    public AppSearchIndex build(Apps apps) {
+        return AppSearchIndex.build(apps.apps);
+    }
+}
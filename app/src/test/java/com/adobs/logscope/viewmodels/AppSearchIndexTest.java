@@ -0,0 +1,66 @@
+package com.adobs.logscope.viewmodels;
+
+import com.adobs.logscope.models.AppInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AppSearchIndexTest {
+
+    private static final AppInfo CAMERA = new AppInfo("Camera", "com.android.camera", 0);
+    // "\u00c9cran" sorts with the e's once the accent is removed
+    private static final AppInfo ECRAN = new AppInfo("\u00c9cran", "fr.ecran.app", 0);
+    private static final AppInfo MAPS = new AppInfo("maps", "com.google.android.apps.maps", 0);
+    private static final AppInfo MAPS_LITE = new AppInfo("Maps", "com.google.android.apps.mapslite", 0);
+    private static final AppInfo ZEBRA = new AppInfo("Zebra", "org.zebra", 0);
+
+    private final AppSearchIndex index = AppSearchIndex.build(
+            Arrays.asList(ZEBRA, MAPS_LITE, ECRAN, CAMERA, MAPS));
+
+    @Test
+    public void sortsByNormalizedNameThenPackage() {
+        assertEquals(Arrays.asList(CAMERA, ECRAN, MAPS, MAPS_LITE, ZEBRA), index.all());
+    }
+
+    @Test
+    public void filterIgnoresCaseAndAccents() {
+        assertEquals(Arrays.asList(ECRAN), index.filter("ECRAN"));
+        assertEquals(Arrays.asList(ECRAN), index.filter("\u00e9cr"));
+        assertEquals("ecran", AppSearchIndex.normalize("\u00c9cran"));
+    }
+
+    @Test
+    public void everyWordMustMatchNameOrPackage() {
+        assertEquals(Arrays.asList(MAPS, MAPS_LITE), index.filter("maps google"));
+        assertEquals(Arrays.asList(MAPS_LITE), index.filter("  maps   lite "));
+        assertEquals(Arrays.asList(CAMERA, MAPS, MAPS_LITE), index.filter("android"));
+        assertTrue(index.filter("maps zebra").isEmpty());
+    }
+
+    @Test
+    public void blankQueryReturnsEverything() {
+        assertEquals(index.all(), index.filter(""));
+        assertEquals(index.all(), index.filter("   "));
+        assertEquals(index.all(), index.filter(null));
+    }
+
+    @Test
+    public void emptyIndexMatchesNothing() {
+        assertTrue(AppSearchIndex.EMPTY.all().isEmpty());
+        assertTrue(AppSearchIndex.EMPTY.filter("maps").isEmpty());
+    }
+
+    @Test
+    public void buildDoesNotKeepTheSourceCollection() {
+        List<AppInfo> source = new ArrayList<>(Arrays.asList(CAMERA, ZEBRA));
+        AppSearchIndex built = AppSearchIndex.build(source);
+        source.clear();
+        assertEquals(Arrays.asList(CAMERA, ZEBRA), built.all());
+    }
+}